@@ -17,17 +17,22 @@
 package BlockBuilding;
 
 import DataModel.AbstractBlock;
-import DataModel.Attribute;
 import DataModel.BilateralBlock;
 import DataModel.EntityProfile;
 import DataModel.UnilateralBlock;
 import Utilities.Converter;
+import Utilities.DataStructures.InvertedIndex;
+import Utilities.Enumerations.IndexBackend;
+import Utilities.RangeTask;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.lucene.analysis.Analyzer;
@@ -57,14 +62,20 @@ import org.apache.lucene.util.BytesRef;
  */
 public abstract class AbstractBlockBuilding implements IBlockBuilding {
 
+    private final static int MIN_PARTITION_SIZE = 1000;
     private static final Logger LOGGER = Logger.getLogger(AbstractBlockBuilding.class.getName());
 
+    protected boolean cleanCleanER;
+    protected int noOfThreads;
     protected double noOfEntitiesD1;
     protected double noOfEntitiesD2;
 
     protected final List<AbstractBlock> blocks;
     protected Directory indexDirectoryD1;
     protected Directory indexDirectoryD2;
+    protected IndexBackend indexBackend;
+    protected InvertedIndex invertedIndexD1;
+    protected InvertedIndex invertedIndexD2;
     protected List<EntityProfile> entityProfilesD1;
     protected List<EntityProfile> entityProfilesD2;
 
@@ -72,9 +83,19 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
         blocks = new ArrayList<>();
         entityProfilesD1 = null;
         entityProfilesD2 = null;
+        indexBackend = IndexBackend.LUCENE;
+        noOfThreads = 1;
     }
 
     protected void buildBlocks() {
+        if (indexBackend == IndexBackend.IN_MEMORY) {
+            invertedIndexD1 = indexEntities(entityProfilesD1);
+            if (entityProfilesD2 != null) {
+                invertedIndexD2 = indexEntities(entityProfilesD2);
+            }
+            return;
+        }
+
         setMemoryDirectory();
         
         IndexWriter iWriter1 = openWriter(indexDirectoryD1);
@@ -106,6 +127,20 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
 
     protected abstract Set<String> getBlockingKeys(String attributeValue);
 
+    // returns the distinct, trimmed blocking keys of all attribute values of the given entity
+    protected Set<String> getBlockingKeys(EntityProfile profile) {
+        final Set<String> keys = new HashSet<>();
+        profile.forEachAttribute((name, value) -> {
+            for (String key : getBlockingKeys(value)) {
+                String trimmedKey = key.trim();
+                if (0 < trimmedKey.length()) {
+                    keys.add(trimmedKey);
+                }
+            }
+        });
+        return keys;
+    }
+
     @Override
     public List<AbstractBlock> getBlocks(List<EntityProfile> profiles) {
         return this.getBlocks(profiles, null);
@@ -122,17 +157,53 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
 
         entityProfilesD1 = profilesD1;
         noOfEntitiesD1 = entityProfilesD1.size();
+        cleanCleanER = profilesD2 != null;
         if (profilesD2 != null) {
             entityProfilesD2 = profilesD2;
             noOfEntitiesD2 = entityProfilesD2.size();
         }
 
         buildBlocks();
-        return readBlocks();
+        return postProcessBlocks(readBlocks());
+    }
+
+    /**
+     * Builds the blocks while the entity profiles are being emitted, e.g., by
+     * AbstractEntityReader.getEntityProfileIterator(), without retaining the 
+     * profiles. The entity ids follow the order of the iterators. The Lucene 
+     * index backend and the methods that rely on it need the complete profile 
+     * lists, which are collected from the iterators in that case. The blocks 
+     * are post-processed exactly as those of the profile lists, and any failure
+     * of the iterators is propagated to the caller.
+     */
+    @Override
+    public List<AbstractBlock> getBlocks(Iterator<EntityProfile> profilesD1,
+            Iterator<EntityProfile> profilesD2) {
+        if (profilesD1 == null) {
+            LOGGER.log(Level.SEVERE, "First iterator of entity profiles is null! "
+                    + "The first argument should always contain entities.");
+            return null;
+        }
+
+        if (indexBackend != IndexBackend.IN_MEMORY) {
+            return getBlocks(toList(profilesD1), toList(profilesD2));
+        }
+
+        entityProfilesD1 = null;
+        entityProfilesD2 = null;
+        invertedIndexD1 = new InvertedIndex();
+        noOfEntitiesD1 = indexEntities(profilesD1, invertedIndexD1);
+        cleanCleanER = profilesD2 != null;
+        if (profilesD2 != null) {
+            invertedIndexD2 = new InvertedIndex();
+            noOfEntitiesD2 = indexEntities(profilesD2, invertedIndexD2);
+        }
+        
+        return postProcessBlocks(readBlocks());
     }
 
     public double getBruteForceComparisons() {
-        if (entityProfilesD2 == null) {
+        if (!cleanCleanER) {
             return noOfEntitiesD1 * (noOfEntitiesD1 - 1) / 2;
         }
         return noOfEntitiesD1 * noOfEntitiesD2;
@@ -151,8 +222,16 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
         return documentIds;
     }
     
+    public IndexBackend getIndexBackend() {
+        return indexBackend;
+    }
+
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+    
     public double getTotalNoOfEntities() {
-        if (entityProfilesD2 == null) {
+        if (!cleanCleanER) {
             return noOfEntitiesD1;
         }
         return noOfEntitiesD1 + noOfEntitiesD2;
@@ -164,11 +243,11 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
             for (EntityProfile profile : entities) {
                 Document doc = new Document();
                 doc.add(new StoredField(DOC_ID, counter++));
-                for (Attribute attribute : profile.getAttributes()) {
-                    getBlockingKeys(attribute.getValue()).stream().filter((key) -> (0 < key.trim().length())).forEach((key) -> {
+                profile.forEachAttribute((name, value) -> {
+                    getBlockingKeys(value).stream().filter((key) -> (0 < key.trim().length())).forEach((key) -> {
                         doc.add(new StringField(VALUE_LABEL, key.trim(), Field.Store.YES));
                     });
-                }
+                });
                 index.addDocument(doc);
             }
         } catch (IOException ex) {
@@ -176,6 +255,81 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
         }
     }
 
+    protected InvertedIndex indexEntities(List<EntityProfile> entities) {
+        if (noOfThreads < 2 || entities.size() < 2 * MIN_PARTITION_SIZE) {
+            return indexEntities(entities, 0, entities.size(), 0);
+        }
+
+        int partitionSize = RangeTask.getPartitionSize(entities.size(), noOfThreads, MIN_PARTITION_SIZE);
+        ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        try {
+            return indexEntities(pool, entities, 0, partitionSize);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // indexes the given entities and returns their number, using their position in the iteration as their id;
+    // with multiple threads, the entities are buffered in batches, whose partitions are indexed in parallel
+    protected int indexEntities(Iterator<EntityProfile> entities, InvertedIndex index) {
+        int counter = 0;
+        if (noOfThreads < 2) {
+            while (entities.hasNext()) {
+                indexEntity(entities.next(), counter++, index);
+            }
+            return counter;
+        }
+
+        final int batchSize = 4 * noOfThreads * MIN_PARTITION_SIZE;
+        final List<EntityProfile> batch = new ArrayList<>(batchSize);
+        ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        try {
+            while (entities.hasNext()) {
+                batch.clear();
+                while (batch.size() < batchSize && entities.hasNext()) {
+                    batch.add(entities.next());
+                }
+                index.merge(indexEntities(pool, batch, counter, MIN_PARTITION_SIZE));
+                counter += batch.size();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return counter;
+    }
+
+    // adds the given entity to the postings of all its blocking keys
+    protected void indexEntity(EntityProfile profile, int entityId, InvertedIndex index) {
+        profile.forEachAttribute((name, value) -> {
+            for (String key : getBlockingKeys(value)) {
+                String trimmedKey = key.trim();
+                if (0 < trimmedKey.length()) {
+                    index.addPosting(trimmedKey, entityId);
+                }
+            }
+        });
+    }
+
+    // indexes the partitions of the given entities in parallel and merges their indices in the order of the partitions
+    private InvertedIndex indexEntities(ForkJoinPool pool, List<EntityProfile> entities, int idOffset, int partitionSize) {
+        return RangeTask.invoke(pool, entities.size(), partitionSize,
+                (fromIndex, toIndex) -> indexEntities(entities, fromIndex, toIndex, idOffset),
+                (lowerIndex, upperIndex) -> {
+                    lowerIndex.merge(upperIndex);
+                    return lowerIndex;
+                });
+    }
+
+    // indexes the entities in [fromIndex, toIndex), using their position in the list plus the given offset as their id
+    protected InvertedIndex indexEntities(List<EntityProfile> entities, int fromIndex, int toIndex, int idOffset) {
+        final InvertedIndex index = new InvertedIndex();
+        int counter = idOffset + fromIndex;
+        for (EntityProfile profile : entities.subList(fromIndex, toIndex)) {
+            indexEntity(profile, counter++, index);
+        }
+        return index;
+    }
+
     public static IndexReader openReader(Directory directory) {
         try {
             return DirectoryReader.open(directory);
@@ -291,8 +445,38 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
         }
     }
     
-    //read blocks from Lucene index
+    protected void parseInvertedIndex(InvertedIndex d1Index) {
+        for (String key : d1Index.getSortedKeys(1 < noOfThreads)) {
+            if (d1Index.getDocFrequency(key) < 2) {
+                continue;
+            }
+            blocks.add(new UnilateralBlock(d1Index.getPostings(key)));
+        }
+    }
+
+    protected void parseInvertedIndices(InvertedIndex d1Index, InvertedIndex d2Index) {
+        for (String key : d2Index.getSortedKeys(1 < noOfThreads)) {
+            int[] d1Entities = d1Index.getPostings(key);
+            if (d1Entities == null) {
+                continue;
+            }
+            blocks.add(new BilateralBlock(d1Entities, d2Index.getPostings(key)));
+        }
+    }
+
+    //read blocks from Lucene or in-memory index
     public List<AbstractBlock> readBlocks() {
+        if (indexBackend == IndexBackend.IN_MEMORY) {
+            if (invertedIndexD2 == null) { //Dirty ER
+                parseInvertedIndex(invertedIndexD1);
+            } else {
+                parseInvertedIndices(invertedIndexD1, invertedIndexD2);
+            }
+            invertedIndexD1 = null;
+            invertedIndexD2 = null;
+            return blocks;
+        }
+        
         IndexReader iReaderD1 = openReader(indexDirectoryD1);
         if (entityProfilesD2 == null) { //Dirty ER
             parseIndex(iReaderD1);
@@ -307,10 +491,58 @@ public abstract class AbstractBlockBuilding implements IBlockBuilding {
         return blocks;
     }
 
+    private List<EntityProfile> toList(Iterator<EntityProfile> profiles) {
+        if (profiles == null) {
+            return null;
+        }
+
+        final List<EntityProfile> profilesList = new ArrayList<>();
+        profiles.forEachRemaining(profilesList::add);
+        return profilesList;
+    }
+
+    /**
+     * Applies to the blocks of both the profile lists and the profile iterators 
+     * any processing that depends on the whole block collection, e.g., the 
+     * removal of oversized blocks. By default, the blocks are returned intact.
+     */
+    protected List<AbstractBlock> postProcessBlocks(List<AbstractBlock> blocks) {
+        return blocks;
+    }
+
+    public void setIndexBackend(IndexBackend backend) {
+        indexBackend = backend;
+        LOGGER.log(Level.INFO, "Index backend\t:\t{0}", indexBackend);
+    }
+
+    /**
+     * Sets the number of threads that extract the blocking keys. Every thread
+     * indexes a different partition of the input entities and the partial indices
+     * are merged in the order of the partitions, so the resulting blocks are
+     * identical to those of a single thread. Applies to the in-memory index backend
+     * and to the attribute models of Attribute Clustering Blocking.
+     */
+    public void setNoOfThreads(int threads) {
+        noOfThreads = Math.max(1, threads);
+        LOGGER.log(Level.INFO, "Number of threads\t:\t{0}", noOfThreads);
+    }
+
     protected void setMemoryDirectory() {
         indexDirectoryD1 = new RAMDirectory();
         if (entityProfilesD2 != null) {
             indexDirectoryD2 = new RAMDirectory();
         }
     }
+
+    /**
+     * Returns true if the blocks are formed exclusively by the keys that 
+     * getBlockingKeys() extracts from every entity in isolation, i.e., if they 
+     * do not depend on the rest of the collection, e.g., through sorting, 
+     * purging or the attribute names of other entities. Only then can they be
+     * maintained by IncrementalBlockBuilding.
+     */
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
+
 }
\ No newline at end of file
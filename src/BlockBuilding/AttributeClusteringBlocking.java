@@ -16,9 +16,10 @@
 
 package BlockBuilding;
 
-import DataModel.Attribute;
 import DataModel.EntityProfile;
 import Utilities.TextModels.AbstractModel;
+import Utilities.TextModels.ModelBuilder;
+import Utilities.Enumerations.IndexBackend;
 import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
 import java.io.IOException;
@@ -61,6 +62,7 @@ public class AttributeClusteringBlocking extends StandardBlocking {
     
     public AttributeClusteringBlocking(RepresentationModel md, SimilarityMetric sMetric) {
         super();
+        indexBackend = IndexBackend.LUCENE;
         model = md;
         simMetric = sMetric;
         LOGGER.log(Level.INFO, "Representation model\t:\t{0}", model);
@@ -69,9 +71,10 @@ public class AttributeClusteringBlocking extends StandardBlocking {
 
     @Override
     protected void buildBlocks() {
-        AbstractModel[] attributeModels1 = buildAttributeModels(entityProfilesD1);
+        final ModelBuilder modelBuilder = new ModelBuilder(model, simMetric, noOfThreads);
+        AbstractModel[] attributeModels1 = buildAttributeModels(entityProfilesD1, modelBuilder);
         if (entityProfilesD2 != null) {
-            AbstractModel[] attributeModels2 = buildAttributeModels(entityProfilesD2);
+            AbstractModel[] attributeModels2 = buildAttributeModels(entityProfilesD2, modelBuilder);
             SimpleGraph graph = compareAttributes(attributeModels1, attributeModels2);
             clusterAttributes(attributeModels1, attributeModels2, graph);
         } else {
@@ -92,29 +95,21 @@ public class AttributeClusteringBlocking extends StandardBlocking {
         }
     }
     
-    private AbstractModel[] buildAttributeModels(List<EntityProfile> profiles) {    
+    private AbstractModel[] buildAttributeModels(List<EntityProfile> profiles, ModelBuilder modelBuilder) {    
         final HashMap<String, List<String>> attributeProfiles = new HashMap<>();
         for (EntityProfile entity : profiles) {
-            for (Attribute attribute : entity.getAttributes()) {
-                List<String> values = attributeProfiles.get(attribute.getName());
+            entity.forEachAttribute((name, value) -> {
+                List<String> values = attributeProfiles.get(name);
                 if (values == null) {
                     values = new ArrayList<>();
-                    attributeProfiles.put(attribute.getName(), values);
+                    attributeProfiles.put(name, values);
                 }
-                values.add(attribute.getValue());
-            }
+                values.add(value);
+            });
         }
 
-        int index = 0;
-        AbstractModel[] attributeModels = new AbstractModel[attributeProfiles.size()];
-        for (Entry<String, List<String>> entry : attributeProfiles.entrySet()) {
-            attributeModels[index] = RepresentationModel.getModel(model, simMetric, entry.getKey());
-            for (String value : entry.getValue()) {
-                attributeModels[index].updateModel(value);
-            }
-            index++;
-        }
-        return attributeModels;
+        final List<Entry<String, List<String>>> attributes = new ArrayList<>(attributeProfiles.entrySet());
+        return modelBuilder.buildModels(attributes.size(), i -> modelBuilder.getModel(attributes.get(i).getKey(), attributes.get(i).getValue()));
     }
 
     private void clusterAttributes(AbstractModel[] attributeModels, SimpleGraph graph) {
@@ -241,26 +236,34 @@ public class AttributeClusteringBlocking extends StandardBlocking {
         return namesGraph;
     }
     
+    @Override
+    public void setIndexBackend(IndexBackend backend) {
+        if (backend != IndexBackend.LUCENE) {
+            LOGGER.log(Level.WARNING, "{0} relies on the Lucene index. Ignoring index backend\t:\t{1}", 
+                    new Object[]{getClass().getSimpleName(), backend});
+        }
+    }
+    
     protected void indexEntities(int sourceId, IndexWriter index, List<EntityProfile> entities) {
         try {
             int counter = 0;
             for (EntityProfile profile : entities) {
                 Document doc = new Document();
                 doc.add(new StoredField(DOC_ID, counter++));
-                for (Attribute attribute : profile.getAttributes()) {
-                    Integer clusterId = attributeClusters[sourceId].get(attribute.getName());
+                profile.forEachAttribute((name, value) -> {
+                    Integer clusterId = attributeClusters[sourceId].get(name);
                     if (clusterId == null) {
                         LOGGER.log(Level.WARNING, "No cluster id found for attribute name\t:\t{0}"
-                                + ".\nCorresponding attribute value\t:\t{1}", new Object[]{attribute.getName(), attribute.getValue()});
-                        continue;
+                                + ".\nCorresponding attribute value\t:\t{1}", new Object[]{name, value});
+                        return;
                     }
                     String clusterSuffix = CLUSTER_PREFIX + clusterId + CLUSTER_SUFFIX;
-                    for (String token : getTokens(attribute.getValue())) {
+                    for (String token : getTokens(value)) {
                         if (0 < token.trim().length()) {
                             doc.add(new StringField(VALUE_LABEL, token.trim() + clusterSuffix, Field.Store.YES));
                         }
                     }
-                }
+                });
 
                 index.addDocument(doc);
             }
@@ -281,4 +284,10 @@ public class AttributeClusteringBlocking extends StandardBlocking {
                 + "model, the representation model that aggregates the values corresponding to every attribute name.\n"
                 + "It also determines the similarity measure for comparing the representations of two attribute names.";
     }
+    
+    // the attribute clusters are formed by the values of all entities
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
 }
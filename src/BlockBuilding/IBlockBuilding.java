@@ -18,6 +18,7 @@ package BlockBuilding;
 
 import DataModel.AbstractBlock;
 import DataModel.EntityProfile;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -34,6 +35,8 @@ public interface IBlockBuilding {
     
     public List<AbstractBlock> getBlocks(List<EntityProfile> profilesD1, List<EntityProfile> profilesD2);
     
+    public List<AbstractBlock> getBlocks(Iterator<EntityProfile> profilesD1, Iterator<EntityProfile> profilesD2);
+    
     public String getMethodInfo();
     
     public String getMethodParameters();
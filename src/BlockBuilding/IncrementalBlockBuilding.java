@@ -0,0 +1,268 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package BlockBuilding;
+
+import DataModel.AbstractBlock;
+import DataModel.BilateralBlock;
+import DataModel.EntityProfile;
+import DataModel.UnilateralBlock;
+import Utilities.DataStructures.InvertedIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the blocks of a growing entity collection. The blocking keys of
+ * every entity are extracted by the given block building method and kept in
+ * a persistent inverted index, so that every batch of new or updated entity
+ * profiles only touches the postings of its own keys. Each batch returns the 
+ * delta blocks, i.e., the current contents of all blocks whose membership
+ * changed, while getBlocks() returns the complete block collection, which is
+ * identical to that of the in-memory backend of the block building method 
+ * over all current profiles. Every block keeps the same block index across
+ * batches, so that incremental meta-blocking can replace its previous contents.
+ * 
+ * Entities are identified by their URL: a profile with a known URL replaces
+ * the previous one and keeps its id, while new URLs receive the next id of
+ * their dataset. The block building method should derive its keys from every
+ * entity in isolation, as indicated by supportsIncrementalBuilding(): Standard,
+ * (Extended) Q-Grams and MinHash Blocking with NO_MAXIMUM_BLOCK_SIZE are 
+ * supported, whereas (Extended) Suffix Arrays, (Extended) Sorted Neighborhood, 
+ * Attribute Clustering and Neighbor Blocking are rejected, as their blocks 
+ * depend on the entire collection.
+ *
+ * @author gap2
+ */
+
+public class IncrementalBlockBuilding {
+
+    private static final Logger LOGGER = Logger.getLogger(IncrementalBlockBuilding.class.getName());
+
+    protected final boolean cleanCleanER;
+    
+    protected final AbstractBlockBuilding blockBuilding;
+    protected int[] updatedEntitiesD1;
+    protected int[] updatedEntitiesD2;
+    protected final InvertedIndex indexD1;
+    protected final InvertedIndex indexD2;
+    protected final List<EntityProfile> profilesD1;
+    protected final List<EntityProfile> profilesD2;
+    protected final List<Set<String>> entityKeysD1;
+    protected final List<Set<String>> entityKeysD2;
+    protected final Map<String, Integer> blockIds;
+    protected final Map<String, Integer> entityIdsD1;
+    protected final Map<String, Integer> entityIdsD2;
+
+    /**
+     * @throws IllegalArgumentException if the blocks of the given method depend
+     * on the entire entity collection
+     */
+    public IncrementalBlockBuilding(AbstractBlockBuilding blockBuilding, boolean cleanCleanER) {
+        if (!blockBuilding.supportsIncrementalBuilding()) {
+            throw new IllegalArgumentException(blockBuilding.getClass().getSimpleName() 
+                    + " depends on the entire entity collection and cannot be applied incrementally!");
+        }
+        
+        this.blockBuilding = blockBuilding;
+        this.cleanCleanER = cleanCleanER;
+        LOGGER.log(Level.INFO, "Incremental {0}", blockBuilding.getClass().getSimpleName());
+        LOGGER.log(Level.INFO, "Clean-clean ER\t:\t{0}", cleanCleanER);
+
+        blockIds = new HashMap<>();
+        indexD1 = new InvertedIndex();
+        profilesD1 = new ArrayList<>();
+        entityKeysD1 = new ArrayList<>();
+        entityIdsD1 = new HashMap<>();
+        updatedEntitiesD1 = new int[0];
+        if (cleanCleanER) {
+            indexD2 = new InvertedIndex();
+            profilesD2 = new ArrayList<>();
+            entityKeysD2 = new ArrayList<>();
+            entityIdsD2 = new HashMap<>();
+        } else {
+            indexD2 = null;
+            profilesD2 = null;
+            entityKeysD2 = null;
+            entityIdsD2 = null;
+        }
+        updatedEntitiesD2 = new int[0];
+    }
+
+    public List<AbstractBlock> addProfiles(List<EntityProfile> newProfiles) {
+        return addProfiles(newProfiles, null);
+    }
+
+    /**
+     * Adds the given batches of new or updated profiles and returns the delta
+     * blocks. Blocks that no longer entail any comparison due to updated
+     * profiles are part of the delta blocks with their remaining entities, if
+     * any, so that incremental meta-blocking drops them; the entities that lost
+     * them are included in the updated entities of the batch, too.
+     */
+    public List<AbstractBlock> addProfiles(List<EntityProfile> newProfilesD1, List<EntityProfile> newProfilesD2) {
+        if (!cleanCleanER && newProfilesD2 != null) {
+            LOGGER.log(Level.SEVERE, "Profiles of a second dataset were given for Dirty ER!");
+            return null;
+        }
+
+        final Set<String> changedKeys = new HashSet<>();
+        updatedEntitiesD1 = updateIndex(newProfilesD1, profilesD1, entityIdsD1, entityKeysD1, indexD1, changedKeys);
+        if (cleanCleanER) {
+            updatedEntitiesD2 = updateIndex(newProfilesD2, profilesD2, entityIdsD2, entityKeysD2, indexD2, changedKeys);
+        }
+
+        String[] sortedKeys = changedKeys.toArray(new String[changedKeys.size()]);
+        Arrays.sort(sortedKeys, InvertedIndex::compareCodePoints);
+        final List<AbstractBlock> deltaBlocks = getBlocks(sortedKeys, true);
+        LOGGER.log(Level.INFO, "Updated entities\t:\t{0}", updatedEntitiesD1.length + updatedEntitiesD2.length);
+        LOGGER.log(Level.INFO, "Delta blocks\t:\t{0}", deltaBlocks.size());
+        return deltaBlocks;
+    }
+
+    public List<AbstractBlock> getBlocks() {
+        if (cleanCleanER) {
+            return getBlocks(indexD2.getSortedKeys(), false);
+        }
+        return getBlocks(indexD1.getSortedKeys(), false);
+    }
+
+    // the postings are copied, because the index keeps updating them
+    private List<AbstractBlock> getBlocks(String[] sortedKeys, boolean deltaBlocks) {
+        final List<AbstractBlock> blocks = new ArrayList<>();
+        for (String key : sortedKeys) {
+            int[] d1Entities = getPostings(indexD1, key);
+            int[] d2Entities = cleanCleanER ? getPostings(indexD2, key) : null;
+            boolean hasComparisons = cleanCleanER ? 0 < d1Entities.length && 0 < d2Entities.length : 1 < d1Entities.length;
+            if (!hasComparisons && !(deltaBlocks && blockIds.containsKey(key))) {
+                continue;
+            }
+
+            AbstractBlock block;
+            if (cleanCleanER) {
+                block = new BilateralBlock(Arrays.copyOf(d1Entities, d1Entities.length),
+                        Arrays.copyOf(d2Entities, d2Entities.length));
+            } else {
+                block = new UnilateralBlock(Arrays.copyOf(d1Entities, d1Entities.length));
+            }
+            block.setBlockIndex(blockIds.computeIfAbsent(key, newKey -> blockIds.size()));
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    public int getNoOfEntitiesD1() {
+        return profilesD1.size();
+    }
+
+    public int getNoOfEntitiesD2() {
+        if (!cleanCleanER) {
+            return 0;
+        }
+        return profilesD2.size();
+    }
+
+    private int[] getPostings(InvertedIndex index, String key) {
+        final int[] postings = index.getPostings(key);
+        if (postings == null) {
+            return new int[0];
+        }
+        return postings;
+    }
+
+    /**
+     * Returns the current profiles of the first dataset in the order of their
+     * ids, i.e., the profiles that correspond to the entity ids of the blocks.
+     */
+    public List<EntityProfile> getProfilesD1() {
+        return Collections.unmodifiableList(profilesD1);
+    }
+
+    public List<EntityProfile> getProfilesD2() {
+        if (!cleanCleanER) {
+            return null;
+        }
+        return Collections.unmodifiableList(profilesD2);
+    }
+
+    // returns the ascending ids of the entities of the first dataset that were added or updated by the last batch
+    public int[] getUpdatedEntitiesD1() {
+        return updatedEntitiesD1;
+    }
+
+    public int[] getUpdatedEntitiesD2() {
+        return updatedEntitiesD2;
+    }
+
+    public boolean isCleanCleanER() {
+        return cleanCleanER;
+    }
+
+    private int[] updateIndex(List<EntityProfile> newProfiles, List<EntityProfile> profiles,
+            Map<String, Integer> entityIds, List<Set<String>> entityKeys,
+            InvertedIndex index, Set<String> changedKeys) {
+        if (newProfiles == null) {
+            return new int[0];
+        }
+
+        final TreeSet<Integer> updatedEntities = new TreeSet<>();
+        for (EntityProfile profile : newProfiles) {
+            final Set<String> newKeys = blockBuilding.getBlockingKeys(profile);
+            Integer entityId = entityIds.get(profile.getEntityUrl());
+            if (entityId == null) {
+                entityId = profiles.size();
+                entityIds.put(profile.getEntityUrl(), entityId);
+                profiles.add(profile);
+                entityKeys.add(newKeys);
+                for (String key : newKeys) {
+                    index.insertPosting(key, entityId);
+                    changedKeys.add(key);
+                }
+            } else {
+                profiles.set(entityId, profile);
+                final Set<String> oldKeys = entityKeys.set(entityId, newKeys);
+                for (String key : oldKeys) {
+                    if (!newKeys.contains(key)) {
+                        index.removePosting(key, entityId);
+                        changedKeys.add(key);
+                    }
+                }
+                for (String key : newKeys) {
+                    if (!oldKeys.contains(key)) {
+                        index.insertPosting(key, entityId);
+                        changedKeys.add(key);
+                    }
+                }
+            }
+            updatedEntities.add(entityId);
+        }
+
+        int counter = 0;
+        final int[] updatedIds = new int[updatedEntities.size()];
+        for (int entityId : updatedEntities) {
+            updatedIds[counter++] = entityId;
+        }
+        return updatedIds;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package BlockBuilding;
+
+import DataModel.AbstractBlock;
+import DataModel.EntityProfile;
+import Utilities.DataStructures.InvertedIndex;
+import Utilities.Enumerations.IndexBackend;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+
+/**
+ * Locality-sensitive hashing of the token sets of entire entity profiles. 
+ * Every entity is summarized by bands x rows MinHash values and every band
+ * yields one blocking key, i.e., one block per distinct combination of the
+ * MinHash values in a band. Two entities share a block with probability
+ * 1-(1-s^rows)^bands, where s is the Jaccard similarity of their token sets,
+ * so the size of the blocks is controlled by the number of rows rather than
+ * by the frequency of individual tokens. Every entity is placed in at most 
+ * bands blocks and the cost is linear in the number of tokens.
+ * 
+ * This guarantee holds for the blocks as they are built. As no block cleaning
+ * is applied afterwards, the blocks with more than a maximum number of entities
+ * are purged, e.g., those of many profiles with the same few tokens; by default,
+ * a block may contain up to 1,000 entities, i.e., ~500,000 comparisons. The
+ * pairs that co-occur only in purged blocks are missed, so the expected recall
+ * drops below 1-(1-s^rows)^bands only for entities whose bands are shared by
+ * more than maxSize others, typically near-duplicate templates or profiles with
+ * very few tokens. NO_MAXIMUM_BLOCK_SIZE retains all blocks, as required for
+ * incremental block building. Block Filtering, which removes every entity from
+ * its largest blocks, breaks the guarantee for all entities, thus it is not
+ * applied by default.
+ *
+ * @author gap2
+ */
+
+public class MinHashBlocking extends StandardBlocking {
+
+    private final static int DEFAULT_BANDS = 32;
+    private final static int DEFAULT_ROWS = 3;
+    private final static int DEFAULT_MAXIMUM_BLOCK_SIZE = 1000;
+    public final static int NO_MAXIMUM_BLOCK_SIZE = Integer.MAX_VALUE;
+    private final static long SEED = 1234567L;
+    private static final Logger LOGGER = Logger.getLogger(MinHashBlocking.class.getName());
+
+    protected final int bands;
+    protected final int maximumBlockSize;
+    protected final int rows;
+    protected final long[] hashMultipliers;
+    protected final long[] hashOffsets;
+
+    public MinHashBlocking() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS);
+        LOGGER.log(Level.INFO, "Using default configuration for MinHash Blocking.");
+    }
+
+    public MinHashBlocking(int bands, int rows) {
+        this(bands, rows, DEFAULT_MAXIMUM_BLOCK_SIZE);
+    }
+
+    public MinHashBlocking(int bands, int rows, int maxSize) {
+        super();
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("The number of bands and rows should be positive!");
+        }
+        if (maxSize < 2) {
+            throw new IllegalArgumentException("The maximum block size should be at least 2!");
+        }
+
+        this.bands = bands;
+        this.rows = rows;
+        maximumBlockSize = maxSize;
+        LOGGER.log(Level.INFO, "Bands\t:\t{0}", bands);
+        LOGGER.log(Level.INFO, "Rows\t:\t{0}", rows);
+        LOGGER.log(Level.INFO, "Maximum block size\t:\t{0}", maximumBlockSize);
+
+        // one random multiply-shift hash function per MinHash value
+        final Random random = new Random(SEED);
+        hashMultipliers = new long[bands * rows];
+        hashOffsets = new long[bands * rows];
+        for (int i = 0; i < hashMultipliers.length; i++) {
+            hashMultipliers[i] = random.nextLong() | 1L;
+            hashOffsets[i] = random.nextLong();
+        }
+    }
+
+    @Override
+    protected Set<String> getBlockingKeys(String attributeValue) {
+        final long[] signature = getEmptySignature();
+        updateSignature(attributeValue, signature);
+        return new HashSet<>(Arrays.asList(getBandKeys(signature)));
+    }
+
+    /**
+     * Returns one blocking key per band for the tokens of all attribute values of
+     * the given entity, or an empty set, if the entity has no tokens.
+     */
+    @Override
+    protected Set<String> getBlockingKeys(EntityProfile profile) {
+        final long[] signature = getEmptySignature();
+        profile.forEachAttribute((name, value) -> updateSignature(value, signature));
+
+        // the MinHash values are shifted to be non-negative, so they practically never remain Long.MAX_VALUE for any token
+        if (signature[0] == Long.MAX_VALUE) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(Arrays.asList(getBandKeys(signature)));
+    }
+
+    private String[] getBandKeys(long[] signature) {
+        final String[] keys = new String[bands];
+        for (int band = 0; band < bands; band++) {
+            long bandHash = band;
+            for (int row = 0; row < rows; row++) {
+                bandHash = bandHash * 0x9E3779B97F4A7C15L + signature[band * rows + row];
+            }
+            keys[band] = band + "_" + Long.toHexString(mix(bandHash));
+        }
+        return keys;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getMaximumBlockSize() {
+        return maximumBlockSize;
+    }
+
+    private long[] getEmptySignature() {
+        final long[] signature = new long[bands * rows];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        return signature;
+    }
+
+    @Override
+    public String getMethodInfo() {
+        return "MinHash Blocking: it creates one block for every band of MinHash values that is shared by at least two entities.\n"
+                + "The MinHash values are derived from the tokens in all attribute values of every entity.";
+    }
+
+    @Override
+    public String getMethodParameters() {
+        return "MinHash Blocking involves three parameters:\n"
+                + "1) bands, the number of blocking keys per entity. Default value: " + DEFAULT_BANDS + ".\n"
+                + "2) rows, the number of MinHash values that form every blocking key. Default value: " + DEFAULT_ROWS + ".\n"
+                + "More bands raise recall, while more rows raise precision and reduce the size of blocks.\n"
+                + "3) maxSize, the maximum number of entities in a block; larger blocks are discarded. Default value: " + DEFAULT_MAXIMUM_BLOCK_SIZE + ".\n"
+                + "A lower maxSize bounds the cost of comparisons, but misses the duplicates that share only oversized blocks.";
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    protected void indexEntities(IndexWriter index, List<EntityProfile> entities) {
+        try {
+            int counter = 0;
+            for (EntityProfile profile : entities) {
+                Document doc = new Document();
+                doc.add(new StoredField(DOC_ID, counter++));
+                for (String key : getBlockingKeys(profile)) {
+                    doc.add(new StringField(VALUE_LABEL, key, Field.Store.YES));
+                }
+                index.addDocument(doc);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+    }
+
+    @Override
+    protected void indexEntity(EntityProfile profile, int entityId, InvertedIndex index) {
+        for (String key : getBlockingKeys(profile)) {
+            index.addPosting(key, entityId);
+        }
+    }
+
+    // unless oversized blocks are purged after all entities have been indexed
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return maximumBlockSize == NO_MAXIMUM_BLOCK_SIZE;
+    }
+
+    @Override
+    protected List<AbstractBlock> postProcessBlocks(List<AbstractBlock> blocks) {
+        if (maximumBlockSize == NO_MAXIMUM_BLOCK_SIZE) {
+            return blocks;
+        }
+        
+        final Iterator<AbstractBlock> blocksIterator = blocks.iterator();
+        while (blocksIterator.hasNext()) {
+            if (maximumBlockSize < blocksIterator.next().getTotalBlockAssignments()) {
+                blocksIterator.remove();
+            }
+        }
+        return blocks;
+    }
+
+    // finalization step of MurmurHash3, which spreads the bits of the token hash codes
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void updateSignature(String attributeValue, long[] signature) {
+        for (String token : getTokens(attributeValue)) {
+            if (token.isEmpty()) {
+                continue;
+            }
+
+            long tokenHash = mix(token.hashCode());
+            for (int i = 0; i < signature.length; i++) {
+                long value = (hashMultipliers[i] * tokenHash + hashOffsets[i]) >>> 1;
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import DataModel.AbstractBlock;
 import DataModel.BilateralBlock;
 import DataModel.UnilateralBlock;
 import Utilities.Converter;
+import Utilities.Enumerations.IndexBackend;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -56,6 +57,7 @@ public class SortedNeighborhoodBlocking extends StandardBlocking {
    
     public SortedNeighborhoodBlocking(int w) {
         super();
+        indexBackend = IndexBackend.LUCENE;
         windowSize = w;
         LOGGER.log(Level.INFO, "Window size\t:\t{0}", windowSize);
     }
@@ -74,6 +76,20 @@ public class SortedNeighborhoodBlocking extends StandardBlocking {
                 + "Default value: 4.";
     }
     
+    // the blocks depend on the position of every entity in the sorted list of all entities
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
+    
+    @Override
+    public void setIndexBackend(IndexBackend backend) {
+        if (backend != IndexBackend.LUCENE) {
+            LOGGER.log(Level.WARNING, "{0} relies on the Lucene index. Ignoring index backend\t:\t{1}", 
+                    new Object[]{getClass().getSimpleName(), backend});
+        }
+    }
+    
     protected Integer[] getSortedEntities(String[] sortedTerms, IndexReader iReader) {
         final List<Integer> sortedEntityIds = new ArrayList<>();
 
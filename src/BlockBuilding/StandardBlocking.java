@@ -16,6 +16,7 @@
 
 package BlockBuilding;
 
+import Utilities.Enumerations.IndexBackend;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -32,6 +33,7 @@ public class StandardBlocking extends AbstractBlockBuilding {
     
     public StandardBlocking() {
         super();
+        indexBackend = IndexBackend.IN_MEMORY;
         LOGGER.log(Level.INFO, "Standard Blocking initiated");
     }
     
@@ -54,4 +56,9 @@ public class StandardBlocking extends AbstractBlockBuilding {
         return "Standard Blocking is a parameter-free method, as it uses unsupervised, schema-agnostic blocking keys:\n"
                 + "every token is a blocking key.";
     }
+
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -18,7 +18,6 @@
 package BlockBuilding;
 
 import DataModel.AbstractBlock;
-import DataModel.EntityProfile;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -50,10 +49,8 @@ public class SuffixArraysBlocking extends StandardBlocking {
         LOGGER.log(Level.INFO, "Minimum suffix length\t:\t{0}", minimumSuffixLength);
     }
 
-     @Override
-    public List<AbstractBlock> getBlocks(List<EntityProfile> profilesD1,
-            List<EntityProfile> profilesD2) {
-        List<AbstractBlock> purgedBlocks = super.getBlocks(profilesD1, profilesD2);
+    @Override
+    protected List<AbstractBlock> postProcessBlocks(List<AbstractBlock> purgedBlocks) {
         Iterator<AbstractBlock> blocksIterator = purgedBlocks.iterator();
         while (blocksIterator.hasNext()) {
             AbstractBlock block = (AbstractBlock) blocksIterator.next();
@@ -87,6 +84,12 @@ public class SuffixArraysBlocking extends StandardBlocking {
                 + "Defaule value: 53.";
     }
     
+    // oversized blocks are purged after all entities have been indexed
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
+    
     public Set<String> getSuffixes(int minimumLength, String blockingKey) {
         final Set<String> suffixes = new HashSet<>();
         if (blockingKey.length() < minimumLength) {
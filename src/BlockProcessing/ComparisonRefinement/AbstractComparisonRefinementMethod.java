@@ -21,12 +21,16 @@ import DataModel.AbstractBlock;
 import DataModel.BilateralBlock;
 import DataModel.DecomposedBlock;
 import DataModel.UnilateralBlock;
+import Utilities.DataStructures.CompactEntityIndex;
 import Utilities.DataStructures.EntityIndex;
 import Utilities.Converter;
+import Utilities.Enumerations.EntityIndexLayout;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
@@ -35,19 +39,25 @@ import java.util.Set;
 
 public abstract class AbstractComparisonRefinementMethod implements IBlockProcessing {
 
+    private static final Logger LOGGER = Logger.getLogger(AbstractComparisonRefinementMethod.class.getName());
+    
     protected boolean cleanCleanER;
 
     protected int datasetLimit;
     protected int noOfBlocks;
     protected int noOfEntities;
+    protected int noOfThreads;
 
     protected EntityIndex entityIndex;
+    protected EntityIndexLayout entityIndexLayout;
     protected BilateralBlock[] bBlocks;
     protected final Set<Integer> validEntities;
     protected UnilateralBlock[] uBlocks;
 
     public AbstractComparisonRefinementMethod() {
         validEntities = new HashSet<>();
+        entityIndexLayout = EntityIndexLayout.NESTED_ARRAYS;
+        noOfThreads = 1;
     }
 
     protected void addDecomposedBlock(int entityId, Collection<Integer> neighbors, List<AbstractBlock> newBlocks) {
@@ -73,18 +83,34 @@ public abstract class AbstractComparisonRefinementMethod implements IBlockProces
     }
     
     protected abstract List<AbstractBlock> applyMainProcessing();
+    
+    protected EntityIndex buildEntityIndex(List<AbstractBlock> blocks) {
+        switch (entityIndexLayout) {
+            case CSR:
+                return new CompactEntityIndex(blocks, false, noOfThreads);
+            case COMPRESSED_CSR:
+                return new CompactEntityIndex(blocks, true, noOfThreads);
+            default:
+                return new EntityIndex(blocks);
+        }
+    }
+    
+    public EntityIndexLayout getEntityIndexLayout() {
+        return entityIndexLayout;
+    }
+    
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+
+    // builds the entity index of the given blocks and sets the corresponding statistics
+    protected void indexBlocks(List<AbstractBlock> blocks) {
+        setEntityIndex(buildEntityIndex(blocks));
+    }
 
     @Override
     public List<AbstractBlock> refineBlocks(List<AbstractBlock> blocks) {
-        entityIndex = new EntityIndex(blocks);
-        
-        cleanCleanER = entityIndex.isCleanCleanER();
-        datasetLimit = entityIndex.getDatasetLimit();
-        noOfBlocks = blocks.size();
-        noOfEntities = entityIndex.getNoOfEntities();
-        bBlocks = entityIndex.getBilateralBlocks();
-        uBlocks = entityIndex.getUnilateralBlocks();
-
+        indexBlocks(blocks);
         return applyMainProcessing();
     }
     
@@ -96,4 +122,30 @@ public abstract class AbstractComparisonRefinementMethod implements IBlockProces
         }
         return array;
     }
+
+    // sets the statistics of the given entity index, which may also be updated incrementally
+    protected void setEntityIndex(EntityIndex index) {
+        entityIndex = index;
+        
+        cleanCleanER = entityIndex.isCleanCleanER();
+        datasetLimit = entityIndex.getDatasetLimit();
+        noOfBlocks = entityIndex.getNoOfBlocks();
+        noOfEntities = entityIndex.getNoOfEntities();
+        bBlocks = entityIndex.getBilateralBlocks();
+        uBlocks = entityIndex.getUnilateralBlocks();
+    }
+    
+    public void setEntityIndexLayout(EntityIndexLayout layout) {
+        entityIndexLayout = layout;
+        LOGGER.log(Level.INFO, "Entity index layout\t:\t{0}", entityIndexLayout);
+    }
+    
+    /**
+     * Sets the number of threads that build a compact entity index and, in the
+     * methods that support it, process the entities of the blocking graph.
+     */
+    public void setNoOfThreads(int threads) {
+        noOfThreads = Math.max(1, threads);
+        LOGGER.log(Level.INFO, "Number of threads\t:\t{0}", noOfThreads);
+    }
 }
@@ -18,6 +18,7 @@ import DataModel.AbstractBlock;
 import DataModel.BilateralBlock;
 import DataModel.Comparison;
 import DataModel.UnilateralBlock;
+import Utilities.DataStructures.BlockArena;
 import Utilities.Enumerations.WeightingScheme;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -41,6 +42,7 @@ public abstract class AbstractMetablocking extends AbstractComparisonRefinementM
     protected double[] counters;
     protected double[] totalWeights; //used for WJS
 
+    private BlockArena blockArena;
     protected final List<Integer> neighbors;
     protected final List<Integer> retainedNeighbors;
     protected WeightingScheme weightingScheme;
@@ -58,11 +60,27 @@ public abstract class AbstractMetablocking extends AbstractComparisonRefinementM
 
     @Override
     protected List<AbstractBlock> applyMainProcessing() {
+        setBlockingGraph();
+        if (weightingScheme != null) {            
+            if (weightingScheme.equals(WeightingScheme.EJS)) {
+                setStatistics();
+            } else if (weightingScheme.equals(WeightingScheme.WJS)) {
+                setWjsStatistics();
+            }
+        }
+
+        setThreshold();
+        return pruneEdges();
+    }
+
+    // initializes the structures that enumerate the neighbors of every entity in the blocking graph
+    protected void setBlockingGraph() {
         counters = new double[noOfEntities];
         flags = new int[noOfEntities];
         for (int i = 0; i < noOfEntities; i++) {
             flags[i] = -1;
         }
+        blockArena = null;
 
         blockAssignments = 0;
         if (cleanCleanER) {
@@ -74,26 +92,29 @@ public abstract class AbstractMetablocking extends AbstractComparisonRefinementM
                 blockAssignments += uBlock.getTotalBlockAssignments();
             }
         }
-
-        if (weightingScheme != null) {            
-            if (weightingScheme.equals(WeightingScheme.EJS)) {
-                setStatistics();
-            } else if (weightingScheme.equals(WeightingScheme.WJS)) {
-                setWjsStatistics();
-            }
-        }
-
-        setThreshold();
-        return pruneEdges();
     }
 
     protected void freeMemory() {
         bBlocks = null;
+        blockArena = null;
         flags = null;
         counters = null;
         uBlocks = null;
     }
     
+    /**
+     * Returns the arena of the current blocks. It is built upon the first call,
+     * so that the methods that do not enumerate the neighbors through it do not 
+     * keep a second copy of the blocks in memory. It is not thread-safe, thus
+     * the parallel methods should call it before distributing the entities.
+     */
+    protected BlockArena getBlockArena() {
+        if (blockArena == null) {
+            blockArena = cleanCleanER ? new BlockArena(bBlocks, datasetLimit) : new BlockArena(uBlocks);
+        }
+        return blockArena;
+    }
+    
     protected Comparison getComparison(int entityId, int neighborId) {
         if (!cleanCleanER) {
             if (entityId < neighborId) {
@@ -121,21 +142,34 @@ public abstract class AbstractMetablocking extends AbstractComparisonRefinementM
         return uBlocks[blockIndex].getEntities();
     }
 
+    // whether the given neighbor is considered when enumerating the block neighbors of the given entity
+    protected boolean isNeighbor(int entityId, int neighborId) {
+        if (cleanCleanER) {
+            return true;
+        }
+        return nodeCentric ? neighborId != entityId : neighborId < entityId;
+    }
+
     protected double getWeight(int entityId, int neighborId) {
+        return getWeight(entityId, neighborId, counters);
+    }
+
+    // computes the weight from the given counters, so that every thread can use its own
+    protected double getWeight(int entityId, int neighborId, double[] entityCounters) {
         switch (weightingScheme) {
             case ARCS:
-                return counters[neighborId];
+                return entityCounters[neighborId];
             case CBS:
-                return counters[neighborId];
+                return entityCounters[neighborId];
             case ECBS:
-                return counters[neighborId] * Math.log10(noOfBlocks / entityIndex.getNoOfEntityBlocks(entityId, 0)) * Math.log10(noOfBlocks / entityIndex.getNoOfEntityBlocks(neighborId, 0));
+                return entityCounters[neighborId] * Math.log10(noOfBlocks / entityIndex.getNoOfEntityBlocks(entityId, 0)) * Math.log10(noOfBlocks / entityIndex.getNoOfEntityBlocks(neighborId, 0));
             case JS:
-                return counters[neighborId] / (entityIndex.getNoOfEntityBlocks(entityId, 0) + entityIndex.getNoOfEntityBlocks(neighborId, 0) - counters[neighborId]);
+                return entityCounters[neighborId] / (entityIndex.getNoOfEntityBlocks(entityId, 0) + entityIndex.getNoOfEntityBlocks(neighborId, 0) - entityCounters[neighborId]);
             case EJS:
-                double probability = counters[neighborId] / (entityIndex.getNoOfEntityBlocks(entityId, 0) + entityIndex.getNoOfEntityBlocks(neighborId, 0) - counters[neighborId]);
+                double probability = entityCounters[neighborId] / (entityIndex.getNoOfEntityBlocks(entityId, 0) + entityIndex.getNoOfEntityBlocks(neighborId, 0) - entityCounters[neighborId]);
                 return probability * Math.log10(distinctComparisons / comparisonsPerEntity[entityId]) * Math.log10(distinctComparisons / comparisonsPerEntity[neighborId]);
             case WJS:
-                return counters[neighborId] / (Double.MIN_NORMAL + totalWeights[entityId] + totalWeights[neighborId]);
+                return entityCounters[neighborId] / (Double.MIN_NORMAL + totalWeights[entityId] + totalWeights[neighborId]);
         }
         return -1;
     }
@@ -204,15 +238,19 @@ public abstract class AbstractMetablocking extends AbstractComparisonRefinementM
         totalWeights = new double[noOfEntities];
         for (int entityId = 0; entityId < noOfEntities; ++entityId) {            
             totalWeights[entityId] = 0;
-            final int[] associatedBlocks = entityIndex.getEntityBlocks(entityId, 0);                
+            final int[] entityBlocks = entityIndex.getEntityBlocksArray(entityId, 0);
+            final int blocksStart = entityIndex.getEntityBlocksOffset(entityId, 0);
+            final int blocksEnd = blocksStart + entityIndex.getNoOfEntityBlocks(entityId, 0);
             if (entityId < datasetLimit) {                                
-                for (int blockId : associatedBlocks) {
+                for (int j = blocksStart; j < blocksEnd; j++) {
+                    int blockId = entityBlocks[j];
                     int df1t = bBlocks[blockId].getIndex1Entities().length; //"document frequency" of token t, defining this block, for D1
                     double weight1 = Math.log10((double)datasetLimit/df1t); //weight_1(t) = IDF_1(t) = log(|D1|/ |df_1(t)|)
                     totalWeights[entityId] += weight1;
                 }
             } else {                                
-                for (int blockId : associatedBlocks) {
+                for (int j = blocksStart; j < blocksEnd; j++) {
+                    int blockId = entityBlocks[j];
                     int df2t = bBlocks[blockId].getIndex2Entities().length;    //"document frequency" of token t, defining this block, for D2
                     double weight2 = Math.log10((double)(noOfEntities-datasetLimit)/df2t); //weight_2(t) = IDF_2(t) = log(|D2|/ |df_2(t)|)
                     totalWeights[entityId] += weight2;
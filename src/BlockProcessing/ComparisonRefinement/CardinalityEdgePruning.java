@@ -18,14 +18,10 @@ package BlockProcessing.ComparisonRefinement;
 
 import DataModel.AbstractBlock;
 import DataModel.Comparison;
-import DataModel.DecomposedBlock;
-import Utilities.Comparators.ComparisonWeightComparator;
+import Utilities.DataStructures.WeightedEdgeHeap;
 import Utilities.Enumerations.WeightingScheme;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Queue;
 
 /**
@@ -37,32 +33,26 @@ public class CardinalityEdgePruning extends WeightedEdgePruning {
 
     protected double minimumWeight;
     protected Queue<Comparison> topKEdges;
+    protected WeightedEdgeHeap edgeHeap;
     
     protected CardinalityEdgePruning(WeightingScheme scheme) {
         super(scheme);
         nodeCentric = false;
     }
 
-    protected void addDecomposedBlock(Collection<Comparison> comparisons, List<AbstractBlock> newBlocks) {
-        if (comparisons.isEmpty()) {
-            return;
+    // creates Comparison objects only for the edges retained in the heap
+    protected void addDecomposedBlock(WeightedEdgeHeap retainedEdges, List<AbstractBlock> newBlocks) {
+        final List<Comparison> comparisons = new ArrayList<>(retainedEdges.size());
+        for (int i = 0; i < retainedEdges.size(); i++) {
+            Comparison comparison = getComparison(retainedEdges.getEntityId1(i), retainedEdges.getEntityId2(i));
+            comparison.setUtilityMeasure(retainedEdges.getWeight(i));
+            comparisons.add(comparison);
         }
-
-        int[] entityIds1 = new int[comparisons.size()];
-        int[] entityIds2 = new int[comparisons.size()];
-        double[] similarities = new double[comparisons.size()];
-        
-        int index = 0;
-        Iterator<Comparison> iterator = comparisons.iterator();
-        while (iterator.hasNext()) {
-            Comparison comparison = iterator.next();
-            entityIds1[index] = comparison.getEntityId1();
-            entityIds2[index] = comparison.getEntityId2();
-            similarities[index] = comparison.getUtilityMeasure();
-            index++;
-        }
-
-        newBlocks.add(new DecomposedBlock(cleanCleanER, similarities, entityIds1, entityIds2));
+        addDecomposedBlock(comparisons, newBlocks);
+    }
+    
+    protected int getHeapSize() {
+        return (int) Math.min(Integer.MAX_VALUE - 1, threshold);
     }
 
     @Override
@@ -80,7 +70,7 @@ public class CardinalityEdgePruning extends WeightedEdgePruning {
     @Override
     protected List<AbstractBlock> pruneEdges() {
         minimumWeight = Double.MIN_VALUE;
-        topKEdges = new PriorityQueue<Comparison>((int) (2 * threshold), new ComparisonWeightComparator());
+        edgeHeap = new WeightedEdgeHeap(getHeapSize());
 
         int limit = cleanCleanER ? datasetLimit : noOfEntities;
         if (weightingScheme.equals(WeightingScheme.ARCS)) {
@@ -96,7 +86,8 @@ public class CardinalityEdgePruning extends WeightedEdgePruning {
         }
 
         List<AbstractBlock> newBlocks = new ArrayList<>();
-        addDecomposedBlock(topKEdges, newBlocks);
+        addDecomposedBlock(edgeHeap, newBlocks);
+        edgeHeap = null;
         return newBlocks;
     }
 
@@ -112,13 +103,9 @@ public class CardinalityEdgePruning extends WeightedEdgePruning {
                 continue;
             }
 
-            Comparison comparison = getComparison(entityId, neighborId);
-            comparison.setUtilityMeasure(weight);
-
-            topKEdges.add(comparison);
-            if (threshold < topKEdges.size()) {
-                Comparison lastComparison = topKEdges.poll();
-                minimumWeight = lastComparison.getUtilityMeasure();
+            edgeHeap.add(entityId, neighborId, weight);
+            if (threshold < edgeHeap.size()) {
+                minimumWeight = edgeHeap.removeMin();
             }
         }
     }
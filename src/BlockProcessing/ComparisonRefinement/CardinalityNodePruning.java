@@ -18,13 +18,11 @@ package BlockProcessing.ComparisonRefinement;
 
 import DataModel.AbstractBlock;
 import DataModel.Comparison;
-import Utilities.Comparators.ComparisonWeightComparator;
+import Utilities.DataStructures.WeightedEdgeHeap;
 import Utilities.Enumerations.WeightingScheme;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Set;
 
 /**
  *
@@ -35,7 +33,10 @@ public class CardinalityNodePruning extends CardinalityEdgePruning {
     
     protected int firstId;
     protected int lastId;
-    protected Set<Comparison>[] nearestEntities;
+    protected double[][] nearestWeights; // aligned with nearestNeighbors
+    protected int[][] nearestNeighbors; // the ascending ids of the top-k neighbors of every entity
+    
+    private IncrementalNodePruning incrementalPruning;
     
     public CardinalityNodePruning(WeightingScheme scheme) {
         super(scheme);
@@ -54,17 +55,21 @@ public class CardinalityNodePruning extends CardinalityEdgePruning {
                 + "the weighting scheme that assigns weights to the edges of the blcoking graph.";
     }
     
-    protected boolean isValidComparison(int entityId, Comparison comparison) {
-        int neighborId = comparison.getEntityId1()==entityId?comparison.getEntityId2():comparison.getEntityId1();
-        if (cleanCleanER && entityId < datasetLimit) {
-            neighborId += datasetLimit;
-        }
-        
-        if (nearestEntities[neighborId] == null) {
+    protected boolean isNearestNeighbor(int entityId, int neighborId) {
+        return 0 <= Arrays.binarySearch(nearestNeighbors[entityId], neighborId);
+    }
+    
+    // whether an edge is retained, given whether it is among the top-k edges of each adjacent entity
+    protected boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2) {
+        return inNeighborhood1 || inNeighborhood2;
+    }
+    
+    protected boolean isValidComparison(int entityId, int neighborId) {
+        if (nearestNeighbors[neighborId] == null) {
             return true;
         }
                 
-        if (nearestEntities[neighborId].contains(comparison)) {
+        if (isNearestNeighbor(neighborId, entityId)) {
             return entityId < neighborId;
         }
 
@@ -73,8 +78,10 @@ public class CardinalityNodePruning extends CardinalityEdgePruning {
 
     @Override
     protected List<AbstractBlock> pruneEdges() {
-        nearestEntities = new Set[noOfEntities];
-        topKEdges = new PriorityQueue<Comparison>((int) (2 * threshold), new ComparisonWeightComparator());
+        incrementalPruning = null; // a refinement from scratch overwrites the retained neighbors
+        nearestNeighbors = new int[noOfEntities][];
+        nearestWeights = new double[noOfEntities][];
+        edgeHeap = new WeightedEdgeHeap(getHeapSize());
         if (weightingScheme.equals(WeightingScheme.ARCS)) {
             for (int i = 0; i < noOfEntities; i++) {
                 processArcsEntity(i);
@@ -88,16 +95,76 @@ public class CardinalityNodePruning extends CardinalityEdgePruning {
         }
         List<AbstractBlock> newBlocks = new ArrayList<>();
         retainValidComparisons(newBlocks);
+        edgeHeap = null;
         return newBlocks;
     }
     
+    /**
+     * Incremental counterpart of refineBlocks(blocks) for the delta blocks of
+     * every batch of IncrementalBlockBuilding: the entity index is updated only
+     * for the blocks that changed, and the top-k neighbors are recomputed only 
+     * for their entities and the neighbors of these entities, unless the 
+     * cardinality threshold changes. Returns the comparisons retained for the
+     * first time; together with those returned by the previous calls, they
+     * include all comparisons that refineBlocks(blocks) retains from the current
+     * block collection. Supports the CBS, JS and ARCS weighting schemes. 
+     * Refining blocks from scratch starts the incremental refinement anew.
+     * 
+     * @throws UnsupportedOperationException for the ECBS, EJS and WJS 
+     * weighting schemes, as they depend on the entire block collection
+     */
+    public List<AbstractBlock> refineDeltaBlocks(List<AbstractBlock> deltaBlocks) {
+        if (incrementalPruning == null) {
+            incrementalPruning = new IncrementalNodePruning(this) {
+                @Override
+                protected int[][] getNearestNeighbors() {
+                    return nearestNeighbors;
+                }
+
+                @Override
+                protected double[][] getNearestWeights() {
+                    return nearestWeights;
+                }
+
+                @Override
+                protected boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2) {
+                    return CardinalityNodePruning.this.isValidComparison(inNeighborhood1, inNeighborhood2);
+                }
+
+                @Override
+                protected void setNearestNeighbors(int[][] neighbors, double[][] weights) {
+                    nearestNeighbors = neighbors;
+                    nearestWeights = weights;
+                }
+
+                @Override
+                protected boolean setThreshold(int noOfIndexedEntities) {
+                    int previousHeapSize = getHeapSize();
+                    threshold = Math.max(1, blockAssignments / Math.max(1, noOfIndexedEntities));
+                    edgeHeap = new WeightedEdgeHeap(getHeapSize());
+                    return previousHeapSize != getHeapSize();
+                }
+
+                @Override
+                protected void updateNearestNeighbors(int entityId) {
+                    nearestNeighbors[entityId] = null;
+                    nearestWeights[entityId] = null;
+                    verifyValidEntities(entityId);
+                }
+            };
+        }
+        return incrementalPruning.refineBlocks(deltaBlocks);
+    }
+    
     protected void retainValidComparisons(List<AbstractBlock> newBlocks) {
         final List<Comparison> retainedComparisons = new ArrayList<>();
         for (int i = 0; i < noOfEntities; i++) {
-            if (nearestEntities[i] != null) {
+            if (nearestNeighbors[i] != null) {
                 retainedComparisons.clear();
-                for (Comparison comparison : nearestEntities[i]) {
-                    if (isValidComparison(i, comparison)) {
+                for (int j = 0; j < nearestNeighbors[i].length; j++) {
+                    if (isValidComparison(i, nearestNeighbors[i][j])) {
+                        Comparison comparison = getComparison(i, nearestNeighbors[i][j]);
+                        comparison.setUtilityMeasure(nearestWeights[i][j]);
                         retainedComparisons.add(comparison);
                     }
                 }
@@ -122,7 +189,7 @@ public class CardinalityNodePruning extends CardinalityEdgePruning {
             return;
         }
 
-        topKEdges.clear();
+        edgeHeap.clear();
         minimumWeight = Double.MIN_VALUE;
         for (int neighborId : validEntities) {
             double weight = getWeight(entityId, neighborId);
@@ -130,15 +197,27 @@ public class CardinalityNodePruning extends CardinalityEdgePruning {
                 continue;
             }
 
-            Comparison comparison = getComparison(entityId, neighborId);
-            comparison.setUtilityMeasure(weight);
-
-            topKEdges.add(comparison);
-            if (threshold < topKEdges.size()) {
-                Comparison lastComparison = topKEdges.poll();
-                minimumWeight = lastComparison.getUtilityMeasure();
+            edgeHeap.add(entityId, neighborId, weight);
+            if (threshold < edgeHeap.size()) {
+                minimumWeight = edgeHeap.removeMin();
             }
         }
-        nearestEntities[entityId] = new HashSet<Comparison>(topKEdges);
+        setNearestNeighbors(entityId);
+    }
+    
+    // copies the retained edges of the given entity, sorted by neighbor id
+    protected void setNearestNeighbors(int entityId) {
+        final long[] sortedEdges = new long[edgeHeap.size()];
+        for (int i = 0; i < sortedEdges.length; i++) {
+            sortedEdges[i] = ((long) edgeHeap.getEntityId2(i) << 32) | i;
+        }
+        Arrays.sort(sortedEdges);
+        
+        nearestNeighbors[entityId] = new int[sortedEdges.length];
+        nearestWeights[entityId] = new double[sortedEdges.length];
+        for (int i = 0; i < sortedEdges.length; i++) {
+            nearestNeighbors[entityId][i] = (int) (sortedEdges[i] >>> 32);
+            nearestWeights[entityId][i] = edgeHeap.getWeight((int) sortedEdges[i]);
+        }
     }
 }
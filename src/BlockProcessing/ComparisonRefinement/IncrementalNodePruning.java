@@ -0,0 +1,247 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package BlockProcessing.ComparisonRefinement;
+
+import DataModel.AbstractBlock;
+import DataModel.Comparison;
+import Utilities.Enumerations.WeightingScheme;
+import Utilities.DataStructures.IncrementalEntityIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The incremental refinement of the node-centric pruning methods over the
+ * delta blocks of IncrementalBlockBuilding. It keeps an entity index that is
+ * updated with every batch and recomputes the retained neighbors only of the
+ * entities in the delta blocks, as the CBS and ARCS weights of all other edges
+ * remain the same. JS additionally recomputes the neighbors of the entities
+ * whose number of blocks changed. The retained neighbors of every entity are
+ * kept by the pruning method, which implements the abstract methods.
+ *
+ * @author gap2
+ */
+
+abstract class IncrementalNodePruning {
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private int[] flags;
+    private double[] counters;
+
+    private final IncrementalEntityIndex entityIndex;
+    private final WeightedEdgePruning pruningMethod;
+
+    IncrementalNodePruning(WeightedEdgePruning pruningMethod) {
+        this.pruningMethod = pruningMethod;
+        entityIndex = new IncrementalEntityIndex();
+        counters = new double[0];
+        flags = new int[0];
+    }
+
+    // the ascending ids of the retained neighbors of every entity, or null for the entities without any
+    protected abstract int[][] getNearestNeighbors();
+
+    // the weights of the retained neighbors, aligned with getNearestNeighbors()
+    protected abstract double[][] getNearestWeights();
+
+    private static boolean contains(int[] neighbors, int neighborId) {
+        return neighbors != null && 0 <= Arrays.binarySearch(neighbors, neighborId);
+    }
+
+    // the comparisons that are retained now, but were not retained before the recomputed neighbors
+    private List<AbstractBlock> getNewComparisons(Map<Integer, int[]> previousNeighbors) {
+        final int[][] nearestNeighbors = getNearestNeighbors();
+        final double[][] nearestWeights = getNearestWeights();
+        final List<AbstractBlock> newBlocks = new ArrayList<>();
+        final List<Comparison> newComparisons = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : previousNeighbors.entrySet()) {
+            final int entityId = entry.getKey();
+            final int[] previous = entry.getValue();
+            final int[] current = nearestNeighbors[entityId] == null ? NO_NEIGHBORS : nearestNeighbors[entityId];
+
+            // the edges retained by the entity before or now are merged in ascending neighbor order
+            newComparisons.clear();
+            int i = 0, j = 0;
+            while (i < previous.length || j < current.length) {
+                int neighborId;
+                if (j == current.length || (i < previous.length && previous[i] < current[j])) {
+                    neighborId = previous[i++];
+                } else if (i == previous.length || current[j] < previous[i]) {
+                    neighborId = current[j++];
+                } else {
+                    neighborId = previous[i++];
+                    j++;
+                }
+
+                boolean wasRetained = contains(previous, neighborId);
+                boolean isRetained = contains(current, neighborId);
+                boolean recomputedNeighbor = previousNeighbors.containsKey(neighborId);
+                int[] neighborPrevious = recomputedNeighbor ? previousNeighbors.get(neighborId) : nearestNeighbors[neighborId];
+                boolean wasRetainedByNeighbor = contains(neighborPrevious, entityId);
+                boolean isRetainedByNeighbor = contains(nearestNeighbors[neighborId], entityId);
+                if (recomputedNeighbor && neighborId < entityId && (wasRetainedByNeighbor || isRetainedByNeighbor)) {
+                    continue; // the edge is examined by the neighbor
+                }
+
+                if (isValidComparison(isRetained, isRetainedByNeighbor)
+                        && !isValidComparison(wasRetained, wasRetainedByNeighbor)) {
+                    Comparison comparison = pruningMethod.getComparison(entityId, neighborId);
+                    if (isRetained) {
+                        comparison.setUtilityMeasure(nearestWeights[entityId][j - 1]);
+                    } else {
+                        int index = Arrays.binarySearch(nearestNeighbors[neighborId], entityId);
+                        comparison.setUtilityMeasure(nearestWeights[neighborId][index]);
+                    }
+                    newComparisons.add(comparison);
+                }
+            }
+            pruningMethod.addDecomposedBlock(newComparisons, newBlocks);
+        }
+        return newBlocks;
+    }
+
+    // whether an edge is retained, given whether each of its adjacent entities retains it
+    protected abstract boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2);
+
+    /**
+     * Updates the entity index with the given delta blocks, recomputes the
+     * retained neighbors of the affected entities and returns the comparisons
+     * that are retained for the first time.
+     */
+    List<AbstractBlock> refineBlocks(List<AbstractBlock> deltaBlocks) {
+        switch (pruningMethod.weightingScheme) {
+            case ECBS:
+            case EJS:
+            case WJS:
+                throw new UnsupportedOperationException(pruningMethod.weightingScheme
+                        + " weighting depends on the entire block collection and cannot be applied incrementally!");
+        }
+
+        final int previousEntities = entityIndex.getNoOfEntities();
+        final int previousLimit = entityIndex.getDatasetLimit();
+        final int[] touchedEntities = entityIndex.updateBlocks(deltaBlocks);
+        setEntityIndex(previousEntities, previousLimit);
+
+        // the previous neighbors of the recomputed entities, in ascending order of entity ids
+        final Map<Integer, int[]> previousNeighbors = new TreeMap<>();
+        if (setThreshold(entityIndex.getNoOfIndexedEntities())) {
+            for (int i = 0; i < pruningMethod.noOfEntities; i++) {
+                updateNearestNeighbors(i, previousNeighbors);
+            }
+        } else {
+            // the Jaccard weights of an entity with all its neighbors depend on its number of blocks
+            final int[] resizedEntities = entityIndex.getResizedEntities();
+            final boolean jaccardWeights = pruningMethod.weightingScheme == WeightingScheme.JS;
+            final Set<Integer> affectedEntities = new HashSet<>();
+            for (int entityId : touchedEntities) {
+                updateNearestNeighbors(entityId, previousNeighbors);
+                if (jaccardWeights && 0 <= Arrays.binarySearch(resizedEntities, entityId)) {
+                    affectedEntities.addAll(pruningMethod.validEntities);
+                }
+            }
+            for (int entityId : affectedEntities) {
+                if (!previousNeighbors.containsKey(entityId)) {
+                    updateNearestNeighbors(entityId, previousNeighbors);
+                }
+            }
+        }
+        return getNewComparisons(previousNeighbors);
+    }
+
+    /**
+     * Sets the updated entity index to the pruning method and moves the retained
+     * neighbors to the current entity ids, which shift in Clean-Clean ER when
+     * the range of the first dataset grows.
+     */
+    private void setEntityIndex(int previousEntities, int previousLimit) {
+        pruningMethod.setEntityIndex(entityIndex);
+        pruningMethod.blockAssignments = entityIndex.getBlockAssignments();
+
+        final int noOfEntities = pruningMethod.noOfEntities;
+        if (counters.length < noOfEntities) {
+            int capacity = Math.max(noOfEntities, 2 * counters.length);
+            counters = new double[capacity];
+            flags = new int[capacity];
+            Arrays.fill(flags, -1);
+        }
+        pruningMethod.counters = counters;
+        pruningMethod.flags = flags;
+
+        if (previousEntities == 0) {
+            setNearestNeighbors(new int[noOfEntities][], new double[noOfEntities][]);
+            return;
+        }
+
+        int[][] nearestNeighbors = getNearestNeighbors();
+        double[][] nearestWeights = getNearestWeights();
+        final int shift = pruningMethod.datasetLimit - previousLimit;
+        if (shift == 0 && noOfEntities <= nearestNeighbors.length) {
+            return;
+        }
+
+        final int capacity = Math.max(noOfEntities, 2 * nearestNeighbors.length);
+        if (shift == 0) {
+            setNearestNeighbors(Arrays.copyOf(nearestNeighbors, capacity), Arrays.copyOf(nearestWeights, capacity));
+            return;
+        }
+
+        final int[][] currentNeighbors = new int[capacity][];
+        final double[][] currentWeights = new double[capacity][];
+        for (int i = 0; i < previousEntities; i++) {
+            if (nearestNeighbors[i] == null) {
+                continue;
+            }
+
+            // the neighbors of the first dataset belong to the second one, and vice versa
+            int entityId = i;
+            if (i < previousLimit) {
+                for (int j = 0; j < nearestNeighbors[i].length; j++) {
+                    nearestNeighbors[i][j] += shift;
+                }
+            } else {
+                entityId += shift;
+            }
+            currentNeighbors[entityId] = nearestNeighbors[i];
+            currentWeights[entityId] = nearestWeights[i];
+        }
+        setNearestNeighbors(currentNeighbors, currentWeights);
+    }
+
+    protected abstract void setNearestNeighbors(int[][] nearestNeighbors, double[][] nearestWeights);
+
+    // sets the threshold for the current blocks and returns true if it invalidates the retained neighbors of all entities
+    protected abstract boolean setThreshold(int noOfIndexedEntities);
+
+    // recomputes the retained neighbors of the given entity from validEntities and counters
+    protected abstract void updateNearestNeighbors(int entityId);
+
+    private void updateNearestNeighbors(int entityId, Map<Integer, int[]> previousNeighbors) {
+        final int[] previous = getNearestNeighbors()[entityId];
+        previousNeighbors.put(entityId, previous == null ? NO_NEIGHBORS : previous);
+
+        pruningMethod.processEntityBlocks(entityId);
+        updateNearestNeighbors(entityId);
+        for (int neighborId : pruningMethod.validEntities) {
+            flags[neighborId] = -1; // the entity may be processed again in a later call
+        }
+    }
+}
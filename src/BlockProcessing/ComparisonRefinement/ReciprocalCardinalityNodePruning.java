@@ -15,7 +15,6 @@
  */
 package BlockProcessing.ComparisonRefinement;
 
-import DataModel.Comparison;
 import Utilities.Enumerations.WeightingScheme;
 
 /**
@@ -42,17 +41,17 @@ public class ReciprocalCardinalityNodePruning extends CardinalityNodePruning {
     }
 
     @Override
-    protected boolean isValidComparison(int entityId, Comparison comparison) {
-        int neighborId = comparison.getEntityId1() == entityId ? comparison.getEntityId2() : comparison.getEntityId1();
-        if (cleanCleanER && entityId < datasetLimit) {
-            neighborId += datasetLimit;
-        }
+    protected boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2) {
+        return inNeighborhood1 && inNeighborhood2;
+    }
 
-        if (nearestEntities[neighborId] == null) {
+    @Override
+    protected boolean isValidComparison(int entityId, int neighborId) {
+        if (nearestNeighbors[neighborId] == null) {
             return false;
         }
 
-        if (nearestEntities[neighborId].contains(comparison)) {
+        if (isNearestNeighbor(neighborId, entityId)) {
             return entityId < neighborId;
         }
 
@@ -42,15 +42,7 @@ public class ReciprocalWeightedNodePruning extends WeightedNodePruning {
     }
     
     @Override
-    protected boolean isValidComparison(int entityId, int neighborId) {
-        double weight = getWeight(entityId, neighborId);
-        boolean inNeighborhood1 = averageWeight[entityId] <= weight;
-        boolean inNeighborhood2 = averageWeight[neighborId] <= weight;
-        
-        if (inNeighborhood1 && inNeighborhood2) {
-            return entityId < neighborId;
-        }
-        
-        return false;
+    protected boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2) {
+        return inNeighborhood1 && inNeighborhood2;
     }
 }
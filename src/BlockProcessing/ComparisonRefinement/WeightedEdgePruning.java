@@ -17,11 +17,19 @@
 package BlockProcessing.ComparisonRefinement;
 
 import Utilities.DataStructures.AbstractDuplicatePropagation;
+import Utilities.DataStructures.BlockArena;
 import DataModel.AbstractBlock;
 import DataModel.BilateralBlock;
+import DataModel.Comparison;
+import DataModel.DecomposedBlock;
 import Utilities.Enumerations.WeightingScheme;
+import Utilities.RangeTask;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -29,12 +37,60 @@ import java.util.List;
  */
 public class WeightedEdgePruning extends AbstractMetablocking {
 
+    private final static int MIN_PARTITION_SIZE = 1000;
+
     protected double noOfEdges;
+    
+    private ThreadLocal<EntityNeighborhood> neighborhoods;
 
     public WeightedEdgePruning(WeightingScheme scheme) {
         super(scheme);
         nodeCentric = false;
     }
+    
+    protected void addDecomposedBlock(Collection<Comparison> comparisons, List<AbstractBlock> newBlocks) {
+        if (comparisons.isEmpty()) {
+            return;
+        }
+
+        int[] entityIds1 = new int[comparisons.size()];
+        int[] entityIds2 = new int[comparisons.size()];
+        double[] similarities = new double[comparisons.size()];
+        
+        int index = 0;
+        Iterator<Comparison> iterator = comparisons.iterator();
+        while (iterator.hasNext()) {
+            Comparison comparison = iterator.next();
+            entityIds1[index] = comparison.getEntityId1();
+            entityIds2[index] = comparison.getEntityId2();
+            similarities[index] = comparison.getUtilityMeasure();
+            index++;
+        }
+
+        newBlocks.add(new DecomposedBlock(cleanCleanER, similarities, entityIds1, entityIds2));
+    }
+    
+    protected void addDecomposedBlock(int entityId, EntityNeighborhood neighborhood, List<AbstractBlock> newBlocks) {
+        if (neighborhood.noOfRetainedNeighbors == 0) {
+            return;
+        }
+
+        int[] entityIds1 = replicateId(entityId, neighborhood.noOfRetainedNeighbors);
+        int[] entityIds2 = Arrays.copyOf(neighborhood.retainedNeighbors, neighborhood.noOfRetainedNeighbors);
+        double[] similarities = new double[neighborhood.noOfRetainedNeighbors];
+        newBlocks.add(new DecomposedBlock(cleanCleanER, similarities, entityIds1, entityIds2));
+    }
+    
+    protected void addReversedDecomposedBlock(int entityId, EntityNeighborhood neighborhood, List<AbstractBlock> newBlocks) {
+        if (neighborhood.noOfRetainedNeighbors == 0) {
+            return;
+        }
+
+        int[] entityIds1 = Arrays.copyOf(neighborhood.retainedNeighbors, neighborhood.noOfRetainedNeighbors);
+        int[] entityIds2 = replicateId(entityId, neighborhood.noOfRetainedNeighbors);
+        double[] similarities = new double[neighborhood.noOfRetainedNeighbors];
+        newBlocks.add(new DecomposedBlock(cleanCleanER, similarities, entityIds1, entityIds2));
+    }
 
     @Override
     public void deduplicateBlocks(AbstractDuplicatePropagation adp, List<AbstractBlock> blocks) {
@@ -52,18 +108,92 @@ public class WeightedEdgePruning extends AbstractMetablocking {
         return "Weighted Edge Pruning involves a single parameter:\n"
                 + "the weighting scheme that assigns weights to the edges of the blcoking graph.";
     }
+
+    // the increment of the counter of every neighbor that co-occurs in the given block
+    private double getCounterIncrement(int blockIndex, boolean wjsCounters) {
+        if (weightingScheme.equals(WeightingScheme.ARCS)) {
+            return 1 / (cleanCleanER ? bBlocks[blockIndex].getNoOfComparisons() : uBlocks[blockIndex].getNoOfComparisons());
+        }
+        
+        if (wjsCounters) {
+            BilateralBlock block = bBlocks[blockIndex];
+            double weight1 = 0, weight2 = 0;
+            if (block.getIndex1Entities() != null) {
+                weight1 = Math.log10((double)datasetLimit/block.getIndex1Entities().length);
+            }
+            if (block.getIndex2Entities() != null) {
+                weight2 = Math.log10((double)(noOfEntities-datasetLimit)/block.getIndex2Entities().length);
+            }
+            return weight1 + weight2;
+        }
+        return 1;
+    }
+    
+    /**
+     * With several threads, every thread uses its own counters, so that both the
+     * threshold and the pruning pass run in parallel over disjoint ranges of 
+     * entity ids. The partial results are combined in the order of the ranges.
+     */
+    protected boolean isParallel(int limit) {
+        return 1 < noOfThreads && 2 * MIN_PARTITION_SIZE <= limit;
+    }
+    
+    protected boolean isValidComparison(int entityId, int neighborId, double weight) {
+        return threshold <= weight;
+    }
+    
+    /**
+     * Gathers the distinct neighbors of the given entity along with their 
+     * counters in the given neighborhood, without touching the shared state.
+     * If wjsCounters is true, the counters correspond to the numerator of WJS.
+     */
+    protected void processEntity(int entityId, EntityNeighborhood neighborhood, boolean wjsCounters) {
+        neighborhood.clear();
+        final int[] entityBlocks = entityIndex.getEntityBlocksArray(entityId, 0);
+        final int blocksStart = entityIndex.getEntityBlocksOffset(entityId, 0);
+        final int blocksEnd = blocksStart + entityIndex.getNoOfEntityBlocks(entityId, 0);
+        if (blocksStart == blocksEnd) {
+            return;
+        }
+        if (wjsCounters && !cleanCleanER) {
+            throw new UnsupportedOperationException("WJS weighting not supported for Dirty ER yet...");
+        }
+
+        final BlockArena arena = getBlockArena();
+        final int[] arenaEntities = arena.getEntities();
+        for (int j = blocksStart; j < blocksEnd; j++) {
+            int blockIndex = entityBlocks[j];
+            double increment = getCounterIncrement(blockIndex, wjsCounters);
+            int neighborsEnd = arena.getNeighborsEnd(blockIndex, entityId);
+            for (int i = arena.getNeighborsStart(blockIndex, entityId); i < neighborsEnd; i++) {
+                if (isNeighbor(entityId, arenaEntities[i])) {
+                    neighborhood.addNeighbor(entityId, arenaEntities[i], increment);
+                }
+            }
+        }
+    }
     
     protected void processArcsEntity(int entityId) {
         validEntities.clear();
-        final int[] associatedBlocks = entityIndex.getEntityBlocks(entityId, 0);
-        if (associatedBlocks.length == 0) {
+        final int[] entityBlocks = entityIndex.getEntityBlocksArray(entityId, 0);
+        final int blocksStart = entityIndex.getEntityBlocksOffset(entityId, 0);
+        final int blocksEnd = blocksStart + entityIndex.getNoOfEntityBlocks(entityId, 0);
+        if (blocksStart == blocksEnd) {
             return;
         }
 
-        for (int blockIndex : associatedBlocks) {
+        final BlockArena arena = getBlockArena();
+        final int[] arenaEntities = arena.getEntities();
+        for (int j = blocksStart; j < blocksEnd; j++) {
+            int blockIndex = entityBlocks[j];
             double blockComparisons = cleanCleanER ? bBlocks[blockIndex].getNoOfComparisons() : uBlocks[blockIndex].getNoOfComparisons();
-            setNormalizedNeighborEntities(blockIndex, entityId);
-            for (int neighborId : neighbors) {
+            int neighborsEnd = arena.getNeighborsEnd(blockIndex, entityId);
+            for (int i = arena.getNeighborsStart(blockIndex, entityId); i < neighborsEnd; i++) {
+                int neighborId = arenaEntities[i];
+                if (!isNeighbor(entityId, neighborId)) {
+                    continue;
+                }
+                
                 if (flags[neighborId] != entityId) {
                     counters[neighborId] = 0;
                     flags[neighborId] = entityId;
@@ -77,15 +207,20 @@ public class WeightedEdgePruning extends AbstractMetablocking {
     
     protected void processWjsEntity(int entityId) {
         validEntities.clear();
-        final int[] associatedBlocks = entityIndex.getEntityBlocks(entityId, 0);
-        if (associatedBlocks.length == 0) {
+        final int[] entityBlocks = entityIndex.getEntityBlocksArray(entityId, 0);
+        final int blocksStart = entityIndex.getEntityBlocksOffset(entityId, 0);
+        final int blocksEnd = blocksStart + entityIndex.getNoOfEntityBlocks(entityId, 0);
+        if (blocksStart == blocksEnd) {
             return;
         }
         if (!cleanCleanER) {
             throw new UnsupportedOperationException("WJS weighting not supported for Dirty ER yet...");
         }
 
-        for (int blockIndex : associatedBlocks) {            
+        final BlockArena arena = getBlockArena();
+        final int[] arenaEntities = arena.getEntities();
+        for (int j = blocksStart; j < blocksEnd; j++) {
+            int blockIndex = entityBlocks[j];
             BilateralBlock block = bBlocks[blockIndex];      
             int[] d1EntitiesInBlock = block.getIndex1Entities();
             int[] d2EntitiesInBlock = block.getIndex2Entities();
@@ -97,8 +232,13 @@ public class WeightedEdgePruning extends AbstractMetablocking {
                 weight2 = Math.log10((double)(noOfEntities-datasetLimit)/block.getIndex2Entities().length);
             }
             
-            setNormalizedNeighborEntities(blockIndex, entityId);
-            for (int neighborId : neighbors) {
+            int neighborsEnd = arena.getNeighborsEnd(blockIndex, entityId);
+            for (int i = arena.getNeighborsStart(blockIndex, entityId); i < neighborsEnd; i++) {
+                int neighborId = arenaEntities[i];
+                if (!isNeighbor(entityId, neighborId)) {
+                    continue;
+                }
+                
                 if (flags[neighborId] != entityId) {
                     counters[neighborId] = 0;
                     flags[neighborId] = entityId;
@@ -110,16 +250,58 @@ public class WeightedEdgePruning extends AbstractMetablocking {
         }
     }
 
+    /**
+     * Gathers the neighbors of the given entity in validEntities along with 
+     * their CBS or ARCS counters directly from its blocks, without building 
+     * the block arena. Meant for incremental refinement, where the cost of a
+     * single entity should not depend on the size of the block collection.
+     */
+    protected void processEntityBlocks(int entityId) {
+        validEntities.clear();
+        final int[] entityBlocks = entityIndex.getEntityBlocksArray(entityId, 0);
+        final int blocksStart = entityIndex.getEntityBlocksOffset(entityId, 0);
+        final int blocksEnd = blocksStart + entityIndex.getNoOfEntityBlocks(entityId, 0);
+        final int offset = (cleanCleanER && entityId < datasetLimit) ? datasetLimit : 0;
+        for (int j = blocksStart; j < blocksEnd; j++) {
+            int blockIndex = entityBlocks[j];
+            double increment = getCounterIncrement(blockIndex, false);
+            for (int neighborId : getNeighborEntities(blockIndex, entityId)) {
+                neighborId += offset;
+                if (!isNeighbor(entityId, neighborId)) {
+                    continue;
+                }
+
+                if (flags[neighborId] != entityId) {
+                    counters[neighborId] = 0;
+                    flags[neighborId] = entityId;
+                }
+
+                counters[neighborId] += increment;
+                validEntities.add(neighborId);
+            }
+        }
+    }
+
     protected void processEntity(int entityId) {
         validEntities.clear();
-        final int[] associatedBlocks = entityIndex.getEntityBlocks(entityId, 0);
-        if (associatedBlocks.length == 0) {
+        final int[] entityBlocks = entityIndex.getEntityBlocksArray(entityId, 0);
+        final int blocksStart = entityIndex.getEntityBlocksOffset(entityId, 0);
+        final int blocksEnd = blocksStart + entityIndex.getNoOfEntityBlocks(entityId, 0);
+        if (blocksStart == blocksEnd) {
             return;
         }
 
-        for (int blockIndex : associatedBlocks) {
-            setNormalizedNeighborEntities(blockIndex, entityId);
-            for (int neighborId : neighbors) {
+        final BlockArena arena = getBlockArena();
+        final int[] arenaEntities = arena.getEntities();
+        for (int j = blocksStart; j < blocksEnd; j++) {
+            int blockIndex = entityBlocks[j];
+            int neighborsEnd = arena.getNeighborsEnd(blockIndex, entityId);
+            for (int i = arena.getNeighborsStart(blockIndex, entityId); i < neighborsEnd; i++) {
+                int neighborId = arenaEntities[i];
+                if (!isNeighbor(entityId, neighborId)) {
+                    continue;
+                }
+                
                 if (flags[neighborId] != entityId) {
                     counters[neighborId] = 0;
                     flags[neighborId] = entityId;
@@ -133,8 +315,12 @@ public class WeightedEdgePruning extends AbstractMetablocking {
 
     @Override
     protected List<AbstractBlock> pruneEdges() {
-        List<AbstractBlock> newBlocks = new ArrayList<>();
         int limit = cleanCleanER ? datasetLimit : noOfEntities;
+        if (isParallel(limit)) {
+            return pruneEdgesInParallel(limit, weightingScheme.equals(WeightingScheme.WJS));
+        }
+        
+        List<AbstractBlock> newBlocks = new ArrayList<>();
         if (weightingScheme.equals(WeightingScheme.ARCS)) {
             for (int i = 0; i < limit; i++) {
                 processArcsEntity(i);
@@ -153,6 +339,33 @@ public class WeightedEdgePruning extends AbstractMetablocking {
         }
         return newBlocks;
     }
+    
+    protected List<AbstractBlock> pruneEdgesInParallel(int limit, boolean wjsCounters) {
+        getBlockArena(); // built before the threads share it
+        ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        neighborhoods = ThreadLocal.withInitial(() -> new EntityNeighborhood(noOfEntities));
+        try {
+            return RangeTask.invoke(pool, limit, getPartitionSize(limit), (fromId, toId) -> {
+                EntityNeighborhood neighborhood = neighborhoods.get();
+                List<AbstractBlock> newBlocks = new ArrayList<>();
+                for (int i = fromId; i < toId; i++) {
+                    processEntity(i, neighborhood, wjsCounters);
+                    verifyValidEntities(i, neighborhood, newBlocks);
+                }
+                return newBlocks;
+            }, (lowerBlocks, upperBlocks) -> {
+                lowerBlocks.addAll(upperBlocks);
+                return lowerBlocks;
+            });
+        } finally {
+            pool.shutdown();
+            neighborhoods = null;
+        }
+    }
+    
+    private int getPartitionSize(int limit) {
+        return RangeTask.getPartitionSize(limit, noOfThreads, MIN_PARTITION_SIZE);
+    }
 
     @Override
     protected void setThreshold() {
@@ -160,6 +373,13 @@ public class WeightedEdgePruning extends AbstractMetablocking {
         threshold = 0;
 
         int limit = cleanCleanER ? datasetLimit : noOfEntities;
+        if (isParallel(limit)) {
+            double[] partialSums = setThresholdInParallel(limit);
+            noOfEdges = partialSums[0];
+            threshold = partialSums[1] / noOfEdges;
+            return;
+        }
+        
         if (weightingScheme.equals(WeightingScheme.ARCS)) {
             for (int i = 0; i < limit; i++) {
                 processArcsEntity(i);
@@ -174,6 +394,31 @@ public class WeightedEdgePruning extends AbstractMetablocking {
 
         threshold /= noOfEdges;
     }
+    
+    // returns the number of edges and their total weight
+    protected double[] setThresholdInParallel(int limit) {
+        getBlockArena(); // built before the threads share it
+        ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        neighborhoods = ThreadLocal.withInitial(() -> new EntityNeighborhood(noOfEntities));
+        try {
+            return RangeTask.invoke(pool, limit, getPartitionSize(limit), (fromId, toId) -> {
+                EntityNeighborhood neighborhood = neighborhoods.get();
+                double[] partialSums = new double[2];
+                for (int i = fromId; i < toId; i++) {
+                    processEntity(i, neighborhood, false);
+                    updateThreshold(i, neighborhood, partialSums);
+                }
+                return partialSums;
+            }, (lowerSums, upperSums) -> {
+                lowerSums[0] += upperSums[0];
+                lowerSums[1] += upperSums[1];
+                return lowerSums;
+            });
+        } finally {
+            pool.shutdown();
+            neighborhoods = null;
+        }
+    }
 
     protected void updateThreshold(int entityId) {
         noOfEdges += validEntities.size();
@@ -181,6 +426,13 @@ public class WeightedEdgePruning extends AbstractMetablocking {
             threshold += getWeight(entityId, neighborId);
         }
     }
+    
+    protected void updateThreshold(int entityId, EntityNeighborhood neighborhood, double[] partialSums) {
+        partialSums[0] += neighborhood.noOfNeighbors;
+        for (int i = 0; i < neighborhood.noOfNeighbors; i++) {
+            partialSums[1] += getWeight(entityId, neighborhood.neighbors[i], neighborhood.counters);
+        }
+    }
 
     protected void verifyValidEntities(int entityId, List<AbstractBlock> newBlocks) {
         retainedNeighbors.clear();
@@ -212,4 +464,60 @@ public class WeightedEdgePruning extends AbstractMetablocking {
             }
         }
     }
+    
+    protected void verifyValidEntities(int entityId, EntityNeighborhood neighborhood, List<AbstractBlock> newBlocks) {
+        neighborhood.noOfRetainedNeighbors = 0;
+        int offset = (cleanCleanER && entityId < datasetLimit) ? datasetLimit : 0;
+        for (int i = 0; i < neighborhood.noOfNeighbors; i++) {
+            int neighborId = neighborhood.neighbors[i];
+            double weight = getWeight(entityId, neighborId, neighborhood.counters);
+            if (isValidComparison(entityId, neighborId, weight)) {
+                neighborhood.retainedNeighbors[neighborhood.noOfRetainedNeighbors++] = neighborId - offset;
+            }
+        }
+        
+        if (cleanCleanER && datasetLimit <= entityId) {
+            addReversedDecomposedBlock(entityId - datasetLimit, neighborhood, newBlocks);
+        } else {
+            addDecomposedBlock(entityId, neighborhood, newBlocks);
+        }
+    }
+
+    /**
+     * The per-thread counterpart of flags, counters and validEntities: the 
+     * distinct neighbors of the current entity are kept in a primitive array 
+     * instead of a set of boxed integers.
+     */
+    protected static class EntityNeighborhood {
+
+        protected int noOfNeighbors;
+        protected int noOfRetainedNeighbors;
+        
+        protected final int[] flags;
+        protected final int[] neighbors;
+        protected final int[] retainedNeighbors;
+        protected final double[] counters;
+
+        protected EntityNeighborhood(int noOfEntities) {
+            counters = new double[noOfEntities];
+            flags = new int[noOfEntities];
+            Arrays.fill(flags, -1);
+            neighbors = new int[noOfEntities];
+            retainedNeighbors = new int[noOfEntities];
+        }
+
+        protected void addNeighbor(int entityId, int neighborId, double increment) {
+            if (flags[neighborId] != entityId) {
+                counters[neighborId] = 0;
+                flags[neighborId] = entityId;
+                neighbors[noOfNeighbors++] = neighborId;
+            }
+            counters[neighborId] += increment;
+        }
+
+        protected void clear() {
+            noOfNeighbors = 0;
+            noOfRetainedNeighbors = 0;
+        }
+    }
 }
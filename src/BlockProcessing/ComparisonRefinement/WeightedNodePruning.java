@@ -19,6 +19,7 @@ package BlockProcessing.ComparisonRefinement;
 import DataModel.AbstractBlock;
 import Utilities.Enumerations.WeightingScheme;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -31,6 +32,10 @@ public class WeightedNodePruning extends WeightedEdgePruning {
     protected int firstId;
     protected int lastId;
     protected double[] averageWeight;
+    protected double[][] nearestWeights; // aligned with nearestNeighbors
+    protected int[][] nearestNeighbors; // the ascending ids of the neighbors that exceed the average weight of every entity
+    
+    private IncrementalNodePruning incrementalPruning;
     
     public WeightedNodePruning(WeightingScheme scheme) {
         super(scheme);
@@ -49,13 +54,22 @@ public class WeightedNodePruning extends WeightedEdgePruning {
         return "Weighted Node Pruning involves a single parameter:\n"
                 + "the weighting scheme that assigns weights to the edges of the blcoking graph.";
     }
-        
+
+    // whether an edge is retained, given whether it exceeds the average weight of each adjacent entity
+    protected boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2) {
+        return inNeighborhood1 || inNeighborhood2;
+    }
+
     protected boolean isValidComparison(int entityId, int neighborId) {
-        double weight = getWeight(entityId, neighborId);
+        return isValidComparison(entityId, neighborId, getWeight(entityId, neighborId));
+    }
+    
+    @Override
+    protected boolean isValidComparison(int entityId, int neighborId, double weight) {
         boolean inNeighborhood1 = averageWeight[entityId] <= weight;
         boolean inNeighborhood2 = averageWeight[neighborId] <= weight;
 
-        if (inNeighborhood1 || inNeighborhood2) {
+        if (isValidComparison(inNeighborhood1, inNeighborhood2)) {
             return entityId < neighborId;
         }
         
@@ -64,6 +78,11 @@ public class WeightedNodePruning extends WeightedEdgePruning {
 
     @Override
     protected List<AbstractBlock> pruneEdges() {
+        incrementalPruning = null; // the incremental refinement starts anew after a refinement from scratch
+        if (isParallel(noOfEntities)) {
+            return pruneEdgesInParallel(noOfEntities, false);
+        }
+        
         List<AbstractBlock> newBlocks = new ArrayList<>();
         if (weightingScheme.equals(WeightingScheme.ARCS)) {
             for (int i = 0; i < noOfEntities; i++) {
@@ -79,6 +98,59 @@ public class WeightedNodePruning extends WeightedEdgePruning {
         return newBlocks;
     }
 
+    /**
+     * Incremental counterpart of refineBlocks(blocks) for the delta blocks of
+     * every batch of IncrementalBlockBuilding: the entity index is updated only
+     * for the blocks that changed, while the average edge weight and the 
+     * neighbors that exceed it are recomputed only for their entities and the
+     * neighbors of these entities. Returns the comparisons retained for the
+     * first time, with their edge weights as utility measures; together with
+     * those returned by the previous calls, they include all comparisons that 
+     * refineBlocks(blocks) retains from the current block collection. Supports
+     * the CBS, JS and ARCS weighting schemes. Refining blocks from scratch 
+     * starts the incremental refinement anew.
+     * 
+     * @throws UnsupportedOperationException for the ECBS, EJS and WJS 
+     * weighting schemes, as they depend on the entire block collection
+     */
+    public List<AbstractBlock> refineDeltaBlocks(List<AbstractBlock> deltaBlocks) {
+        if (incrementalPruning == null) {
+            incrementalPruning = new IncrementalNodePruning(this) {
+                @Override
+                protected int[][] getNearestNeighbors() {
+                    return nearestNeighbors;
+                }
+
+                @Override
+                protected double[][] getNearestWeights() {
+                    return nearestWeights;
+                }
+
+                @Override
+                protected boolean isValidComparison(boolean inNeighborhood1, boolean inNeighborhood2) {
+                    return WeightedNodePruning.this.isValidComparison(inNeighborhood1, inNeighborhood2);
+                }
+
+                @Override
+                protected void setNearestNeighbors(int[][] neighbors, double[][] weights) {
+                    nearestNeighbors = neighbors;
+                    nearestWeights = weights;
+                }
+
+                @Override
+                protected boolean setThreshold(int noOfIndexedEntities) {
+                    return false; // every entity has its own threshold
+                }
+
+                @Override
+                protected void updateNearestNeighbors(int entityId) {
+                    WeightedNodePruning.this.updateNearestNeighbors(entityId);
+                }
+            };
+        }
+        return incrementalPruning.refineBlocks(deltaBlocks);
+    }
+
     protected void setLimits() {
         firstId = 0;
         lastId = noOfEntities;
@@ -87,6 +159,11 @@ public class WeightedNodePruning extends WeightedEdgePruning {
     @Override
     protected void setThreshold() {
         averageWeight = new double[noOfEntities];
+        if (isParallel(noOfEntities)) {
+            setThresholdInParallel(noOfEntities);
+            return;
+        }
+        
         if (weightingScheme.equals(WeightingScheme.ARCS)) {
             for (int i = 0; i < noOfEntities; i++) {
                 processArcsEntity(i);
@@ -109,6 +186,41 @@ public class WeightedNodePruning extends WeightedEdgePruning {
         }
         threshold /= validEntities.size();
     }
+    
+    @Override
+    protected void updateThreshold(int entityId, EntityNeighborhood neighborhood, double[] partialSums) {
+        double totalWeight = 0;
+        for (int i = 0; i < neighborhood.noOfNeighbors; i++) {
+            totalWeight += getWeight(entityId, neighborhood.neighbors[i], neighborhood.counters);
+        }
+        averageWeight[entityId] = totalWeight / neighborhood.noOfNeighbors;
+    }
+
+    // retains the neighbors of the given entity that exceed its average edge weight
+    protected void updateNearestNeighbors(int entityId) {
+        nearestNeighbors[entityId] = null;
+        nearestWeights[entityId] = null;
+        if (validEntities.isEmpty()) {
+            return;
+        }
+
+        setThreshold(entityId);
+
+        int noOfNeighbors = 0;
+        final int[] neighbors = new int[validEntities.size()];
+        for (int neighborId : validEntities) {
+            if (threshold <= getWeight(entityId, neighborId)) {
+                neighbors[noOfNeighbors++] = neighborId;
+            }
+        }
+
+        nearestNeighbors[entityId] = Arrays.copyOf(neighbors, noOfNeighbors);
+        Arrays.sort(nearestNeighbors[entityId]);
+        nearestWeights[entityId] = new double[noOfNeighbors];
+        for (int i = 0; i < noOfNeighbors; i++) {
+            nearestWeights[entityId][i] = getWeight(entityId, nearestNeighbors[entityId][i]);
+        }
+    }
 
     @Override
     protected void verifyValidEntities(int entityId, List<AbstractBlock> newBlocks) {
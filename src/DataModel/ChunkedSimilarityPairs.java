@@ -0,0 +1,221 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+
+package DataModel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Growable store of similarity pairs that is split into fixed-size chunks of
+ * primitive arrays. It is filled in a streaming fashion, e.g., by a matcher that
+ * adds only the pairs with a non-zero similarity, so that memory is allocated 
+ * only for the stored pairs. As every chunk is indexed separately, the store
+ * may hold more than Integer.MAX_VALUE pairs. Clustering methods consume it
+ * chunk by chunk.
+ *
+ * @author gap2
+ */
+
+public class ChunkedSimilarityPairs {
+
+    public final static int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private final static int INITIAL_CHUNK_SIZE = 1 << 10;
+
+    private final boolean isCleanCleanER;
+    private final int chunkSize;
+    private int lastChunkSize;
+    private int noOfChunks;
+    private long noOfComparisons;
+    private double[][] similarities;
+    private int[][] entityIds1;
+    private int[][] entityIds2;
+
+    public ChunkedSimilarityPairs(boolean ccer) {
+        this(ccer, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedSimilarityPairs(boolean ccer, int chunkSize) {
+        isCleanCleanER = ccer;
+        this.chunkSize = Math.max(1, chunkSize);
+        lastChunkSize = 0;
+        noOfChunks = 0;
+        noOfComparisons = 0;
+        similarities = new double[8][];
+        entityIds1 = new int[8][];
+        entityIds2 = new int[8][];
+    }
+
+    public void addComparison(Comparison comparison) {
+        addPair(comparison.getEntityId1(), comparison.getEntityId2(), comparison.getUtilityMeasure());
+    }
+
+    public void addComparisons(SimilarityPairs comparisons) {
+        final int[] ids1 = comparisons.getEntityIds1();
+        final int[] ids2 = comparisons.getEntityIds2();
+        final double[] sims = comparisons.getSimilarities();
+        int index = 0;
+        int noOfPairs = comparisons.getNoOfComparisons();
+        while (index < noOfPairs) {
+            ensureCapacity();
+            int length = Math.min(noOfPairs - index, chunkSize - lastChunkSize);
+            if (entityIds1[noOfChunks - 1].length < lastChunkSize + length) {
+                growLastChunk(lastChunkSize + length);
+            }
+            
+            System.arraycopy(ids1, index, entityIds1[noOfChunks - 1], lastChunkSize, length);
+            System.arraycopy(ids2, index, entityIds2[noOfChunks - 1], lastChunkSize, length);
+            System.arraycopy(sims, index, similarities[noOfChunks - 1], lastChunkSize, length);
+            lastChunkSize += length;
+            noOfComparisons += length;
+            index += length;
+        }
+    }
+
+    public void addPair(int entityId1, int entityId2, double similarity) {
+        ensureCapacity();
+        if (entityIds1[noOfChunks - 1].length == lastChunkSize) {
+            growLastChunk(lastChunkSize + 1);
+        }
+        
+        entityIds1[noOfChunks - 1][lastChunkSize] = entityId1;
+        entityIds2[noOfChunks - 1][lastChunkSize] = entityId2;
+        similarities[noOfChunks - 1][lastChunkSize++] = similarity;
+        noOfComparisons++;
+    }
+
+    // opens a new chunk if the last one is full
+    private void ensureCapacity() {
+        if (0 < noOfChunks && lastChunkSize < chunkSize) {
+            return;
+        }
+
+        if (noOfChunks == entityIds1.length) {
+            entityIds1 = Arrays.copyOf(entityIds1, 2 * noOfChunks);
+            entityIds2 = Arrays.copyOf(entityIds2, 2 * noOfChunks);
+            similarities = Arrays.copyOf(similarities, 2 * noOfChunks);
+        }
+        
+        // the last chunk starts small and doubles up to the chunk size
+        int initialSize = Math.min(chunkSize, INITIAL_CHUNK_SIZE);
+        entityIds1[noOfChunks] = new int[initialSize];
+        entityIds2[noOfChunks] = new int[initialSize];
+        similarities[noOfChunks] = new double[initialSize];
+        noOfChunks++;
+        lastChunkSize = 0;
+    }
+
+    public int getChunkSize(int chunkId) {
+        if (chunkId == noOfChunks - 1) {
+            return lastChunkSize;
+        }
+        return chunkSize;
+    }
+
+    /**
+     * The returned array may be longer than the number of pairs in the chunk;
+     * only its first getChunkSize(chunkId) positions are valid. The same applies
+     * to getEntityIds2(chunkId) and getSimilarities(chunkId).
+     */
+    public int[] getEntityIds1(int chunkId) {
+        return entityIds1[chunkId];
+    }
+
+    public int[] getEntityIds2(int chunkId) {
+        return entityIds2[chunkId];
+    }
+
+    public int getNoOfChunks() {
+        return noOfChunks;
+    }
+
+    public long getNoOfComparisons() {
+        return noOfComparisons;
+    }
+
+    public Iterator<Comparison> getPairIterator() {
+        return new ChunkIterator();
+    }
+
+    public double[] getSimilarities(int chunkId) {
+        return similarities[chunkId];
+    }
+
+    private void growLastChunk(int minSize) {
+        int chunkId = noOfChunks - 1;
+        int newSize = Math.min(chunkSize, Math.max(minSize, 2 * entityIds1[chunkId].length));
+        entityIds1[chunkId] = Arrays.copyOf(entityIds1[chunkId], newSize);
+        entityIds2[chunkId] = Arrays.copyOf(entityIds2[chunkId], newSize);
+        similarities[chunkId] = Arrays.copyOf(similarities[chunkId], newSize);
+    }
+
+    public boolean isCleanCleanER() {
+        return isCleanCleanER;
+    }
+
+    /**
+     * Copies all pairs into a single SimilarityPairs object.
+     *
+     * @throws IllegalStateException if the pairs are more than 
+     * SimilarityPairs.MAX_COMPARISONS
+     */
+    public SimilarityPairs toSimilarityPairs() {
+        if (SimilarityPairs.MAX_COMPARISONS < noOfComparisons) {
+            throw new IllegalStateException("Very high number of similarity pairs! "
+                    + "Maximum allowed number is : " + SimilarityPairs.MAX_COMPARISONS + ".");
+        }
+
+        final SimilarityPairs simPairs = new SimilarityPairs(isCleanCleanER, (int) noOfComparisons);
+        for (int chunkId = 0; chunkId < noOfChunks; chunkId++) {
+            int[] ids1 = entityIds1[chunkId];
+            int[] ids2 = entityIds2[chunkId];
+            double[] sims = similarities[chunkId];
+            for (int i = 0; i < getChunkSize(chunkId); i++) {
+                simPairs.addPair(ids1[i], ids2[i], sims[i]);
+            }
+        }
+        return simPairs;
+    }
+
+    private class ChunkIterator implements Iterator<Comparison> {
+
+        private int chunkId;
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            return chunkId < noOfChunks && index < getChunkSize(chunkId);
+        }
+
+        @Override
+        public Comparison next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Comparison comparison = new Comparison(isCleanCleanER, entityIds1[chunkId][index], entityIds2[chunkId][index]);
+            comparison.setUtilityMeasure(similarities[chunkId][index]);
+            index++;
+            if (index == chunkSize) {
+                chunkId++;
+                index = 0;
+            }
+            return comparison;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  *
@@ -30,7 +31,7 @@ import java.util.Set;
 public class EntityProfile implements Serializable {
 
     private static final long serialVersionUID = 122354534453243447L;
-    private final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+    private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
 
     private final Set<Attribute> attributes;
     private final String entityUrl;
@@ -42,10 +43,17 @@ public class EntityProfile implements Serializable {
         attributes = new HashSet();
         types = new HashSet<>();
     }
+    
+    // for profiles whose attributes are held by an EntityProfileStore
+    protected EntityProfile() {
+        entityUrl = null;
+        attributes = null;
+        types = null;
+    }
 
     public void addAttribute(String propertyName, String propertyValue) {
         attributes.add(new Attribute(propertyName, propertyValue));        
-        if (propertyName.replaceAll("<", "").replaceAll(">", "").equals(RDF_TYPE)) {
+        if (isTypeAttribute(propertyName)) {
             types.add(propertyValue);
         }
     }
@@ -62,6 +70,19 @@ public class EntityProfile implements Serializable {
         return attributes;
     }
     
+    /**
+     * Passes the name and the value of every attribute to the given consumer. 
+     * Unlike getAttributes(), it allocates no Attribute objects for profiles 
+     * that are held by an EntityProfileStore, thus it suits every pass over all 
+     * profiles of a dataset.
+     * @param consumer the recipient of the attribute names and values
+     */
+    public void forEachAttribute(BiConsumer<String, String> consumer) {
+        for (Attribute attribute : attributes) {
+            consumer.accept(attribute.getName(), attribute.getValue());
+        }
+    }
+    
     public Set<String> getAllAttributeNames() {
         Set<String> attributeNames = new HashSet<>();
         attributes.stream().forEach((attribute) -> attributeNames.add(attribute.getName()));
@@ -80,7 +101,7 @@ public class EntityProfile implements Serializable {
         if (types == null || types.isEmpty()) {            
             types = new HashSet<>();
             for (Attribute attribute : attributes) {                
-                if (attribute.getName().replaceAll("<", "").replaceAll(">", "").equals(RDF_TYPE)) {
+                if (isTypeAttribute(attribute.getName())) {
                     String type = attribute.getValue();                    
                     if (type != null && !type.isEmpty()) {
                         types.add(type);
@@ -124,6 +145,27 @@ public class EntityProfile implements Serializable {
         return values;
     }
         
+    /**
+     * Checks whether the given attribute name is rdf:type, ignoring any angle 
+     * brackets around or inside it.
+     * @param attributeName the attribute name to be checked
+     * @return true if the attribute name corresponds to rdf:type
+     */
+    public static boolean isTypeAttribute(String attributeName) {
+        int matchedChars = 0;
+        for (int i = 0; i < attributeName.length(); i++) {
+            char currentChar = attributeName.charAt(i);
+            if (currentChar == '<' || currentChar == '>') {
+                continue;
+            }
+            if (matchedChars == RDF_TYPE.length() || RDF_TYPE.charAt(matchedChars) != currentChar) {
+                return false;
+            }
+            matchedChars++;
+        }
+        return matchedChars == RDF_TYPE.length();
+    }
+        
     public boolean isOfType(String type) {
         if (types ==  null) {
             getTypes();
@@ -0,0 +1,252 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package DataModel;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Columnar, append-only store of entity profiles. Every attribute name is kept 
+ * once in a dictionary and referenced by its id, while all entity urls and 
+ * attribute values are copied into shared char arrays. Every profile is then
+ * described by the range of its attributes in a few primitive arrays, instead 
+ * of a HashSet of Attribute objects with separate strings.
+ * The stored profiles are served as read-only EntityProfile views.
+ *
+ * @author gap2
+ */
+
+public class EntityProfileStore {
+
+    private final static int CHUNK_SIZE = 1 << 24;
+    private final static int MIN_CAPACITY = 1024;
+    private final static int NULL_STRING = -1;
+
+    private int chunkPosition;
+    private int noOfAttributes;
+    private int noOfProfiles;
+
+    private char[] currentChunk;
+    private int[] attributeNameIds;
+    private int[] attributesStart;
+    private int[] urlLengths;
+    private int[] valueLengths;
+    private long[] urlAddresses;
+    private long[] valueAddresses;
+    private final BitSet typeNameIds;
+    private final List<char[]> chunks;
+    private final List<String> attributeNames;
+    private final Map<String, Integer> attributeNameIndex;
+
+    public EntityProfileStore() {
+        chunkPosition = 0;
+        noOfAttributes = 0;
+        noOfProfiles = 0;
+
+        chunks = new ArrayList<>();
+        currentChunk = new char[CHUNK_SIZE];
+        chunks.add(currentChunk);
+
+        attributeNameIds = new int[MIN_CAPACITY];
+        valueAddresses = new long[MIN_CAPACITY];
+        valueLengths = new int[MIN_CAPACITY];
+        attributesStart = new int[MIN_CAPACITY + 1];
+        urlAddresses = new long[MIN_CAPACITY];
+        urlLengths = new int[MIN_CAPACITY];
+
+        typeNameIds = new BitSet();
+        attributeNames = new ArrayList<>();
+        attributeNameIndex = new HashMap<>();
+    }
+
+    public void addProfile(EntityProfile profile) {
+        if (urlAddresses.length == noOfProfiles) {
+            int newSize = Math.max(MIN_CAPACITY, 2 * urlAddresses.length);
+            urlAddresses = Arrays.copyOf(urlAddresses, newSize);
+            urlLengths = Arrays.copyOf(urlLengths, newSize);
+            attributesStart = Arrays.copyOf(attributesStart, newSize + 1);
+        }
+
+        urlLengths[noOfProfiles] = addString(profile.getEntityUrl());
+        urlAddresses[noOfProfiles] = getLastAddress(urlLengths[noOfProfiles]);
+        profile.forEachAttribute(this::addAttribute);
+        
+        noOfProfiles++;
+        attributesStart[noOfProfiles] = noOfAttributes;
+    }
+
+    public void addProfiles(Iterator<EntityProfile> profiles) {
+        while (profiles.hasNext()) {
+            addProfile(profiles.next());
+        }
+    }
+
+    private void addAttribute(String name, String value) {
+        if (attributeNameIds.length == noOfAttributes) {
+            int newSize = Math.max(MIN_CAPACITY, 2 * attributeNameIds.length);
+            attributeNameIds = Arrays.copyOf(attributeNameIds, newSize);
+            valueAddresses = Arrays.copyOf(valueAddresses, newSize);
+            valueLengths = Arrays.copyOf(valueLengths, newSize);
+        }
+
+        attributeNameIds[noOfAttributes] = getNameId(name);
+        valueLengths[noOfAttributes] = addString(value);
+        valueAddresses[noOfAttributes] = getLastAddress(valueLengths[noOfAttributes]);
+        noOfAttributes++;
+    }
+
+    // copies the given string into the arena and returns its length
+    private int addString(String text) {
+        if (text == null) {
+            return NULL_STRING;
+        }
+
+        // the current chunk may be shorter than CHUNK_SIZE after trimToSize()
+        int length = text.length();
+        if (currentChunk.length - chunkPosition < length) {
+            currentChunk = new char[Math.max(CHUNK_SIZE, length)];
+            chunks.add(currentChunk);
+            chunkPosition = 0;
+        }
+        text.getChars(0, length, currentChunk, chunkPosition);
+        chunkPosition += length;
+        return length;
+    }
+
+    private long getLastAddress(int length) {
+        if (length == NULL_STRING) {
+            return NULL_STRING;
+        }
+        return ((long) (chunks.size() - 1) << 32) | (chunkPosition - length);
+    }
+
+    private int getNameId(String name) {
+        Integer nameId = attributeNameIndex.get(name);
+        if (nameId == null) {
+            nameId = attributeNames.size();
+            attributeNameIndex.put(name, nameId);
+            attributeNames.add(name);
+            if (name != null && EntityProfile.isTypeAttribute(name)) {
+                typeNameIds.set(nameId);
+            }
+        }
+        return nameId;
+    }
+
+    int getAttributeNameId(int attributeIndex) {
+        return attributeNameIds[attributeIndex];
+    }
+
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+    
+    String getAttributeName(int attributeIndex) {
+        return attributeNames.get(attributeNameIds[attributeIndex]);
+    }
+
+    String getAttributeValue(int attributeIndex) {
+        return getString(valueAddresses[attributeIndex], valueLengths[attributeIndex]);
+    }
+
+    int getAttributesEnd(int profileIndex) {
+        return attributesStart[profileIndex + 1];
+    }
+
+    int getAttributesStart(int profileIndex) {
+        return attributesStart[profileIndex];
+    }
+
+    String getEntityUrl(int profileIndex) {
+        return getString(urlAddresses[profileIndex], urlLengths[profileIndex]);
+    }
+
+    // returns -1 if the attribute name does not appear in any stored profile
+    int getExistingNameId(String name) {
+        Integer nameId = attributeNameIndex.get(name);
+        if (nameId == null) {
+            return -1;
+        }
+        return nameId;
+    }
+
+    public int getNoOfAttributes() {
+        return noOfAttributes;
+    }
+
+    public int getNoOfProfiles() {
+        return noOfProfiles;
+    }
+
+    public EntityProfile getProfile(int profileIndex) {
+        if (profileIndex < 0 || noOfProfiles <= profileIndex) {
+            throw new IndexOutOfBoundsException("Profile index\t:\t" + profileIndex);
+        }
+        return new StoredEntityProfile(this, profileIndex);
+    }
+
+    /**
+     * @return a read-only, random-access list view of the stored profiles, whose
+     * positions coincide with the order in which they were added
+     */
+    public List<EntityProfile> getProfiles() {
+        return new StoredProfilesList();
+    }
+
+    private String getString(long address, int length) {
+        if (length == NULL_STRING) {
+            return null;
+        }
+        return new String(chunks.get((int) (address >>> 32)), (int) address, length);
+    }
+
+    boolean isTypeAttribute(int attributeIndex) {
+        return typeNameIds.get(attributeNameIds[attributeIndex]);
+    }
+
+    // releases the unused capacity of all arrays, once all profiles have been added
+    public void trimToSize() {
+        attributeNameIds = Arrays.copyOf(attributeNameIds, noOfAttributes);
+        valueAddresses = Arrays.copyOf(valueAddresses, noOfAttributes);
+        valueLengths = Arrays.copyOf(valueLengths, noOfAttributes);
+        attributesStart = Arrays.copyOf(attributesStart, noOfProfiles + 1);
+        urlAddresses = Arrays.copyOf(urlAddresses, noOfProfiles);
+        urlLengths = Arrays.copyOf(urlLengths, noOfProfiles);
+        currentChunk = Arrays.copyOf(currentChunk, chunkPosition);
+        chunks.set(chunks.size() - 1, currentChunk);
+    }
+
+    private class StoredProfilesList extends AbstractList<EntityProfile> implements RandomAccess {
+
+        @Override
+        public EntityProfile get(int index) {
+            return getProfile(index);
+        }
+
+        @Override
+        public int size() {
+            return noOfProfiles;
+        }
+    }
+}
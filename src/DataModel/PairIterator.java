@@ -31,7 +31,7 @@ public class PairIterator implements Iterator<Comparison> {
     
     PairIterator(SimilarityPairs sPairs) {
         similarityPairs = sPairs;
-        totalComparisons = similarityPairs.getEntityIds1().length;
+        totalComparisons = similarityPairs.getNoOfComparisons();
     }
     
     @Override
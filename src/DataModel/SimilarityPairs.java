@@ -17,10 +17,7 @@ package DataModel;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  *
@@ -29,21 +26,18 @@ import java.util.logging.Logger;
 
 public class SimilarityPairs {
 
-    private final static int MAX_COMPARISONS = Integer.MAX_VALUE - 2;
-    private static final Logger LOGGER = Logger.getLogger(SimilarityPairs.class.getName());
+    public final static int MAX_COMPARISONS = Integer.MAX_VALUE - 2;
+    private final static int INITIAL_CAPACITY = 1 << 16;
 
     private final boolean isCleanCleanER;
     private int currentIndex;
-    private final double[] similarities;
-    private final int[] entityIds1;
-    private final int[] entityIds2;
+    private double[] similarities;
+    private int[] entityIds1;
+    private int[] entityIds2;
 
+    // the arrays grow along with the pairs that are actually added, e.g., those with a non-zero similarity
     public SimilarityPairs(boolean ccer, List<AbstractBlock> blocks) {
-        isCleanCleanER = ccer;
-        double totalComparisons = countComparisons(blocks);
-        entityIds1 = new int[(int) totalComparisons];
-        entityIds2 = new int[(int) totalComparisons];
-        similarities = new double[(int) totalComparisons];
+        this(ccer, (int) Math.min(INITIAL_CAPACITY, countComparisons(blocks)));
     }
     
     //alternative constructor to skip block comparisons enumeration
@@ -55,32 +49,56 @@ public class SimilarityPairs {
     }
 
     public void addComparison(Comparison comparison) {        
-        entityIds1[currentIndex] = comparison.getEntityId1();
-        entityIds2[currentIndex] = comparison.getEntityId2();
-        similarities[currentIndex++] = comparison.getUtilityMeasure();
+        addPair(comparison.getEntityId1(), comparison.getEntityId2(), comparison.getUtilityMeasure());
     }
     
     public void addComparisons(SimilarityPairs comparisons) {        
-        Iterator<Comparison> compIterator = comparisons.getPairIterator();
-        while (compIterator.hasNext()) {
-            addComparison(compIterator.next());
-        }
+        int noOfComparisons = comparisons.getNoOfComparisons();
+        ensureCapacity((long) currentIndex + noOfComparisons);
+        System.arraycopy(comparisons.getEntityIds1(), 0, entityIds1, currentIndex, noOfComparisons);
+        System.arraycopy(comparisons.getEntityIds2(), 0, entityIds2, currentIndex, noOfComparisons);
+        System.arraycopy(comparisons.getSimilarities(), 0, similarities, currentIndex, noOfComparisons);
+        currentIndex += noOfComparisons;
     }
 
-    private double countComparisons(List<AbstractBlock> blocks) {
+    public void addPair(int entityId1, int entityId2, double similarity) {
+        ensureCapacity(currentIndex + 1L);
+        entityIds1[currentIndex] = entityId1;
+        entityIds2[currentIndex] = entityId2;
+        similarities[currentIndex++] = similarity;
+    }
+
+    private static double countComparisons(List<AbstractBlock> blocks) {
         double comparisons = 0;
         for (AbstractBlock block : blocks) {
             comparisons += block.getNoOfComparisons();
         }
-
-        if (MAX_COMPARISONS < comparisons) {
-            LOGGER.log(Level.SEVERE, "Very high number of comparisons to be executed! "
-                    + "Maximum allowed number is : " + MAX_COMPARISONS);
-            System.exit(-1);
-        }
         return comparisons;
     }
     
+    // throws an IllegalStateException if the pairs exceed the maximum length of an array
+    private void ensureCapacity(long capacity) {
+        if (capacity <= entityIds1.length) {
+            return;
+        }
+        
+        if (MAX_COMPARISONS < capacity) {
+            throw new IllegalStateException("Very high number of similarity pairs! "
+                    + "Maximum allowed number is : " + MAX_COMPARISONS
+                    + ". Use ChunkedSimilarityPairs, instead.");
+        }
+        
+        int newCapacity = (int) Math.min(MAX_COMPARISONS, Math.max(capacity, 2L * entityIds1.length));
+        entityIds1 = Arrays.copyOf(entityIds1, newCapacity);
+        entityIds2 = Arrays.copyOf(entityIds2, newCapacity);
+        similarities = Arrays.copyOf(similarities, newCapacity);
+    }
+    
+    /**
+     * The returned array may be longer than the number of similarity pairs;
+     * only its first getNoOfComparisons() positions are valid. The same 
+     * applies to getEntityIds2() and getSimilarities().
+     */
     public int[] getEntityIds1() {
         return entityIds1;
     }
@@ -0,0 +1,194 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package DataModel;
+
+import static gr.demokritos.iit.jinsect.utils.splitToWords;
+import java.io.ObjectStreamException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only view of a profile held by an EntityProfileStore. Attribute values 
+ * are decoded from the store on demand, while attribute names are compared 
+ * through their dictionary ids. When serialized, the view is replaced by an 
+ * ordinary EntityProfile with the same url and attributes.
+ *
+ * @author gap2
+ */
+
+public class StoredEntityProfile extends EntityProfile {
+
+    private static final long serialVersionUID = 7462830161593020718L;
+
+    private final int profileIndex;
+    private final EntityProfileStore store;
+
+    StoredEntityProfile(EntityProfileStore st, int index) {
+        profileIndex = index;
+        store = st;
+    }
+
+    @Override
+    public void addAttribute(String propertyName, String propertyValue) {
+        throw new UnsupportedOperationException("Stored entity profiles are read-only.");
+    }
+
+    @Override
+    public String getEntityUrl() {
+        return store.getEntityUrl(profileIndex);
+    }
+
+    @Override
+    public int getProfileSize() {
+        return store.getAttributesEnd(profileIndex) - store.getAttributesStart(profileIndex);
+    }
+
+    @Override
+    public void forEachAttribute(BiConsumer<String, String> consumer) {
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            consumer.accept(store.getAttributeName(i), store.getAttributeValue(i));
+        }
+    }
+
+    // materializes the attributes; passes over all profiles should use forEachAttribute() instead
+    @Override
+    public Set<Attribute> getAttributes() {
+        Set<Attribute> attributes = new HashSet<>();
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            attributes.add(new Attribute(store.getAttributeName(i), store.getAttributeValue(i)));
+        }
+        return attributes;
+    }
+
+    @Override
+    public Set<String> getAllAttributeNames() {
+        Set<String> attributeNames = new HashSet<>();
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            attributeNames.add(store.getAttributeName(i));
+        }
+        return attributeNames;
+    }
+
+    @Override
+    public Set<String> getAllValues() {
+        Set<String> values = new HashSet<>();
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            values.add(store.getAttributeValue(i));
+        }
+        return values;
+    }
+
+    @Override
+    public Set<String> getTypes() {
+        Set<String> types = new HashSet<>();
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            if (store.isTypeAttribute(i)) {
+                String type = store.getAttributeValue(i);
+                if (type != null && !type.isEmpty()) {
+                    types.add(type);
+                }
+            }
+        }
+        return types;
+    }
+
+    @Override
+    public String getValueOf(String attributeName) {
+        int nameId = store.getExistingNameId(attributeName);
+        if (nameId < 0) {
+            return null;
+        }
+        
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            if (store.getAttributeNameId(i) == nameId) {
+                return store.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<String> getValuesOf(String attributeName) {
+        Set<String> values = new HashSet<>();
+        int nameId = store.getExistingNameId(attributeName);
+        if (nameId < 0) {
+            return values;
+        }
+        
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            if (store.getAttributeNameId(i) == nameId) {
+                values.add(store.getAttributeValue(i));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean isOfType(String type) {
+        return getTypes().contains(type);
+    }
+
+    @Override
+    public boolean hasOneOfTheTypes(Set<String> acceptableTypes) {
+        Set<String> types = getTypes();
+        for (String acceptableType : acceptableTypes) {
+            if (types.contains(acceptableType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getValuesAsString() {
+        StringBuilder valuesString = new StringBuilder();
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            valuesString.append(store.getAttributeValue(i)).append(" ");
+        }
+        return valuesString.toString();
+    }
+
+    @Override
+    public Set<String> getAllTokens() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            tokens.addAll(Arrays.asList(splitToWords(store.getAttributeValue(i))));
+        }
+        return tokens;
+    }
+
+    // keeps serialized datasets readable without the store
+    private Object writeReplace() throws ObjectStreamException {
+        EntityProfile profile = new EntityProfile(getEntityUrl());
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            profile.addAttribute(store.getAttributeName(i), store.getAttributeValue(i));
+        }
+        return profile;
+    }
+
+    @Override
+    public String toString() {
+        String entityUrl = getEntityUrl();
+        StringBuilder entityString = new StringBuilder(entityUrl != null ? entityUrl : "");
+        for (int i = store.getAttributesStart(profileIndex); i < store.getAttributesEnd(profileIndex); i++) {
+            entityString.append("\n").append(store.getAttributeName(i)).append(":").append(store.getAttributeValue(i));
+        }
+        return entityString.toString();
+    }
+}
@@ -339,6 +339,9 @@ public class PropertyWeights extends WeightedJaccardSimilarities {
             for (PropertyPair labelPair : labelPairs) {
                 String value1 = profiles1.get(urlToEntityIds1.get(neighbor1)).getValueOf(labelPair.getProperty1());
                 String value2 = profiles2.get(urlToEntityIds2.get(neighbor2)).getValueOf(labelPair.getProperty2());
+                if (LevenshteinSimilarity.getSimilarityUpperBound(value1, value2) <= result) {
+                    continue; // the value pair cannot exceed the current maximum
+                }
                 
                 double similarity = new LevenshteinSimilarity(value1, value2).getLevenshteinSimilarity();
                 if (similarity > result) {
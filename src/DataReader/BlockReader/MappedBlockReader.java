@@ -0,0 +1,205 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package DataReader.BlockReader;
+
+import DataModel.AbstractBlock;
+import DataModel.BilateralBlock;
+import DataModel.DecomposedBlock;
+import DataModel.UnilateralBlock;
+import DataReader.AbstractReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves a block collection stored by MappedBlockWriter as a read-only list
+ * view over the memory-mapped file. Blocks are decoded on access, so that very
+ * large collections can be passed between the processing stages without
+ * deserializing all of them into the heap at once. The view is read-only;
+ * methods that sort or purge their input in place should receive a copy.
+ * 
+ * Every access decodes a new block, thus the blocks are immutable views: any
+ * change to a returned block, e.g., of its utility measure, is not retained.
+ * Instead, the index of every block is set to its position in the file, which
+ * is the index that GroundTruthIndex and the entity indices assign to a list
+ * of blocks, so that the indices remain consistent across accesses.
+ *
+ * @author gap2
+ */
+
+public class MappedBlockReader extends AbstractReader implements IBlockReader {
+
+    // every mapped segment covers two strides, so that no record crosses its end
+    private final static long SEGMENT_STRIDE = MappedBlockWriter.MAX_RECORD_SIZE;
+    private static final Logger LOGGER = Logger.getLogger(MappedBlockReader.class.getName());
+
+    private int noOfBlocks;
+    private List<AbstractBlock> blocks;
+    private MappedByteBuffer[] segments;
+
+    public MappedBlockReader(String filePath) {
+        super(filePath);
+        blocks = null;
+    }
+
+    public AbstractBlock getBlock(int blockIndex) {
+        long offset = getLong(MappedBlockWriter.HEADER_SIZE + 8L * blockIndex);
+        ByteBuffer record = getSegment(offset);
+
+        final AbstractBlock block;
+        int blockType = record.getInt();
+        switch (blockType) {
+            case MappedBlockWriter.UNILATERAL_BLOCK:
+                block = new UnilateralBlock(getInts(record, record.getInt()));
+                break;
+            case MappedBlockWriter.BILATERAL_BLOCK:
+                int size1 = record.getInt();
+                int size2 = record.getInt();
+                int[] entities1 = getInts(record, size1);
+                block = new BilateralBlock(entities1, getInts(record, size2));
+                break;
+            case MappedBlockWriter.DIRTY_DECOMPOSED_BLOCK:
+            case MappedBlockWriter.CLEAN_CLEAN_DECOMPOSED_BLOCK:
+                int size = record.getInt();
+                int[] entityIds1 = getInts(record, size);
+                int[] entityIds2 = getInts(record, size);
+                double[] similarities = new double[size];
+                record.asDoubleBuffer().get(similarities);
+                block = new DecomposedBlock(blockType == MappedBlockWriter.CLEAN_CLEAN_DECOMPOSED_BLOCK,
+                        similarities, entityIds1, entityIds2);
+                break;
+            default:
+                LOGGER.log(Level.SEVERE, "Unknown type {0} for block {1}!", new Object[]{blockType, blockIndex});
+                return null;
+        }
+
+        block.setBlockIndex(blockIndex);
+        return block;
+    }
+
+    @Override
+    public List<AbstractBlock> getBlocks() {
+        if (blocks != null) {
+            return blocks;
+        }
+
+        if (inputFilePath == null) {
+            LOGGER.log(Level.SEVERE, "Input file path has not been set!");
+            return null;
+        }
+
+        if (!mapFile()) {
+            return null;
+        }
+        
+        blocks = new MappedBlockList();
+        return blocks;
+    }
+
+    private int[] getInts(ByteBuffer record, int size) {
+        int[] values = new int[size];
+        record.asIntBuffer().get(values);
+        record.position(record.position() + 4 * size);
+        return values;
+    }
+
+    private long getLong(long position) {
+        return getSegment(position).getLong();
+    }
+
+    public int getNoOfBlocks() {
+        return noOfBlocks;
+    }
+
+    // returns a view that starts at the given file position
+    private ByteBuffer getSegment(long position) {
+        int segmentIndex = (int) (position / SEGMENT_STRIDE);
+        ByteBuffer segment = segments[segmentIndex].duplicate();
+        segment.position((int) (position - segmentIndex * SEGMENT_STRIDE));
+        return segment;
+    }
+
+    private boolean mapFile() {
+        try (RandomAccessFile file = new RandomAccessFile(inputFilePath, "r");
+                FileChannel channel = file.getChannel()) {
+            long fileSize = channel.size();
+            int noOfSegments = (int) ((fileSize + SEGMENT_STRIDE - 1) / SEGMENT_STRIDE);
+            segments = new MappedByteBuffer[Math.max(1, noOfSegments)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_STRIDE;
+                long end = Math.min(fileSize, start + 2 * SEGMENT_STRIDE - 1);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, end - start));
+            }
+
+            if (fileSize < MappedBlockWriter.HEADER_SIZE
+                    || segments[0].getInt(0) != MappedBlockWriter.MAGIC_NUMBER) {
+                LOGGER.log(Level.SEVERE, "{0} is not a block collection file!", inputFilePath);
+                return false;
+            }
+
+            int version = segments[0].getInt(4);
+            if (version != MappedBlockWriter.FORMAT_VERSION) {
+                LOGGER.log(Level.SEVERE, "Unsupported block collection format version\t:\t{0}", version);
+                return false;
+            }
+
+            long storedBlocks = segments[0].getLong(8);
+            if (Integer.MAX_VALUE < storedBlocks) {
+                LOGGER.log(Level.SEVERE, "Too many blocks to serve as a list\t:\t{0}", storedBlocks);
+                return false;
+            }
+            noOfBlocks = (int) storedBlocks;
+            return true;
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            return false;
+        }
+    }
+
+    @Override
+    public String getMethodInfo() {
+        return "Mapped Block Reader: serves the blocks of a file written by MappedBlockWriter through a memory-mapped, read-only list.";
+    }
+
+    @Override
+    public String getMethodParameters() {
+        return "No other parameter is required, apart from the absolute file path";
+    }
+
+    private class MappedBlockList extends AbstractList<AbstractBlock> implements RandomAccess {
+
+        @Override
+        public AbstractBlock get(int index) {
+            if (index < 0 || noOfBlocks <= index) {
+                throw new IndexOutOfBoundsException("Block index\t:\t" + index);
+            }
+            return getBlock(index);
+        }
+
+        @Override
+        public int size() {
+            return noOfBlocks;
+        }
+    }
+}
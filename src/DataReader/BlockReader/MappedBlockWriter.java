@@ -0,0 +1,202 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package DataReader.BlockReader;
+
+import DataModel.AbstractBlock;
+import DataModel.BilateralBlock;
+import DataModel.DecomposedBlock;
+import DataModel.UnilateralBlock;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores a block collection in a compact binary format that can be served by
+ * MappedBlockReader directly from a memory-mapped file. The file comprises:
+ * a header (magic number, format version, number of blocks), a table with the
+ * byte offset of every block record (plus the end of the last one) and the
+ * block records themselves. Every record starts with its block type, followed
+ * by the sizes and the contents of the block's arrays.
+ *
+ * @author gap2
+ */
+
+public class MappedBlockWriter {
+
+    final static int MAGIC_NUMBER = 0x45524243;
+    final static int FORMAT_VERSION = 1;
+    final static int HEADER_SIZE = 16;
+    final static long MAX_RECORD_SIZE = 1L << 30;
+
+    final static int UNILATERAL_BLOCK = 0;
+    final static int BILATERAL_BLOCK = 1;
+    final static int DIRTY_DECOMPOSED_BLOCK = 2;
+    final static int CLEAN_CLEAN_DECOMPOSED_BLOCK = 3;
+
+    private final static int BUFFER_SIZE = 1 << 20;
+    private static final Logger LOGGER = Logger.getLogger(MappedBlockWriter.class.getName());
+
+    private ByteBuffer buffer;
+    private FileChannel channel;
+
+    public MappedBlockWriter() {
+        buffer = null;
+        channel = null;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static long getRecordSize(AbstractBlock block) {
+        if (block instanceof UnilateralBlock) {
+            return 8 + 4L * ((UnilateralBlock) block).getEntities().length;
+        } else if (block instanceof BilateralBlock) {
+            BilateralBlock bBlock = (BilateralBlock) block;
+            return 12 + 4L * (bBlock.getIndex1Entities().length + bBlock.getIndex2Entities().length);
+        } else if (block instanceof DecomposedBlock) {
+            return 8 + 16L * ((DecomposedBlock) block).getEntities1().length;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the given blocks in the given file. All blocks are validated before
+     * anything is written, and the file is written under a temporary name that
+     * replaces the output path only when it is complete, so that readers never
+     * map a partially written collection.
+     *
+     * @throws IllegalArgumentException if a block is of unknown type or too large
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void storeBlocks(List<AbstractBlock> blocks, String outputPath) {
+        final long[] recordSizes = new long[blocks.size()];
+        for (int i = 0; i < recordSizes.length; i++) {
+            AbstractBlock block = blocks.get(i);
+            recordSizes[i] = getRecordSize(block);
+            if (recordSizes[i] < 0 || MAX_RECORD_SIZE < recordSizes[i]) {
+                throw new IllegalArgumentException("Cannot store block of type " + block.getClass().getSimpleName()
+                        + " and size " + block.getTotalBlockAssignments() + "!");
+            }
+        }
+
+        final File outputFile = new File(outputPath).getAbsoluteFile();
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(outputFile.getName(), ".tmp", outputFile.getParentFile());
+            try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+                channel = outputStream.getChannel();
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+                long noOfBlocks = blocks.size();
+                buffer.putInt(MAGIC_NUMBER);
+                buffer.putInt(FORMAT_VERSION);
+                buffer.putLong(noOfBlocks);
+
+                long offset = HEADER_SIZE + 8 * (noOfBlocks + 1);
+                for (long recordSize : recordSizes) {
+                    ensureCapacity(8);
+                    buffer.putLong(offset);
+                    offset += recordSize;
+                }
+                ensureCapacity(8);
+                buffer.putLong(offset);
+
+                for (AbstractBlock block : blocks) {
+                    writeBlock(block);
+                }
+                flush();
+            } finally {
+                buffer = null;
+                channel = null;
+            }
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.INFO, "Stored blocks in\t:\t{0}", outputFile);
+        } catch (IOException ex) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            throw new UncheckedIOException("Cannot store blocks in " + outputPath, ex);
+        }
+    }
+
+    private void writeBlock(AbstractBlock block) throws IOException {
+        if (block instanceof UnilateralBlock) {
+            int[] entities = ((UnilateralBlock) block).getEntities();
+            ensureCapacity(8);
+            buffer.putInt(UNILATERAL_BLOCK);
+            buffer.putInt(entities.length);
+            writeInts(entities);
+        } else if (block instanceof BilateralBlock) {
+            BilateralBlock bBlock = (BilateralBlock) block;
+            ensureCapacity(12);
+            buffer.putInt(BILATERAL_BLOCK);
+            buffer.putInt(bBlock.getIndex1Entities().length);
+            buffer.putInt(bBlock.getIndex2Entities().length);
+            writeInts(bBlock.getIndex1Entities());
+            writeInts(bBlock.getIndex2Entities());
+        } else if (block instanceof DecomposedBlock) {
+            DecomposedBlock dBlock = (DecomposedBlock) block;
+            ensureCapacity(8);
+            buffer.putInt(dBlock.isCleanCleanER() ? CLEAN_CLEAN_DECOMPOSED_BLOCK : DIRTY_DECOMPOSED_BLOCK);
+            buffer.putInt(dBlock.getEntities1().length);
+            writeInts(dBlock.getEntities1());
+            writeInts(dBlock.getEntities2());
+            writeDoubles(dBlock.getSimilarities());
+        }
+    }
+
+    private void writeDoubles(double[] values) throws IOException {
+        int index = 0;
+        while (index < values.length) {
+            ensureCapacity(8);
+            int length = Math.min(values.length - index, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().put(values, index, length);
+            buffer.position(buffer.position() + 8 * length);
+            index += length;
+        }
+    }
+
+    private void writeInts(int[] values) throws IOException {
+        int index = 0;
+        while (index < values.length) {
+            ensureCapacity(4);
+            int length = Math.min(values.length - index, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, index, length);
+            buffer.position(buffer.position() + 4 * length);
+            index += length;
+        }
+    }
+}
@@ -17,9 +17,13 @@
 package DataReader.EntityReader;
 
 import DataModel.EntityProfile;
+import DataModel.EntityProfileStore;
 import DataReader.AbstractReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
@@ -28,10 +32,70 @@ import java.util.List;
 
 public abstract class AbstractEntityReader extends AbstractReader implements IEntityReader {
     
+    private final static int DEFAULT_STREAM_CAPACITY = 10000;
+    private static final Logger LOGGER = Logger.getLogger(AbstractEntityReader.class.getName());
+    
+    protected int streamCapacity;
     protected List<EntityProfile> entityProfiles;
     
     public AbstractEntityReader (String filePath) {
         super(filePath);
         entityProfiles = new ArrayList<>();
+        streamCapacity = DEFAULT_STREAM_CAPACITY;
+    }
+    
+    /**
+     * Returns an iterator over the entity profiles of the input, which are read 
+     * by a background thread while the caller consumes them. At most streamCapacity
+     * profiles are buffered at any time, unless all profiles have already been 
+     * loaded through getEntityProfiles(). The profiles are emitted in the same 
+     * order as in getEntityProfiles(), so that they get the same entity ids.
+     * @return an iterator over the entity profiles of the input
+     */
+    public EntityProfileIterator getEntityProfileIterator() {
+        if (!entityProfiles.isEmpty()) {
+            return new EntityProfileIterator(entityProfiles.iterator());
+        }
+        return new EntityProfileIterator(this, streamCapacity);
+    }
+    
+    /**
+     * Reads the entity profiles of the input into a columnar store, without 
+     * keeping the intermediate EntityProfile objects in memory.
+     * @return the store with all profiles in input order, or null, if the input
+     * could not be read
+     */
+    public EntityProfileStore getEntityProfileStore() {
+        EntityProfileStore store = new EntityProfileStore();
+        try (EntityProfileIterator iterator = getEntityProfileIterator()) {
+            store.addProfiles(iterator);
+        } catch (IllegalStateException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to read the entity profiles of	:	" + inputFilePath, ex);
+            return null;
+        }
+        store.trimToSize();
+        return store;
+    }
+    
+    /**
+     * Reads the input and passes every entity profile to the given consumer, in
+     * input order. Readers that cannot parse their input incrementally load all
+     * profiles into memory first.
+     * @param consumer the recipient of the entity profiles
+     * @return true if the whole input was read successfully
+     */
+    protected boolean readEntityProfiles(Consumer<EntityProfile> consumer) {
+        List<EntityProfile> profiles = getEntityProfiles();
+        if (profiles == null) {
+            return false;
+        }
+        
+        profiles.forEach(consumer);
+        return true;
+    }
+    
+    public void setStreamCapacity(int capacity) {
+        streamCapacity = Math.max(1, capacity);
+        LOGGER.log(Level.INFO, "Stream capacity\t:\t{0}", streamCapacity);
     }
-}
\ No newline at end of file
+}
@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,9 +56,17 @@ public class EntityCSVReader extends AbstractEntityReader {
             return entityProfiles;
         }
         
+        if (!readEntityProfiles(entityProfiles::add)) {
+            return null;
+        }
+        return entityProfiles;
+    }
+
+    @Override
+    protected boolean readEntityProfiles(Consumer<EntityProfile> consumer) {
         if (inputFilePath == null) {
             LOGGER.log(Level.SEVERE, "Input file path has not been set!");
-            return null;
+            return false;
         }
         
         try {
@@ -69,7 +78,7 @@ public class EntityCSVReader extends AbstractEntityReader {
             int noOfAttributes = firstLine.length;
             if (noOfAttributes - 1 < idIndex) {
                 LOGGER.log(Level.SEVERE, "Id index does not correspond to a valid column index! Counting starts from 0.");
-                return null;
+                return false;
             }
 
             //setting attribute names
@@ -83,7 +92,7 @@ public class EntityCSVReader extends AbstractEntityReader {
                 }
                 
                 entityCounter++; //first line corresponds to entity
-                readEntity(entityCounter, firstLine);
+                consumer.accept(readEntity(entityCounter, firstLine));
             }
 
             //read entity profiles
@@ -96,13 +105,13 @@ public class EntityCSVReader extends AbstractEntityReader {
                     continue;
                 }                
                     
-                readEntity(entityCounter, nextLine);
+                consumer.accept(readEntity(entityCounter, nextLine));
             }
 
-            return entityProfiles;
+            return true;
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
-            return null;
+            return false;
         }
     }
 
@@ -127,7 +136,7 @@ public class EntityCSVReader extends AbstractEntityReader {
                 + "The column ids assigned to this parameter will be ignored during the creation of entity profiles.\n";
     }
 
-    private void readEntity(int index, String[] currentLine) throws IOException {
+    private EntityProfile readEntity(int index, String[] currentLine) throws IOException {
         String entityId;
         if (idIndex < 0) {
             entityId = "id" + index;
@@ -151,7 +160,7 @@ public class EntityCSVReader extends AbstractEntityReader {
 
             }
         }
-        entityProfiles.add(newProfile);
+        return newProfile;
     }
 
     public void setAttributesToExclude(int[] attributesIndicesToExclude) {
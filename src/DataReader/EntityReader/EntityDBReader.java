@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -63,24 +64,32 @@ public class EntityDBReader extends AbstractEntityReader {
             return entityProfiles;
         }
 
+        if (!readEntityProfiles(entityProfiles::add)) {
+            return null;
+        }
+        return entityProfiles;
+    }
+
+    @Override
+    protected boolean readEntityProfiles(Consumer<EntityProfile> consumer) {
         if (inputFilePath == null) {
             LOGGER.log(Level.SEVERE, "Database url has not been set!");
-            return null;
+            return false;
         }
 
         //inputFilePath is assigned the Database URL
         try {
             if (user == null) {
                 LOGGER.log(Level.SEVERE, "Database user has not been set!");
-                return null;
+                return false;
             }
             if (password == null) {
                 LOGGER.log(Level.SEVERE, "Database password has not been set!");
-                return null;
+                return false;
             }
             if (table == null) {
                 LOGGER.log(Level.SEVERE, "Database table has not been set!");
-                return null;
+                return false;
             }
             
             Connection conn = null;
@@ -90,7 +99,7 @@ public class EntityDBReader extends AbstractEntityReader {
                 conn = getPostgreSQLconnection(inputFilePath);
             } else {
                 LOGGER.log(Level.SEVERE, "Only MySQL and PostgreSQL are supported for the time being!");
-                return null; 
+                return false; 
             }
 
             Statement stmt = conn.createStatement();
@@ -107,7 +116,6 @@ public class EntityDBReader extends AbstractEntityReader {
                 //Retrieve by column name
                 String id = rs.getString(columns[0]);
                 EntityProfile newProfile = new EntityProfile(id);//create a new profile for each record
-                entityProfiles.add(newProfile);
                 for (int i = 1; i < columnsNum; i++) {
                     String attributeName = columns[i];
                     if (attributesToExclude.contains(attributeName)) {
@@ -117,14 +125,17 @@ public class EntityDBReader extends AbstractEntityReader {
                     String value = rs.getString(columns[i]);
                     newProfile.addAttribute(attributeName, value);
                 }
+                consumer.accept(newProfile);
             }
             rs.close();
+        } catch (EntityProfileIterator.StreamClosedException ex) {
+            throw ex; // the consumer stopped reading, which is not an error
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, null, ex);
-            return null;
+            return false;
         }
 
-        return entityProfiles;
+        return true;
     }
 
     @Override
@@ -0,0 +1,153 @@
+/*
+ * Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package DataReader.EntityReader;
+
+import DataModel.EntityProfile;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Iterator over the entity profiles of a reader. When created for a reader, it
+ * parses the input in a background thread that hands the profiles over through
+ * a bounded queue, so that reading overlaps with the processing of the caller.
+ * close() stops the background thread, if the caller does not exhaust the input.
+ * If the input cannot be read completely, the iterator throws an 
+ * IllegalStateException after the last profile that was read successfully,
+ * or rethrows the Error that stopped the background thread.
+ *
+ * @author gap2
+ */
+
+public class EntityProfileIterator implements Iterator<EntityProfile>, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(EntityProfileIterator.class.getName());
+    private static final EntityProfile END_OF_INPUT = new EntityProfile(null);
+
+    private volatile boolean successfulRead;
+    private volatile Throwable readFailure;
+    private EntityProfile nextProfile;
+    private final BlockingQueue<EntityProfile> queue;
+    private final Iterator<EntityProfile> profilesIterator;
+    private final Thread readerThread;
+
+    EntityProfileIterator(Iterator<EntityProfile> profiles) {
+        nextProfile = null;
+        profilesIterator = profiles;
+        queue = null;
+        readerThread = null;
+        successfulRead = true;
+    }
+
+    EntityProfileIterator(AbstractEntityReader reader, int capacity) {
+        nextProfile = null;
+        profilesIterator = null;
+        successfulRead = false;
+        queue = new ArrayBlockingQueue<>(capacity);
+        readerThread = new Thread(() -> {
+            try {
+                successfulRead = reader.readEntityProfiles(this::enqueue);
+            } catch (StreamClosedException ex) {
+                return;
+            } catch (RuntimeException | Error ex) {
+                readFailure = ex;
+            } finally {
+                // the consumer is never left waiting, unless it closed the stream; then, the interrupted put() returns at once
+                try {
+                    queue.put(END_OF_INPUT);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "EntityProfileReader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    @Override
+    public void close() {
+        if (readerThread != null) {
+            readerThread.interrupt();
+        }
+    }
+
+    private void enqueue(EntityProfile profile) {
+        try {
+            queue.put(profile);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StreamClosedException();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (profilesIterator != null) {
+            return profilesIterator.hasNext();
+        }
+
+        if (nextProfile == null) {
+            try {
+                nextProfile = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.SEVERE, null, ex);
+                return false;
+            }
+        }
+        
+        if (nextProfile == END_OF_INPUT && !successfulRead) {
+            if (readFailure instanceof Error) {
+                throw (Error) readFailure;
+            }
+            throw new IllegalStateException("Failed to read the entity profiles!", readFailure);
+        }
+        return nextProfile != END_OF_INPUT;
+    }
+
+    /**
+     * @return true if the input was read without errors; meaningful only after 
+     * the iterator has been exhausted
+     */
+    public boolean isSuccessfulRead() {
+        return successfulRead;
+    }
+
+    @Override
+    public EntityProfile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more entity profiles!");
+        }
+
+        if (profilesIterator != null) {
+            return profilesIterator.next();
+        }
+
+        EntityProfile profile = nextProfile;
+        nextProfile = null;
+        return profile;
+    }
+
+    // thrown to the reader by enqueue(), when the consumer closes the stream
+    static class StreamClosedException extends RuntimeException {
+        
+        private static final long serialVersionUID = 5342541234124L;
+    }
+}
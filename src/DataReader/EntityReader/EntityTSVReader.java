@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,9 +47,17 @@ public class EntityTSVReader extends AbstractEntityReader {
         }
         entityProfiles = new LinkedList<>(); //LinkedList does not require the time needed to resize an ArrayList -> O(1) in worst-case vs O(n) for ArrayLists
         
+        if (!readEntityProfiles(entityProfiles::add)) {
+            return null;
+        }
+        return entityProfiles;
+    }
+
+    @Override
+    protected boolean readEntityProfiles(Consumer<EntityProfile> consumer) {
         if (inputFilePath == null) {
             LOGGER.log(Level.SEVERE, "Input file path has not been set!");
-            return null;
+            return false;
         }
         
         try (BufferedReader br = new BufferedReader(new FileReader(inputFilePath))) { //CSVReader has bugs!
@@ -65,7 +74,7 @@ public class EntityTSVReader extends AbstractEntityReader {
                 currentEntityURL = nextLine[0].toLowerCase();
                 if (!currentEntityURL.equals(previousEntityURL)) {
                     if (e != null) {
-                        entityProfiles.add(e);
+                        consumer.accept(e);
                     }
                     e = new EntityProfile(currentEntityURL);
                     if (++entityCounter % 1000000 == 0) {
@@ -83,13 +92,13 @@ public class EntityTSVReader extends AbstractEntityReader {
             }
             
             if (currentEntityURL.equalsIgnoreCase(previousEntityURL) && e != null) { //for the case the last  line was about the same entity as the line before
-                entityProfiles.add(e);
+                consumer.accept(e);
             }
 
-            return entityProfiles;
+            return true;
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
-            return null;
+            return false;
         }
     }
 
@@ -1,15 +1,14 @@
 package EntityClustering;
 
+import DataModel.ChunkedSimilarityPairs;
 import DataModel.EquivalenceCluster;
 import DataModel.SimilarityPairs;
+import Utilities.DataStructures.UnionFind;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.jgrapht.alg.ConnectivityInspector;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.SimpleGraph;
 
 /**
  *
@@ -24,34 +23,89 @@ public abstract class AbstractEntityClustering implements IEntityClustering {
     protected double threshold;
     
     protected int noOfEntities;
+    protected int noOfThreads;
     protected int datasetLimit;
 
-    protected SimpleGraph similarityGraph;
+    protected UnionFind connectedComponents;
 
     public AbstractEntityClustering() {
         threshold = 0.5;
+        noOfThreads = 1;
     }
 
+    /**
+     * Clusters the pairs of the given store. By default, the chunks are streamed
+     * into a single SimilarityPairs object, as most methods need random access 
+     * to the pairs; methods that process the pairs in a single pass override it.
+     * Only the pairs with a weight higher than the threshold form edges, so the
+     * rest are dropped, except for the first pairs with the largest entity ids, 
+     * which determine the size of the similarity graph. Hence, the clusters are
+     * the same as those of all pairs.
+     *
+     * @throws IllegalArgumentException if the retained pairs are more than
+     * SimilarityPairs.MAX_COMPARISONS; a higher threshold or a method that 
+     * overrides this one, e.g., Connected Components, should be used, instead
+     */
+    public List<EquivalenceCluster> getDuplicates(ChunkedSimilarityPairs simPairs) {
+        int maxEntity1 = Integer.MIN_VALUE;
+        int maxEntity2 = Integer.MIN_VALUE;
+        long noOfEdges = 0;
+        for (int chunkId = 0; chunkId < simPairs.getNoOfChunks(); chunkId++) {
+            int[] entityIds1 = simPairs.getEntityIds1(chunkId);
+            int[] entityIds2 = simPairs.getEntityIds2(chunkId);
+            double[] similarities = simPairs.getSimilarities(chunkId);
+            for (int i = 0; i < simPairs.getChunkSize(chunkId); i++) {
+                maxEntity1 = Math.max(maxEntity1, entityIds1[i]);
+                maxEntity2 = Math.max(maxEntity2, entityIds2[i]);
+                if (threshold < similarities[i]) {
+                    noOfEdges++;
+                }
+            }
+        }
+        if (SimilarityPairs.MAX_COMPARISONS < noOfEdges + 2) {
+            throw new IllegalArgumentException(getClass().getSimpleName() + " requires random access to the "
+                    + noOfEdges + " similarity pairs above the threshold, but the maximum allowed number is : "
+                    + SimilarityPairs.MAX_COMPARISONS + ".");
+        }
+
+        boolean retainedMax1 = false;
+        boolean retainedMax2 = false;
+        final SimilarityPairs edges = new SimilarityPairs(simPairs.isCleanCleanER(), (int) noOfEdges + 2);
+        for (int chunkId = 0; chunkId < simPairs.getNoOfChunks(); chunkId++) {
+            int[] entityIds1 = simPairs.getEntityIds1(chunkId);
+            int[] entityIds2 = simPairs.getEntityIds2(chunkId);
+            double[] similarities = simPairs.getSimilarities(chunkId);
+            for (int i = 0; i < simPairs.getChunkSize(chunkId); i++) {
+                boolean isMax1 = !retainedMax1 && entityIds1[i] == maxEntity1;
+                boolean isMax2 = !retainedMax2 && entityIds2[i] == maxEntity2;
+                if (threshold < similarities[i] || isMax1 || isMax2) {
+                    edges.addPair(entityIds1[i], entityIds2[i], similarities[i]);
+                    retainedMax1 |= entityIds1[i] == maxEntity1;
+                    retainedMax2 |= entityIds2[i] == maxEntity2;
+                }
+            }
+        }
+        return getDuplicates(edges);
+    }
+    
     protected List<EquivalenceCluster> getConnectedComponents() {
-        // get connected components
-        final ConnectivityInspector ci = new ConnectivityInspector(similarityGraph);
-        final List<Set<Integer>> connectedComponents = ci.connectedSets();
+        // get connected components; a singleton cluster denotes that its element does not match any other element (skip this cluster)
+        final int[][] components = connectedComponents.getComponents(2);
 
         // prepare output
-        final List<EquivalenceCluster> equivalenceClusters = new ArrayList<>();
-        for (Set<Integer> componentIds : connectedComponents) {
-            if (componentIds.size() < 2) { //a singleton cluster denotes that its element does not match any other element (skip this cluster)
-                continue;
-            }
+        final List<EquivalenceCluster> equivalenceClusters = new ArrayList<>(components.length);
+        for (int[] componentIds : components) {
             EquivalenceCluster newCluster = new EquivalenceCluster();
             equivalenceClusters.add(newCluster);
 
             if (!isCleanCleanER) {
-                newCluster.loadBulkEntityIdsD1(componentIds);
+                for (int entityId : componentIds) {
+                    newCluster.addEntityIdD1(entityId);
+                }
                 continue;
             }
 
-            for (Integer entityId : componentIds) {
+            for (int entityId : componentIds) {
                 if (entityId < datasetLimit) {
                     newCluster.addEntityIdD1(entityId);
                 } else {
@@ -63,6 +117,54 @@ public abstract class AbstractEntityClustering implements IEntityClustering {
         return equivalenceClusters;
     }
 
+    /**
+     * Returns the positions of the similarity pairs with a weight higher than
+     * the threshold in descending order of weight; ties are ordered by position.
+     * Every weight is replaced by its rank among the distinct weights, so that
+     * it is packed along with the position of its pair in a single long and no
+     * object is created per edge.
+     */
+    protected int[] getSortedEdges(SimilarityPairs simPairs) {
+        final int noOfComparisons = simPairs.getNoOfComparisons();
+        final double[] similarities = simPairs.getSimilarities();
+        
+        int noOfEdges = 0;
+        final double[] distinctWeights = new double[noOfComparisons];
+        for (int i = 0; i < noOfComparisons; i++) {
+            if (threshold < similarities[i]) {
+                distinctWeights[noOfEdges++] = similarities[i];
+            }
+        }
+        
+        Arrays.parallelSort(distinctWeights, 0, noOfEdges);
+        int noOfDistinctWeights = 0;
+        for (int i = 0; i < noOfEdges; i++) {
+            if (noOfDistinctWeights == 0 || distinctWeights[noOfDistinctWeights - 1] != distinctWeights[i]) {
+                distinctWeights[noOfDistinctWeights++] = distinctWeights[i];
+            }
+        }
+        
+        int index = 0;
+        final long[] edges = new long[noOfEdges];
+        for (int i = 0; i < noOfComparisons; i++) {
+            if (threshold < similarities[i]) {
+                long rank = noOfDistinctWeights - 1 - Arrays.binarySearch(distinctWeights, 0, noOfDistinctWeights, similarities[i]);
+                edges[index++] = (rank << 32) | i;
+            }
+        }
+        Arrays.parallelSort(edges);
+        
+        final int[] sortedEdges = new int[noOfEdges];
+        for (int i = 0; i < noOfEdges; i++) {
+            sortedEdges[i] = (int) edges[i];
+        }
+        return sortedEdges;
+    }
+    
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+    
     protected int getMaxEntityId(int[] entityIds) {
         int maxId = Integer.MIN_VALUE;
         for (int i = 0; i < entityIds.length; i++) {
@@ -78,7 +180,27 @@ public abstract class AbstractEntityClustering implements IEntityClustering {
 
         int maxEntity1 = getMaxEntityId(simPairs.getEntityIds1());
         int maxEntity2 = getMaxEntityId(simPairs.getEntityIds2());
-        if (simPairs.isCleanCleanER()) {
+        setEntityLimits(maxEntity1, maxEntity2);
+    }
+    
+    protected void initializeData(ChunkedSimilarityPairs simPairs) {
+        isCleanCleanER = simPairs.isCleanCleanER();
+
+        int maxEntity1 = Integer.MIN_VALUE;
+        int maxEntity2 = Integer.MIN_VALUE;
+        for (int chunkId = 0; chunkId < simPairs.getNoOfChunks(); chunkId++) {
+            int[] entityIds1 = simPairs.getEntityIds1(chunkId);
+            int[] entityIds2 = simPairs.getEntityIds2(chunkId);
+            for (int i = 0; i < simPairs.getChunkSize(chunkId); i++) {
+                maxEntity1 = Math.max(maxEntity1, entityIds1[i]);
+                maxEntity2 = Math.max(maxEntity2, entityIds2[i]);
+            }
+        }
+        setEntityLimits(maxEntity1, maxEntity2);
+    }
+    
+    private void setEntityLimits(int maxEntity1, int maxEntity2) {
+        if (isCleanCleanER) {
             datasetLimit = maxEntity1 + 1;
             noOfEntities = maxEntity1 + maxEntity2 + 2;
         } else {
@@ -88,10 +210,7 @@ public abstract class AbstractEntityClustering implements IEntityClustering {
     }
     
     protected void initializeGraph() {
-        similarityGraph = new SimpleGraph(DefaultEdge.class);
-        for (int i = 0; i < noOfEntities; i++) {
-            similarityGraph.addVertex(i);
-        }
+        connectedComponents = new UnionFind(noOfEntities);
         LOGGER.log(Level.INFO, "Added {0} nodes in the graph", noOfEntities);
     }
     
@@ -101,6 +220,21 @@ public abstract class AbstractEntityClustering implements IEntityClustering {
              + "with an edge in the (initial) similarity graph.";
     }
     
+    @Override
+    public double getSimilarityThreshold() {
+        return threshold;
+    }
+    
+    /**
+     * Sets the number of threads that are used by the clustering methods that
+     * support parallel processing; the others ignore it. The resulting clusters
+     * are identical to those of a single thread.
+     */
+    public void setNoOfThreads(int threads) {
+        noOfThreads = Math.max(1, threads);
+        LOGGER.log(Level.INFO, "Number of threads\t:\t{0}", noOfThreads);
+    }
+    
     @Override
     public void setSimilarityThreshold(double th) {
         threshold = th;
@@ -15,11 +15,13 @@
  */
 package EntityClustering;
 
-import DataModel.Comparison;
+import DataModel.ChunkedSimilarityPairs;
 import DataModel.EquivalenceCluster;
 import DataModel.SimilarityPairs;
-import java.util.Iterator;
+import Utilities.DataStructures.UnionFind;
+import Utilities.RangeTask;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,8 +31,14 @@ import java.util.logging.Logger;
  */
 public class ConnectedComponentsClustering extends AbstractEntityClustering {
 
+    private final static int MIN_PARTITION_SIZE = 1000;
+    
     private static final Logger LOGGER = Logger.getLogger(ConnectedComponentsClustering.class.getName());
 
+    private double[] similarities;
+    private int[] entityIds1;
+    private int[] entityIds2;
+    
     public ConnectedComponentsClustering() {
         super();
         
@@ -40,19 +48,69 @@ public class ConnectedComponentsClustering extends AbstractEntityClustering {
     @Override
     public List<EquivalenceCluster> getDuplicates(SimilarityPairs simPairs) {
         initializeData(simPairs);
-        initializeGraph();
         
-        // add an edge for every pair of entities with a weight higher than the thrshold
-        final Iterator<Comparison> iterator = simPairs.getPairIterator();
-        while (iterator.hasNext()) {
-            Comparison comparison = iterator.next();
-            if (threshold < comparison.getUtilityMeasure()) {
-                similarityGraph.addEdge(comparison.getEntityId1(), comparison.getEntityId2() + datasetLimit);
+        entityIds1 = simPairs.getEntityIds1();
+        entityIds2 = simPairs.getEntityIds2();
+        similarities = simPairs.getSimilarities();
+        
+        int noOfComparisons = simPairs.getNoOfComparisons();
+        if (noOfThreads < 2 || noOfComparisons < 2 * MIN_PARTITION_SIZE) {
+            initializeGraph();
+            addEdges(0, noOfComparisons, connectedComponents);
+        } else {
+            // every partition of the pairs is processed in its own forest and the forests are merged afterwards;
+            // as every merge is linear in the number of entities, there is a single partition per thread
+            int partitionSize = Math.max(MIN_PARTITION_SIZE, noOfComparisons / noOfThreads + 1);
+            ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+            try {
+                connectedComponents = RangeTask.invoke(pool, noOfComparisons, partitionSize, (fromIndex, toIndex) -> {
+                    UnionFind components = new UnionFind(noOfEntities);
+                    addEdges(fromIndex, toIndex, components);
+                    return components;
+                }, (lowerComponents, upperComponents) -> {
+                    lowerComponents.merge(upperComponents);
+                    return lowerComponents;
+                });
+            } finally {
+                pool.shutdown();
             }
         }
-
+        
+        entityIds1 = null;
+        entityIds2 = null;
+        similarities = null;
+        
         return getConnectedComponents();
     }
+    
+    // the pairs are processed in a single pass, chunk by chunk, without copying them
+    @Override
+    public List<EquivalenceCluster> getDuplicates(ChunkedSimilarityPairs simPairs) {
+        initializeData(simPairs);
+        initializeGraph();
+        
+        for (int chunkId = 0; chunkId < simPairs.getNoOfChunks(); chunkId++) {
+            entityIds1 = simPairs.getEntityIds1(chunkId);
+            entityIds2 = simPairs.getEntityIds2(chunkId);
+            similarities = simPairs.getSimilarities(chunkId);
+            addEdges(0, simPairs.getChunkSize(chunkId), connectedComponents);
+        }
+        
+        entityIds1 = null;
+        entityIds2 = null;
+        similarities = null;
+        
+        return getConnectedComponents();
+    }
+    
+    // add an edge for every pair of entities with a weight higher than the threshold
+    private void addEdges(int fromIndex, int toIndex, UnionFind components) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (threshold < similarities[i]) {
+                components.union(entityIds1[i], entityIds2[i] + datasetLimit);
+            }
+        }
+    }
 
     @Override
     public String getMethodInfo() {
@@ -1,18 +1,17 @@
 package EntityClustering;
 
-import DataModel.Comparison;
 import DataModel.EquivalenceCluster;
-import DataModel.GomoryHuTree;
 import DataModel.SimilarityPairs;
+import Utilities.DataStructures.FlowNetwork;
+import Utilities.DataStructures.UnionFind;
+import Utilities.RangeTask;
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.jgrapht.graph.DefaultWeightedEdge;
-import org.jgrapht.graph.SimpleWeightedGraph;
-
 /**
  *
  * @author G.A.P. II
@@ -22,7 +21,15 @@ public class CutClustering extends AbstractEntityClustering {
     private static final Logger LOGGER = Logger.getLogger(CutClustering.class.getName());
 
     protected double Acap;
-    protected SimpleWeightedGraph weightedGraph;
+    
+    private double[] similarities;
+    private int[] componentEdges;
+    private int[] edgeStarts;
+    private int[] entityIds1;
+    private int[] entityIds2;
+    private int[] localIds;
+    private int[] treeParents;
+    private int[][] components;
     
     public CutClustering() {
         super();
@@ -31,26 +38,157 @@ public class CutClustering extends AbstractEntityClustering {
         LOGGER.log(Level.INFO, "Initializing Cut Clustering...");
     }
 
+    // computes the equivalent flow tree of the given component along with the artificial sink, as in GomoryHuTree
+    private void clusterComponent(int componentId) {
+        final int[] members = components[componentId];
+        final int noOfMembers = members.length;
+        final int fromIndex = edgeStarts[componentId];
+        final int toIndex = edgeStarts[componentId + 1];
+        
+        // group the edges by their first local vertex, so that repeated pairs are adjacent
+        final int[] groupStarts = new int[noOfMembers + 1];
+        for (int i = fromIndex; i < toIndex; i++) {
+            int edge = componentEdges[i];
+            groupStarts[getFirstLocalId(edge) + 1]++;
+        }
+        for (int i = 0; i < noOfMembers; i++) {
+            groupStarts[i + 1] += groupStarts[i];
+        }
+        
+        final int[] groupedEdges = new int[toIndex - fromIndex];
+        final int[] groupIndices = Arrays.copyOf(groupStarts, noOfMembers);
+        for (int i = fromIndex; i < toIndex; i++) {
+            int edge = componentEdges[i];
+            groupedEdges[groupIndices[getFirstLocalId(edge)]++] = edge;
+        }
+        
+        // every vertex is connected with the artificial sink through a capacity edge "a"
+        final int noOfEdges = toIndex - fromIndex + noOfMembers;
+        final double[] weights = new double[noOfEdges];
+        final int[] vertices1 = new int[noOfEdges];
+        final int[] vertices2 = new int[noOfEdges];
+        int edgeIndex = 0;
+        for (int i = 0; i < noOfMembers; i++) {
+            vertices1[edgeIndex] = noOfMembers;
+            vertices2[edgeIndex] = i;
+            weights[edgeIndex++] = Acap;
+        }
+        
+        // a repeated pair of entities retains the weight of its first occurrence
+        final int[] lastNeighbor = new int[noOfMembers];
+        Arrays.fill(lastNeighbor, -1);
+        for (int vertex = 0; vertex < noOfMembers; vertex++) {
+            for (int i = groupStarts[vertex]; i < groupStarts[vertex + 1]; i++) {
+                int edge = groupedEdges[i];
+                int neighbor = getSecondLocalId(edge);
+                if (lastNeighbor[neighbor] == vertex) {
+                    continue;
+                }
+                
+                lastNeighbor[neighbor] = vertex;
+                vertices1[edgeIndex] = vertex;
+                vertices2[edgeIndex] = neighbor;
+                weights[edgeIndex++] = similarities[edge];
+            }
+        }
+        
+        final FlowNetwork flowNetwork = new FlowNetwork(noOfMembers + 1, vertices1, vertices2, weights, edgeIndex);
+        final int[] parents = flowNetwork.getEquivalentFlowTree(noOfMembers);
+        for (int i = 0; i < noOfMembers; i++) {
+            if (parents[i] != noOfMembers) {
+                treeParents[members[i]] = members[parents[i]];
+            }
+        }
+    }
+    
     @Override
     public List<EquivalenceCluster> getDuplicates(SimilarityPairs simPairs) {
         initializeData(simPairs);
         initializeGraph();
+        
+        entityIds1 = simPairs.getEntityIds1();
+        entityIds2 = simPairs.getEntityIds2();
+        similarities = simPairs.getSimilarities();
+        
+        // minimum cuts never cross the connected components of the similarity graph, which are processed independently
+        final int noOfComparisons = simPairs.getNoOfComparisons();
+        final UnionFind similarityComponents = new UnionFind(noOfEntities);
+        for (int i = 0; i < noOfComparisons; i++) {
+            if (isValidEdge(i)) {
+                similarityComponents.union(entityIds1[i], entityIds2[i] + datasetLimit);
+            }
+        }
+        
+        // singleton components are connected only with the artificial sink, forming no cluster
+        components = similarityComponents.getComponents(2);
+        localIds = new int[noOfEntities];
+        final int[] componentIds = new int[noOfEntities];
+        Arrays.fill(componentIds, -1);
+        for (int componentId = 0; componentId < components.length; componentId++) {
+            int[] members = components[componentId];
+            for (int i = 0; i < members.length; i++) {
+                componentIds[members[i]] = componentId;
+                localIds[members[i]] = i;
+            }
+        }
+        
+        edgeStarts = new int[components.length + 1];
+        for (int i = 0; i < noOfComparisons; i++) {
+            if (isValidEdge(i)) {
+                edgeStarts[componentIds[entityIds1[i]] + 1]++;
+            }
+        }
+        for (int i = 0; i < components.length; i++) {
+            edgeStarts[i + 1] += edgeStarts[i];
+        }
+        
+        componentEdges = new int[edgeStarts[components.length]];
+        final int[] edgeIndices = Arrays.copyOf(edgeStarts, components.length);
+        for (int i = 0; i < noOfComparisons; i++) {
+            if (isValidEdge(i)) {
+                componentEdges[edgeIndices[componentIds[entityIds1[i]]]++] = i;
+            }
+        }
+        
+        treeParents = new int[noOfEntities];
+        Arrays.fill(treeParents, -1);
+        if (noOfThreads < 2 || components.length < 2) {
+            for (int componentId = 0; componentId < components.length; componentId++) {
+                clusterComponent(componentId);
+            }
+        } else {
+            int partitionSize = RangeTask.getPartitionSize(components.length, noOfThreads, 1);
+            ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+            try {
+                RangeTask.forEach(pool, components.length, partitionSize, this::clusterComponent);
+            } finally {
+                pool.shutdown();
+            }
+        }
 
-        final Iterator<Comparison> iterator = simPairs.getPairIterator();
-        while (iterator.hasNext()) {	// add an edge for every pair of entities with a weight higher than the threshold
-            Comparison comparison = iterator.next();
-            if (threshold < comparison.getUtilityMeasure()) {
-            	DefaultWeightedEdge e = (DefaultWeightedEdge) weightedGraph.addEdge(comparison.getEntityId1()+"", (comparison.getEntityId2()+ datasetLimit)+"");
-            	weightedGraph.setEdgeWeight(e, comparison.getUtilityMeasure()); 
+        // the clusters are the subtrees of the equivalent flow tree after removing the artificial sink
+        for (int i = 0; i < noOfEntities; i++) {
+            if (0 <= treeParents[i]) {
+                connectedComponents.union(i, treeParents[i]);
             }
         }
         
-        GomoryHuTree ght = new GomoryHuTree(weightedGraph); //take the minimum cut (Gomory-Hu) tree from the similarity graph
-        similarityGraph = ght.MinCutTree();
-        similarityGraph.removeVertex(noOfEntities); //remove the artificial sink
+        components = null;
+        componentEdges = null;
+        edgeStarts = null;
+        entityIds1 = null;
+        entityIds2 = null;
+        localIds = null;
+        similarities = null;
+        treeParents = null;
         
         return getConnectedComponents();
     }
+    
+    // the smaller of the local ids of the adjacent entities
+    private int getFirstLocalId(int edge) {
+        return Math.min(localIds[entityIds1[edge]], localIds[entityIds2[edge] + datasetLimit]);
+    }
 
     @Override
     public String getMethodInfo() {
@@ -65,20 +203,14 @@ public class CutClustering extends AbstractEntityClustering {
              + "It determines the weight of the capacity edges, which connect every vertex with the artificial sink.\n";
     }
     
-    @Override
-    protected void initializeGraph() {
-        weightedGraph = new SimpleWeightedGraph<String, DefaultWeightedEdge>(DefaultWeightedEdge.class);
-        
-        String sinkLabel = ""+noOfEntities;
-        weightedGraph.addVertex(sinkLabel); //add the artificial sink
-        for (int i = 0; i < noOfEntities; i++) {
-            String edgeLabel = i+"";
-            weightedGraph.addVertex(edgeLabel);
-            DefaultWeightedEdge e = (DefaultWeightedEdge) weightedGraph.addEdge(sinkLabel, edgeLabel); // add the capacity edges "a"
-            weightedGraph.setEdgeWeight(e, Acap); //connecting the artificial sink with all vertices
-        }
-        
-        LOGGER.log(Level.INFO, "Added {0} nodes in the graph", noOfEntities);
+    // the larger of the local ids of the adjacent entities
+    private int getSecondLocalId(int edge) {
+        return Math.max(localIds[entityIds1[edge]], localIds[entityIds2[edge] + datasetLimit]);
+    }
+    
+    // an edge for every pair of distinct entities with a weight higher than the threshold
+    private boolean isValidEdge(int index) {
+        return threshold < similarities[index] && entityIds1[index] != entityIds2[index] + datasetLimit;
     }
     
     public void setA(double Acap) {
@@ -33,5 +33,7 @@ public interface IEntityClustering {
     
     public String getMethodParameters();
     
+    public double getSimilarityThreshold();
+    
     public void setSimilarityThreshold(double th);
 }
\ No newline at end of file
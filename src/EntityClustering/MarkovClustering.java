@@ -131,7 +131,7 @@ public class MarkovClustering extends AbstractEntityClustering {
             for (int j = lowLimit; j < n1; j++) {
                 double sim = Math.max(simMatrix[i][j], simMatrix[j][i]);
                 if ((sim > clusterThreshold) && (i != j)) {
-                    similarityGraph.addEdge(i, j);
+                    connectedComponents.union(i, j);
                 }
             }
         }
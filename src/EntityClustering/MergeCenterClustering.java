@@ -15,18 +15,10 @@
  */
 package EntityClustering;
 
-import DataModel.Comparison;
 import DataModel.EquivalenceCluster;
-import DataModel.SimilarityEdge;
 import DataModel.SimilarityPairs;
-import Utilities.Comparators.SimilarityEdgeComparator;
 
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,40 +41,33 @@ public class MergeCenterClustering extends AbstractEntityClustering {
         initializeData(simPairs);
         initializeGraph();
         
-        // add an edge for every pair of entities with a weight higher than the thrshold
-        final Queue<SimilarityEdge> SEqueue = new PriorityQueue<>(simPairs.getNoOfComparisons(), new SimilarityEdgeComparator());
-        final Iterator<Comparison> iterator = simPairs.getPairIterator();
-        while (iterator.hasNext()) {
-            Comparison comparison = iterator.next();
-            if (threshold < comparison.getUtilityMeasure()) {
-                SEqueue.add(new SimilarityEdge(comparison.getEntityId1(), (comparison.getEntityId2() + datasetLimit), comparison.getUtilityMeasure()));
-            }
-        }
+        final int[] sortedEdges = getSortedEdges(simPairs);
+        final int[] entityIds1 = simPairs.getEntityIds1();
+        final int[] entityIds2 = simPairs.getEntityIds2();
 
-        final Set<Integer> Center = new HashSet<Integer>();
-        final Set<Integer> NonCenter = new HashSet<Integer>();
-        while (!SEqueue.isEmpty()) {
-            SimilarityEdge se = SEqueue.remove();
-            int v1 = se.getModel1Pos();
-            int v2 = se.getModel2Pos();
+        final boolean[] center = new boolean[noOfEntities];
+        final boolean[] nonCenter = new boolean[noOfEntities];
+        for (int edge : sortedEdges) {
+            int v1 = entityIds1[edge];
+            int v2 = entityIds2[edge] + datasetLimit;
 
-            boolean v1IsCenter = Center.contains(v1);
-            boolean v2IsCenter = Center.contains(v2);
-            boolean v1IsNonCenter = NonCenter.contains(v1);
-            boolean v2IsNonCenter = NonCenter.contains(v2);
+            boolean v1IsCenter = center[v1];
+            boolean v2IsCenter = center[v2];
+            boolean v1IsNonCenter = nonCenter[v1];
+            boolean v2IsNonCenter = nonCenter[v2];
             
             if (!(v1IsCenter || v2IsCenter || v1IsNonCenter || v2IsNonCenter)) {
-                Center.add(v1);
-                NonCenter.add(v2);
-                similarityGraph.addEdge(v1, v2);
+                center[v1] = true;
+                nonCenter[v2] = true;
+                connectedComponents.union(v1, v2);
             } else if ((v1IsCenter && v2IsCenter) || (v1IsNonCenter && v2IsNonCenter)) {
                 continue;
             } else if (v1IsCenter) {
-                NonCenter.add(v2);
-                similarityGraph.addEdge(v1, v2);
+                nonCenter[v2] = true;
+                connectedComponents.union(v1, v2);
             } else if (v2IsCenter) {
-                NonCenter.add(v1);
-                similarityGraph.addEdge(v1, v2);
+                nonCenter[v1] = true;
+                connectedComponents.union(v1, v2);
             }
         }
 
@@ -0,0 +1,348 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package EntityClustering;
+
+import DataModel.Comparison;
+import DataModel.EquivalenceCluster;
+import DataModel.SimilarityPairs;
+import Utilities.RangeTask;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Markov Clustering over sparse matrices. Every matrix is stored column by
+ * column in compressed form, i.e., for every column, the ascending ids of its
+ * non-zero rows along with their values (the CSR layout of the transposed
+ * matrix, as all MCL operations are column-wise). Thus, the memory
+ * requirements are proportional to the number of edges rather than to the
+ * square of the number of entities. 
+ * 
+ * Every column of an expanded matrix is computed independently with a dense
+ * accumulator, it is inflated on the spot and its entries below the pruning
+ * threshold are discarded, so that the matrix remains sparse. Columns are
+ * processed in parallel, when multiple threads are available. With a pruning
+ * threshold of 0, the result is identical to that of the dense implementation.
+ *
+ * @author gap2
+ */
+public class SparseMarkovClustering extends MarkovClustering {
+
+    private final static int MIN_PARTITION_SIZE = 1000;
+    
+    private static final Logger LOGGER = Logger.getLogger(SparseMarkovClustering.class.getName());
+
+    protected double pruningThreshold;//define the minimum value for retaining a matrix entry after inflation
+    
+    private ThreadLocal<ColumnAccumulator> accumulators;
+
+    public SparseMarkovClustering() {
+        super();
+
+        pruningThreshold = 0.00001;
+        
+        LOGGER.log(Level.INFO, "Initializing Sparse Markov Clustering...");
+    }
+
+    private boolean areSimilar(SparseMatrix a, SparseMatrix b) {
+        for (int j = 0; j < noOfEntities; j++) {
+            int[] rows1 = a.rowIds[j];
+            int[] rows2 = b.rowIds[j];
+            double[] values1 = a.values[j];
+            double[] values2 = b.values[j];
+            
+            // entries missing from one of the two columns are equal to zero
+            int index1 = 0;
+            int index2 = 0;
+            while (index1 < rows1.length || index2 < rows2.length) {
+                double difference;
+                if (index2 == rows2.length || (index1 < rows1.length && rows1[index1] < rows2[index2])) {
+                    difference = values1[index1++];
+                } else if (index1 == rows1.length || rows2[index2] < rows1[index1]) {
+                    difference = values2[index2++];
+                } else {
+                    difference = values1[index1++] - values2[index2++];
+                }
+                
+                if (Math.abs(difference) > matrixSimThreshold) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private void expandColumn(SparseMatrix input, int column, SparseMatrix output, ColumnAccumulator accumulator) {
+        final int[] columnRows = input.rowIds[column];
+        final double[] columnValues = input.values[column];
+        if (datasetLimit != 0 && column < datasetLimit) {
+            // the columns of the first dataset retain only their diagonal
+            double diagonal = input.getDiagonal(column);
+            accumulator.add(column, diagonal * diagonal);
+        } else {
+            for (int index = 0; index < columnRows.length; index++) {
+                int k = columnRows[index];
+                double value = columnValues[index];
+                int[] kRows = input.rowIds[k];
+                double[] kValues = input.values[k];
+                for (int kIndex = 0; kIndex < kRows.length; kIndex++) {
+                    if (datasetLimit != 0 && datasetLimit <= kRows[kIndex]) {
+                        break;
+                    }
+                    accumulator.add(kRows[kIndex], kValues[kIndex] * value);
+                }
+            }
+            
+            if (datasetLimit != 0) {
+                double diagonal = input.getDiagonal(column);
+                accumulator.add(column, diagonal * diagonal);
+            }
+        }
+
+        accumulator.inflate(column, pruningThreshold);
+        accumulator.flush(output, column);
+    }
+
+    private SparseMatrix expand(SparseMatrix input) {
+        final SparseMatrix output = new SparseMatrix(noOfEntities);
+        if (noOfThreads < 2 || noOfEntities < 2 * MIN_PARTITION_SIZE) {
+            ColumnAccumulator accumulator = new ColumnAccumulator(noOfEntities);
+            for (int j = 0; j < noOfEntities; j++) {
+                expandColumn(input, j, output, accumulator);
+            }
+            return output;
+        }
+
+        int partitionSize = RangeTask.getPartitionSize(noOfEntities, noOfThreads, MIN_PARTITION_SIZE);
+        ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        accumulators = ThreadLocal.withInitial(() -> new ColumnAccumulator(noOfEntities));
+        try {
+            RangeTask.forEach(pool, noOfEntities, partitionSize, j -> expandColumn(input, j, output, accumulators.get()));
+        } finally {
+            pool.shutdown();
+            accumulators = null;
+        }
+        return output;
+    }
+
+    @Override
+    public List<EquivalenceCluster> getDuplicates(SimilarityPairs simPairs) {
+        initializeData(simPairs);
+        initializeGraph();
+        
+        SparseMatrix simMatrix = getSimilarityMatrix(simPairs);
+        SparseMatrix atStart;
+        int count = 0;
+        do {
+            atStart = simMatrix;
+            simMatrix = expand(simMatrix);
+            count++;
+        } while ((!areSimilar(atStart, simMatrix)) && (count < similarityChecksLimit));
+
+        // the matrix is not symmetric, but every edge is added once, regardless of its direction
+        for (int j = 0; j < noOfEntities; j++) {
+            int[] columnRows = simMatrix.rowIds[j];
+            double[] columnValues = simMatrix.values[j];
+            for (int index = 0; index < columnRows.length; index++) {
+                if (clusterThreshold < columnValues[index] && columnRows[index] != j) {
+                    connectedComponents.union(columnRows[index], j);
+                }
+            }
+        }
+
+        return getConnectedComponents();
+    }
+
+    @Override
+    public String getMethodInfo() {
+        return "Sparse Markov Clustering: implements the Markov Cluster Algorithm over sparse matrices.";
+    }
+
+    @Override
+    public String getMethodParameters() {
+        return "The Sparse Markov Cluster algorithm involves 5 parameters:\n" 
+             + explainThresholdParameter()
+             + "2) cluster threshold : double, default value : 0.001.\n"
+             + "It determines the similarity threshold for including an edge in the similarity graph.\n"
+             + "3) matrix similarity threshold : double, default value : 0.00001.\n"
+             + "It determines the similarity threshold for compariing all cells of two matrices and considering them similar.\n"
+             + "4) similarity checks limit : integer, default value : 2.\n"
+             + "It determines the maximum number of repetitions we apply the expansion-inflation process.\n"
+             + "5) pruning threshold : double, default value : 0.00001.\n"
+             + "It determines the minimum value of the matrix entries that are retained after every inflation.\n"
+             + "The diagonal entries are always retained. For 0, no entry is pruned.\n";
+    }
+    
+    private SparseMatrix getSimilarityMatrix(SimilarityPairs simPairs) {
+        // count the non-zero entries of every column, including its self-loop
+        int[] columnSizes = new int[noOfEntities];
+        Arrays.fill(columnSizes, 1);
+        Iterator<Comparison> iterator = simPairs.getPairIterator();
+        while (iterator.hasNext()) {
+            Comparison comparison = iterator.next();
+            if (threshold < comparison.getUtilityMeasure()) {
+                columnSizes[comparison.getEntityId2() + datasetLimit]++;
+            }
+        }
+        
+        int[][] columnRows = new int[noOfEntities][];
+        double[][] columnValues = new double[noOfEntities][];
+        for (int j = 0; j < noOfEntities; j++) {
+            columnRows[j] = new int[columnSizes[j]];
+            columnValues[j] = new double[columnSizes[j]];
+            columnSizes[j] = 0;
+        }
+        
+        iterator = simPairs.getPairIterator();
+        while (iterator.hasNext()) {
+            Comparison comparison = iterator.next();
+            if (threshold < comparison.getUtilityMeasure()) {
+                int column = comparison.getEntityId2() + datasetLimit;
+                columnRows[column][columnSizes[column]] = comparison.getEntityId1();
+                columnValues[column][columnSizes[column]] = comparison.getUtilityMeasure();
+                columnSizes[column]++;
+            }
+        }
+        
+        final SparseMatrix simMatrix = new SparseMatrix(noOfEntities);
+        final ColumnAccumulator accumulator = new ColumnAccumulator(noOfEntities);
+        for (int j = 0; j < noOfEntities; j++) {
+            // repeated pairs retain their last similarity, as in the dense matrix
+            for (int index = 0; index < columnSizes[j]; index++) {
+                accumulator.set(columnRows[j][index], columnValues[j][index]);
+            }
+            accumulator.set(j, 1.0);
+            columnRows[j] = null;
+            columnValues[j] = null;
+            
+            accumulator.sort();
+            accumulator.normalize();
+            accumulator.flush(simMatrix, j);
+        }
+        return simMatrix;
+    }
+
+    public void setPruningThreshold(double pruningThreshold) {
+        this.pruningThreshold = pruningThreshold;
+    }
+
+    private static class ColumnAccumulator {
+
+        private int noOfRows;
+        private final boolean[] touched;
+        private final double[] values;
+        private final int[] rowIds;
+
+        ColumnAccumulator(int noOfEntities) {
+            noOfRows = 0;
+            touched = new boolean[noOfEntities];
+            values = new double[noOfEntities];
+            rowIds = new int[noOfEntities];
+        }
+
+        void add(int rowId, double value) {
+            if (!touched[rowId]) {
+                touched[rowId] = true;
+                rowIds[noOfRows++] = rowId;
+            }
+            values[rowId] += value;
+        }
+        
+        void flush(SparseMatrix matrix, int column) {
+            int[] columnRows = Arrays.copyOf(rowIds, noOfRows);
+            double[] columnValues = new double[noOfRows];
+            for (int index = 0; index < noOfRows; index++) {
+                columnValues[index] = values[columnRows[index]];
+                touched[columnRows[index]] = false;
+                values[columnRows[index]] = 0;
+            }
+            
+            matrix.rowIds[column] = columnRows;
+            matrix.values[column] = columnValues;
+            noOfRows = 0;
+        }
+        
+        void inflate(int column, double pruningThreshold) {
+            sort();
+            normalize();
+            for (int index = 0; index < noOfRows; index++) {
+                values[rowIds[index]] = Math.pow(values[rowIds[index]], 2);
+            }
+            normalize();
+            
+            if (0 < pruningThreshold) {
+                int noOfRetainedRows = 0;
+                for (int index = 0; index < noOfRows; index++) {
+                    int rowId = rowIds[index];
+                    if (rowId == column || pruningThreshold <= values[rowId]) {
+                        rowIds[noOfRetainedRows++] = rowId;
+                    } else {
+                        touched[rowId] = false;
+                        values[rowId] = 0;
+                    }
+                }
+                
+                if (noOfRetainedRows < noOfRows) {
+                    noOfRows = noOfRetainedRows;
+                    normalize();
+                }
+            }
+        }
+        
+        void normalize() {
+            double sumCol = 0.0;
+            for (int index = 0; index < noOfRows; index++) {
+                sumCol += values[rowIds[index]];
+            }
+            
+            for (int index = 0; index < noOfRows; index++) {
+                values[rowIds[index]] /= sumCol;
+            }
+        }
+        
+        void set(int rowId, double value) {
+            add(rowId, 0);
+            values[rowId] = value;
+        }
+        
+        // rows are summed in ascending order, like in the dense implementation
+        void sort() {
+            Arrays.sort(rowIds, 0, noOfRows);
+        }
+    }
+
+    private static class SparseMatrix {
+
+        private final int[][] rowIds;
+        private final double[][] values;
+
+        SparseMatrix(int noOfEntities) {
+            rowIds = new int[noOfEntities][];
+            values = new double[noOfEntities][];
+        }
+
+        double getDiagonal(int column) {
+            int index = Arrays.binarySearch(rowIds[column], column);
+            return index < 0 ? 0 : values[column][index];
+        }
+    }
+}
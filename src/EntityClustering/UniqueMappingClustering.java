@@ -15,19 +15,11 @@
  */
 package EntityClustering;
 
-import DataModel.Comparison;
 import DataModel.EquivalenceCluster;
-import DataModel.SimilarityEdge;
 import DataModel.SimilarityPairs;
-import Utilities.Comparators.SimilarityEdgeComparator;
 import java.util.ArrayList;
 
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,11 +31,8 @@ public class UniqueMappingClustering extends AbstractEntityClustering {
 
     private static final Logger LOGGER = Logger.getLogger(UniqueMappingClustering.class.getName());
 
-    private Set<Integer> matchedIds; //the ids of entities that have been already matched
-    
     public UniqueMappingClustering() {
         super();
-        matchedIds = new HashSet<>();
         
         LOGGER.log(Level.INFO, "Initializing Unique Mapping Clustering...");
     }
@@ -55,34 +44,24 @@ public class UniqueMappingClustering extends AbstractEntityClustering {
         }
         initializeData(simPairs);
         initializeGraph();
-        final Queue<SimilarityEdge> SEqueue = new PriorityQueue<>(simPairs.getNoOfComparisons(), new SimilarityEdgeComparator());
-
-        final Iterator<Comparison> iterator = simPairs.getPairIterator();
-        while (iterator.hasNext()) { // add a similarity edge to the queue, for every pair of entities with a weight higher than the threshold
-            Comparison comparison = iterator.next();              
-            if (threshold < comparison.getUtilityMeasure()) {
-                SEqueue.add(new SimilarityEdge(comparison.getEntityId1(), comparison.getEntityId2()+datasetLimit, comparison.getUtilityMeasure()));
-            }
-        }
-
-//        System.out.println("Similarity Pairs ordered:");
-        while (!SEqueue.isEmpty()) {
-            SimilarityEdge se = SEqueue.remove();            
-            int e1 = se.getModel1Pos();
-            int e2 = se.getModel2Pos();
-
-//            System.out.print(se);
+        
+        final int[] sortedEdges = getSortedEdges(simPairs);
+        final int[] entityIds1 = simPairs.getEntityIds1();
+        final int[] entityIds2 = simPairs.getEntityIds2();
+        
+        final boolean[] matchedIds = new boolean[noOfEntities]; //the ids of entities that have been already matched
+        for (int edge : sortedEdges) {
+            int e1 = entityIds1[edge];
+            int e2 = entityIds2[edge] + datasetLimit;
                        
             //skip already matched entities (unique mapping contraint for clean-clean ER)
-            if (matchedIds.contains(e1) || matchedIds.contains(e2)) {
-//                System.out.println("\t-->\tSkipped!");
+            if (matchedIds[e1] || matchedIds[e2]) {
                 continue;
             }
             
-//            System.out.println("\t-->\tMatched!");
-            similarityGraph.addEdge(e1, e2);
-            matchedIds.add(e1);
-            matchedIds.add(e2);
+            connectedComponents.union(e1, e2);
+            matchedIds[e1] = true;
+            matchedIds[e2] = true;
         }
         
         return getConnectedComponents();
@@ -23,6 +23,8 @@ import Utilities.Enumerations.SimilarityMetric;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
@@ -30,7 +32,10 @@ import java.util.Set;
  */
 public abstract class AbstractEntityMatching implements IEntityMatching {
 
+    private static final Logger LOGGER = Logger.getLogger(AbstractEntityMatching.class.getName());
+
     protected boolean isCleanCleanER;
+    protected int noOfThreads;
 
     protected RepresentationModel representationModel;
     protected SimilarityMetric simMetric;
@@ -40,9 +45,14 @@ public abstract class AbstractEntityMatching implements IEntityMatching {
     public AbstractEntityMatching(RepresentationModel model, SimilarityMetric sMetric) {
         representationModel = model;
         simMetric = sMetric;
+        noOfThreads = 1;
         acceptableEntityTypes = new HashSet<>();
     }
 
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+
     public Set<String> getAcceptableEntityTypes() {
         return acceptableEntityTypes;
     }
@@ -58,6 +68,16 @@ public abstract class AbstractEntityMatching implements IEntityMatching {
     public boolean hasTypeRestriction() {
         return !acceptableEntityTypes.isEmpty();
     }
+
+    /**
+     * Sets the number of threads that build the models of the input entities
+     * and, where supported, execute the comparisons. The output is identical to
+     * that of a single thread.
+     */
+    public void setNoOfThreads(int threads) {
+        noOfThreads = Math.max(1, threads);
+        LOGGER.log(Level.INFO, "Number of threads\t:\t{0}", noOfThreads);
+    }
     
     @Override
     public SimilarityPairs executeComparisons(List<AbstractBlock> blocks, List<EntityProfile> profiles) {
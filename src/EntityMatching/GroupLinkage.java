@@ -25,7 +25,9 @@ import Utilities.Comparators.SimilarityEdgeComparator;
 import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
 import Utilities.TextModels.AbstractModel;
+import Utilities.TextModels.ModelBuilder;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
@@ -66,10 +68,11 @@ public class GroupLinkage extends AbstractEntityMatching {
         }
 
         isCleanCleanER = false;
-        entityModelsD1 = getModels(profilesD1);
+        final ModelBuilder modelBuilder = new ModelBuilder(representationModel, simMetric, noOfThreads);
+        entityModelsD1 = getModels(profilesD1, modelBuilder);
         if (profilesD2 != null) {
             isCleanCleanER = true;
-            entityModelsD2 = getModels(profilesD2);
+            entityModelsD2 = getModels(profilesD2, modelBuilder);
         }
 
         final SimilarityPairs simPairs = new SimilarityPairs(isCleanCleanER, blocks);
@@ -111,26 +114,34 @@ public class GroupLinkage extends AbstractEntityMatching {
 
     //Every element of the getModels list is an AbstractModel[] array, corresponding to 
     //a profile. Every element of these arrays is a text-model corresponding to an attribute.
-    private AbstractModel[][] getModels(List<EntityProfile> profiles) {
-        int entityCounter = 0;
-        final AbstractModel[][] ModelsList = new AbstractModel[profiles.size()][];
-        for (EntityProfile profile : profiles) {
-            int counter = 0;
-            ModelsList[entityCounter] = new AbstractModel[profile.getProfileSize()];
-            for (Attribute attribute : profile.getAttributes()) {
-                if (!attribute.getValue().isEmpty()) {
-                    ModelsList[entityCounter][counter] = RepresentationModel.getModel(representationModel, simMetric, attribute.getName());
-                    ModelsList[entityCounter][counter].updateModel(attribute.getValue());
-                    counter++;
-                }
+    private AbstractModel[][] getModels(List<EntityProfile> profiles, ModelBuilder modelBuilder) {
+        final List<EntityProfile> profilesList = ModelBuilder.toRandomAccess(profiles);
+        return modelBuilder.buildModels(new AbstractModel[profilesList.size()][], i -> getModels(profilesList.get(i), modelBuilder));
+    }
+
+    private AbstractModel[] getModels(EntityProfile profile, ModelBuilder modelBuilder) {
+        int counter = 0;
+        final AbstractModel[] models = new AbstractModel[profile.getProfileSize()];
+        for (Attribute attribute : profile.getAttributes()) {
+            if (!attribute.getValue().isEmpty()) {
+                models[counter] = modelBuilder.getModel(attribute.getName());
+                models[counter].updateModel(attribute.getValue());
+                modelBuilder.freeze(models[counter]);
+                counter++;
             }
-            entityCounter++;
         }
 
-        return ModelsList;
+        if (counter < models.length) { //empty values have no model
+            return Arrays.copyOf(models, counter);
+        }
+        return models;
     }
 
     private double getSimilarity(WeightedGraph<String, DefaultWeightedEdge> simGraph, int verticesNum) {
+        if (verticesNum == 0) { // none of the profiles has a non-empty value
+            return 0;
+        }
+        
         double nominator = 0;
         double denominator = (double) verticesNum; //m1+m2
         for (DefaultWeightedEdge e : simGraph.edgeSet()) {
@@ -151,7 +162,8 @@ public class GroupLinkage extends AbstractEntityMatching {
 
         int s1 = model1.length;
         int s2 = model2.length;
-        final Queue<SimilarityEdge> SEqueue = new PriorityQueue<>(s1 * s2, new SimilarityEdgeComparator());
+        // profiles with only empty values have no models, but the capacity has to be positive
+        final Queue<SimilarityEdge> SEqueue = new PriorityQueue<>(Math.max(1, s1 * s2), new SimilarityEdgeComparator());
         for (int i = 0; i < s1; i++) {
             for (int j = 0; j < s2; j++) {
                 double sim = model1[i].getSimilarity(model2[j]);
@@ -17,14 +17,22 @@ package EntityMatching;
 
 import DataModel.AbstractBlock;
 import DataModel.Attribute;
+import DataModel.ChunkedSimilarityPairs;
 import DataModel.Comparison;
 import DataModel.EntityProfile;
 import DataModel.SimilarityPairs;
 import Utilities.TextModels.AbstractModel;
+import Utilities.TextModels.ModelBuilder;
+import Utilities.TextModels.ModelCache;
 import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,13 +42,17 @@ import java.util.logging.Logger;
  */
 public class ProfileMatcher extends AbstractEntityMatching {
 
+    private final static int MIN_PARTITION_SIZE = 1000;
     private static final Logger LOGGER = Logger.getLogger(ProfileMatcher.class.getName());
 
+    protected double similarityThreshold;
     protected AbstractModel[] entityModelsD1;
     protected AbstractModel[] entityModelsD2;
+    protected ModelCache modelCache;
 
     public ProfileMatcher(RepresentationModel model, SimilarityMetric simMetric) {
         super(model, simMetric);
+        similarityThreshold = 0;
 
         LOGGER.log(Level.INFO, "Initializing profile matcher with : {0}, {1}", new Object[]{model, simMetric});
     }
@@ -52,59 +64,129 @@ public class ProfileMatcher extends AbstractEntityMatching {
     @Override
     public SimilarityPairs executeComparisons(List<AbstractBlock> blocks,
             List<EntityProfile> profilesD1, List<EntityProfile> profilesD2) {
-        if (profilesD1 == null) {
-            LOGGER.log(Level.SEVERE, "First list of entity profiles is null! "
-                    + "The first argument should always contain entities.");
-            System.exit(-1);
+        initializeModels(profilesD1, profilesD2);
+
+        final SimilarityPairs simPairs = new SimilarityPairs(isCleanCleanER, blocks);
+        final double[] comparisonsUpTo = getComparisonsUpTo(blocks);
+        if (noOfThreads < 2 || comparisonsUpTo[blocks.size()] < 2 * MIN_PARTITION_SIZE) {
+            executeComparisons(blocks, simPairs);
+            return simPairs;
         }
 
-        isCleanCleanER = false;
-        entityModelsD1 = getModels(profilesD1);
-        if (profilesD2 != null) {
-            isCleanCleanER = true;
-            entityModelsD2 = getModels(profilesD2);
+        executeComparisons(blocks, comparisonsUpTo, simPairs::addComparisons);
+        return simPairs;
+    }
+
+    /**
+     * Streams the pairs with a non-zero similarity into the given store, which
+     * grows chunk by chunk and, thus, may exceed the maximum size of an array.
+     */
+    public void executeComparisons(List<AbstractBlock> blocks,
+            List<EntityProfile> profilesD1, List<EntityProfile> profilesD2, ChunkedSimilarityPairs simPairs) {
+        initializeModels(profilesD1, profilesD2);
+
+        final double[] comparisonsUpTo = getComparisonsUpTo(blocks);
+        if (noOfThreads < 2 || comparisonsUpTo[blocks.size()] < 2 * MIN_PARTITION_SIZE) {
+            for (AbstractBlock block : blocks) {
+                final Iterator<Comparison> iterator = block.getComparisonIterator();
+                while (iterator.hasNext()) {
+                    Comparison currentComparison = iterator.next();
+                    if (isMatchCandidate(currentComparison)) {
+                        simPairs.addComparison(currentComparison);
+                    }
+                }
+            }
+            return;
         }
 
-        final SimilarityPairs simPairs = new SimilarityPairs(isCleanCleanER, blocks);
+        executeComparisons(blocks, comparisonsUpTo, simPairs::addComparisons);
+    }
+
+    // every thread processes a different range of blocks with a similar number of comparisons and stores 
+    // its results in a separate segment; the segments are passed to the store in block order, as soon as 
+    // all previous ones are stored, so that the output is identical to the sequential one and only the
+    // segments of the ranges in progress are held in memory besides the store
+    private void executeComparisons(List<AbstractBlock> blocks, double[] comparisonsUpTo, Consumer<SimilarityPairs> store) {
+        final double partitionSize = Math.max(MIN_PARTITION_SIZE, comparisonsUpTo[blocks.size()] / (4 * noOfThreads) + 1);
+        final ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        try {
+            final Deque<ForkJoinTask<SimilarityPairs>> segments = new ArrayDeque<>();
+            int fromIndex = 0;
+            while (fromIndex < blocks.size() || !segments.isEmpty()) {
+                if (fromIndex < blocks.size() && segments.size() < noOfThreads) {
+                    int toIndex = fromIndex + 1;
+                    while (toIndex < blocks.size() && comparisonsUpTo[toIndex] - comparisonsUpTo[fromIndex] < partitionSize) {
+                        toIndex++;
+                    }
+
+                    final List<AbstractBlock> segmentBlocks = blocks.subList(fromIndex, toIndex);
+                    segments.addLast(pool.submit(() -> {
+                        final SimilarityPairs segment = new SimilarityPairs(isCleanCleanER, segmentBlocks);
+                        executeComparisons(segmentBlocks, segment);
+                        return segment;
+                    }));
+                    fromIndex = toIndex;
+                } else {
+                    store.accept(segments.removeFirst().join());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    protected void executeComparisons(List<AbstractBlock> blocks, SimilarityPairs simPairs) {
         for (AbstractBlock block : blocks) {
             final Iterator<Comparison> iterator = block.getComparisonIterator();
             while (iterator.hasNext()) {
                 Comparison currentComparison = iterator.next();
-                currentComparison.setUtilityMeasure(getSimilarity(currentComparison));
-                if (currentComparison.getUtilityMeasure() > 0) {
+                if (isMatchCandidate(currentComparison)) {
                     simPairs.addComparison(currentComparison);
                 }
             }
         }
-        return simPairs;
     }
 
-    protected AbstractModel[] getModels(List<EntityProfile> profiles) {
-        int counter = 0;
-        final AbstractModel[] models = new AbstractModel[profiles.size()];
-        for (EntityProfile profile : profiles) {              
-            boolean foundType = false; //use only for datasets with specific target type!!            
-            models[counter] = RepresentationModel.getModel(representationModel, simMetric, profile.getEntityUrl());
-            for (Attribute attribute : profile.getAttributes()) {
-                models[counter].updateModel(attribute.getValue());
-                if (hasTypeRestriction()) {
-                    if (attribute.getName().equals("http://www.w3.org/1999/02/22-rdf-syntax-ns#type")) {
-                        foundType = true;
-                        if (!getAcceptableEntityTypes().contains(attribute.getValue())) {        
-                            models[counter] = RepresentationModel.getModel(representationModel, simMetric, profile.getEntityUrl());
-                            break; //go to next entity                            
-                        }
-                    }
-                }
+    private double[] getComparisonsUpTo(List<AbstractBlock> blocks) {
+        final double[] comparisonsUpTo = new double[blocks.size() + 1];
+        for (int i = 0; i < blocks.size(); i++) {
+            comparisonsUpTo[i + 1] = comparisonsUpTo[i] + blocks.get(i).getNoOfComparisons();
+        }
+        return comparisonsUpTo;
+    }
+
+    // the models of both datasets are built by the same builder, so that they share its term dictionary
+    protected AbstractModel[] getModels(List<EntityProfile> profiles, ModelBuilder modelBuilder) {
+        if (!hasTypeRestriction()) {
+            if (modelCache != null) {
+                return modelCache.getModels(profiles, modelBuilder);
             }
+            return modelBuilder.buildModels(profiles);
+        }
+
+        final List<EntityProfile> profilesList = ModelBuilder.toRandomAccess(profiles);
+        return modelBuilder.buildModels(profilesList.size(), i -> getTypedModel(profilesList.get(i), modelBuilder));
+    }
 
-            if (hasTypeRestriction() && !foundType) { //use only for datasets with specific target type!!
-                models[counter] = RepresentationModel.getModel(representationModel, simMetric, profile.getEntityUrl()); //reset model
+    //use only for datasets with specific target type!!
+    //entities of other or no type get an empty model
+    private AbstractModel getTypedModel(EntityProfile profile, ModelBuilder modelBuilder) {
+        boolean foundType = false;
+        final AbstractModel model = modelBuilder.getModel(profile.getEntityUrl());
+        for (Attribute attribute : profile.getAttributes()) {
+            model.updateModel(attribute.getValue());
+            if (attribute.getName().equals("http://www.w3.org/1999/02/22-rdf-syntax-ns#type")) {
+                foundType = true;
+                if (!getAcceptableEntityTypes().contains(attribute.getValue())) {
+                    return modelBuilder.getModel(profile.getEntityUrl());
+                }
             }
-            
-            counter++;
         }
-        return models;
+
+        if (!foundType) {
+            return modelBuilder.getModel(profile.getEntityUrl()); //reset model
+        }
+        return model;
     }
 
     @Override
@@ -122,6 +204,20 @@ public class ProfileMatcher extends AbstractEntityMatching {
              + "It determines the measure that estimates the similarity of two entity profiles.\n";
     }
 
+    public ModelCache getModelCache() {
+        return modelCache;
+    }
+
+    // the bound of the similarity that is estimated from the models without comparing them
+    protected double getSimilarityUpperBound(Comparison comparison) {
+        final AbstractModel model1 = entityModelsD1[comparison.getEntityId1()];
+        final AbstractModel model2 = isCleanCleanER ? entityModelsD2[comparison.getEntityId2()] : entityModelsD1[comparison.getEntityId2()];
+        if (model1.getNoOfDocuments() == 0 || model2.getNoOfDocuments() == 0) {
+            return 0;
+        }
+        return model1.getSimilarityUpperBound(model2);
+    }
+
     public double getSimilarity(Comparison comparison) {
         if (entityModelsD1[comparison.getEntityId1()].getNoOfDocuments() == 0) {            
             return 0;
@@ -138,4 +234,64 @@ public class ProfileMatcher extends AbstractEntityMatching {
         }
         return entityModelsD1[comparison.getEntityId1()].getSimilarity(entityModelsD1[comparison.getEntityId2()]);
     }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    private void initializeModels(List<EntityProfile> profilesD1, List<EntityProfile> profilesD2) {
+        if (profilesD1 == null) {
+            LOGGER.log(Level.SEVERE, "First list of entity profiles is null! "
+                    + "The first argument should always contain entities.");
+            System.exit(-1);
+        }
+
+        setModels(profilesD1, profilesD2);
+    }
+
+    /**
+     * Sets the similarity of the given comparison and returns true if it is 
+     * higher than the similarity threshold. The comparison is skipped if the
+     * upper bound of its similarity does not exceed the threshold.
+     */
+    protected boolean isMatchCandidate(Comparison comparison) {
+        if (getSimilarityUpperBound(comparison) <= similarityThreshold) {
+            comparison.setUtilityMeasure(0);
+            return false;
+        }
+
+        comparison.setUtilityMeasure(getSimilarity(comparison));
+        return similarityThreshold < comparison.getUtilityMeasure();
+    }
+
+    /**
+     * Sets the cache that stores the entity models of every dataset, so that they
+     * are built only once across runs with the same representation model. It 
+     * does not apply when there are restrictions on the acceptable entity types.
+     */
+    public void setModelCache(ModelCache cache) {
+        modelCache = cache;
+    }
+
+    /**
+     * Sets the threshold below which the similarity pairs are not stored, so
+     * that the comparisons that cannot exceed it are skipped in constant time.
+     * Entity clustering methods discard the pairs with a similarity up to their
+     * own threshold, thus passing the latter here leaves their output intact.
+     * The default value of 0 retains all pairs with a positive similarity.
+     */
+    public void setSimilarityThreshold(double th) {
+        similarityThreshold = Math.max(0, th);
+        LOGGER.log(Level.INFO, "Similarity threshold : {0}", similarityThreshold);
+    }
+
+    protected void setModels(List<EntityProfile> profilesD1, List<EntityProfile> profilesD2) {
+        isCleanCleanER = false;
+        final ModelBuilder modelBuilder = new ModelBuilder(representationModel, simMetric, noOfThreads);
+        entityModelsD1 = getModels(profilesD1, modelBuilder);
+        if (profilesD2 != null) {
+            isCleanCleanER = true;
+            entityModelsD2 = getModels(profilesD2, modelBuilder);
+        }
+    }
 }
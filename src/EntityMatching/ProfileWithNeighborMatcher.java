@@ -36,6 +36,7 @@ import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
 import Utilities.Enumerations.WeightingScheme;
 import Utilities.TextModels.CharacterNGrams;
+import Utilities.TextModels.ModelBuilder;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -109,12 +110,14 @@ public class ProfileWithNeighborMatcher extends ProfileMatcher {
             System.exit(-1);
         }
         
-        entityModelsD1 = getModels(profilesD1);
-        neighborModelsD1 = getNeighborModels(profilesD1);
+        final ModelBuilder modelBuilder = new ModelBuilder(representationModel, simMetric, noOfThreads);
+        final ModelBuilder neighborModelBuilder = new ModelBuilder(neighborRepModel, neighborSimMetric, noOfThreads);
+        entityModelsD1 = getModels(profilesD1, modelBuilder);
+        neighborModelsD1 = getNeighborModels(profilesD1, neighborModelBuilder);
         if (profilesD2 != null) {
             cleanCleanER = true;
-            entityModelsD2 = getModels(profilesD2);
-            neighborModelsD2 = getNeighborModels(profilesD2);
+            entityModelsD2 = getModels(profilesD2, modelBuilder);
+            neighborModelsD2 = getNeighborModels(profilesD2, neighborModelBuilder);
         }
         
         //meta-blocking
@@ -148,7 +151,7 @@ public class ProfileWithNeighborMatcher extends ProfileMatcher {
         return simPairs;
     }
     
-    private AbstractModel[] getNeighborModels(List<EntityProfile> profiles) {
+    private AbstractModel[] getNeighborModels(List<EntityProfile> profiles, ModelBuilder modelBuilder) {
         int counter = 0;
         
         Map<String,Set<String>> profilesURLs = new HashMap<>(profiles.size()); //key: entityURL, value: entity values
@@ -158,7 +161,7 @@ public class ProfileWithNeighborMatcher extends ProfileMatcher {
                 
         AbstractModel[] models  = new AbstractModel[profiles.size()];
         for (EntityProfile profile : profiles) {
-            models[counter] = RepresentationModel.getModel(neighborRepModel, neighborSimMetric, profile.getEntityUrl());                    
+            models[counter] = modelBuilder.getModel(profile.getEntityUrl());                    
             for (String neighbor: profile.getAllValues()) {
                 Set<String> values = profilesURLs.get(neighbor);
                 if (values != null) { //then this value is an entity id
@@ -167,6 +170,7 @@ public class ProfileWithNeighborMatcher extends ProfileMatcher {
                     }
                 }
             }
+            modelBuilder.freeze(models[counter]);
             counter++;
         }
         return models;
@@ -212,6 +216,12 @@ public class ProfileWithNeighborMatcher extends ProfileMatcher {
         return a * profile_similarity + (1-a) * neighbor_similarity;
     }
     
+    // the similarity also depends on the neighbor models, thus it is not bounded by the entity models
+    @Override
+    protected double getSimilarityUpperBound(Comparison comparison) {
+        return Double.POSITIVE_INFINITY;
+    }
+    
     public void setGroundTruth(AbstractDuplicatePropagation duplicatePropagation) {
         this.groundTruth = duplicatePropagation;
     }
@@ -0,0 +1,190 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package EntityMatching;
+
+import DataModel.AbstractBlock;
+import DataModel.DecomposedBlock;
+import DataModel.EntityProfile;
+import DataModel.EquivalenceCluster;
+import DataModel.SimilarityPairs;
+import EntityClustering.IEntityClustering;
+import Utilities.DataStructures.ComparisonPriorityStream;
+import Utilities.Enumerations.RepresentationModel;
+import Utilities.Enumerations.SimilarityMetric;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pay-as-you-go counterpart of the Profile Matcher: the comparisons of the 
+ * input blocks, typically the output of a Meta-blocking method, are executed
+ * in batches in descending order of their weight, so that the most likely 
+ * matches are detected first. The similarity pairs and the equivalence clusters
+ * of the comparisons executed so far are available at any time, e.g., after 
+ * a time budget is exhausted.
+ *
+ * @author gap2
+ */
+
+public class ProgressiveProfileMatcher extends ProfileMatcher {
+
+    private final static int DEFAULT_BATCH_SIZE = 10000;
+    private static final Logger LOGGER = Logger.getLogger(ProgressiveProfileMatcher.class.getName());
+
+    protected int batchSize;
+    protected double executedComparisons;
+
+    protected ComparisonPriorityStream comparisonStream;
+    protected SimilarityPairs similarityPairs;
+
+    public ProgressiveProfileMatcher(RepresentationModel model) {
+        this(model, SimilarityMetric.getModelDefaultSimMetric(model), DEFAULT_BATCH_SIZE);
+    }
+
+    public ProgressiveProfileMatcher(RepresentationModel model, SimilarityMetric simMetric, int batchSize) {
+        super(model, simMetric);
+        this.batchSize = Math.max(1, batchSize);
+        LOGGER.log(Level.INFO, "Batch size\t:\t{0}", this.batchSize);
+    }
+
+    // executes the next comparisons of the stream, at most as many as the given number
+    private SimilarityPairs executeBatch(int maxComparisons) {
+        final DecomposedBlock batch = comparisonStream.getNextBatch(maxComparisons);
+        final SimilarityPairs batchPairs = new SimilarityPairs(isCleanCleanER, batch.getEntities1().length);
+        executeComparisons(Collections.singletonList(batch), batchPairs);
+        executedComparisons += batch.getNoOfComparisons();
+        similarityPairs.addComparisons(batchPairs);
+        return batchPairs;
+    }
+
+    /**
+     * Executes all comparisons of the given blocks, i.e., the output is the same
+     * as that of the Profile Matcher, with the similarity pairs in descending 
+     * order of comparison weight.
+     */
+    @Override
+    public SimilarityPairs executeComparisons(List<AbstractBlock> blocks,
+            List<EntityProfile> profilesD1, List<EntityProfile> profilesD2) {
+        if (!initialize(blocks, profilesD1, profilesD2)) {
+            return null;
+        }
+        return executeComparisons(Long.MAX_VALUE);
+    }
+
+    /**
+     * Executes batches of comparisons until the given time budget (in 
+     * milliseconds) is exhausted or no comparisons are left and returns the 
+     * similarity pairs of all comparisons executed since initialization. A 
+     * batch that has started is always completed.
+     */
+    public SimilarityPairs executeComparisons(long timeBudget) {
+        long startTime = System.currentTimeMillis();
+        while (hasNextBatch() && System.currentTimeMillis() - startTime < timeBudget) {
+            executeNextBatch();
+        }
+        LOGGER.log(Level.INFO, "Executed comparisons\t:\t{0}", executedComparisons);
+        return getSimilarityPairs();
+    }
+
+    /**
+     * Executes the next batch of comparisons and returns the similarity pairs
+     * of this batch only, or null, if no comparisons are left.
+     */
+    public SimilarityPairs executeNextBatch() {
+        if (!hasNextBatch()) {
+            return null;
+        }
+
+        return executeBatch(batchSize);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Applies the given clustering method to the similarity pairs of the 
+     * comparisons executed so far.
+     */
+    public List<EquivalenceCluster> getDuplicates(IEntityClustering clustering) {
+        return clustering.getDuplicates(getSimilarityPairs());
+    }
+
+    public double getExecutedComparisons() {
+        return executedComparisons;
+    }
+
+    @Override
+    public String getMethodInfo() {
+        return "Progressive Profile Matcher : it executes the comparisons of the Profile Matcher in batches, "
+                + "in descending order of their Meta-blocking weight, so that partial results are available at any time.";
+    }
+
+    @Override
+    public String getMethodParameters() {
+        return super.getMethodParameters()
+                + "3) batch size : the number of comparisons executed at a time. Default value: " + DEFAULT_BATCH_SIZE + ".\n";
+    }
+
+    public int getNoOfRemainingComparisons() {
+        if (comparisonStream == null) {
+            return 0;
+        }
+        return comparisonStream.getNoOfRemainingComparisons();
+    }
+
+    /**
+     * Returns the similarity pairs of the comparisons executed so far, in their
+     * order of execution. They are not copied, so the returned pairs grow with
+     * every subsequent batch until the next initialization.
+     */
+    public SimilarityPairs getSimilarityPairs() {
+        return similarityPairs;
+    }
+
+    public boolean hasNextBatch() {
+        return comparisonStream != null && comparisonStream.hasNext();
+    }
+
+    /**
+     * Builds the entity models and arranges the comparisons of the given blocks
+     * in descending order of weight. Only decomposed blocks carry comparison
+     * weights, e.g., those of Cardinality Node Pruning.
+     *
+     * @throws IllegalArgumentException if a block is not a decomposed one
+     */
+    public boolean initialize(List<AbstractBlock> blocks, List<EntityProfile> profilesD1, List<EntityProfile> profilesD2) {
+        if (profilesD1 == null) {
+            LOGGER.log(Level.SEVERE, "First list of entity profiles is null! "
+                    + "The first argument should always contain entities.");
+            return false;
+        }
+
+        setModels(profilesD1, profilesD2);
+        comparisonStream = new ComparisonPriorityStream(blocks);
+        similarityPairs = new SimilarityPairs(isCleanCleanER, Math.min(batchSize, comparisonStream.getNoOfComparisons()));
+        executedComparisons = 0;
+        LOGGER.log(Level.INFO, "Scheduled comparisons\t:\t{0}", comparisonStream.getNoOfComparisons());
+        return true;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        LOGGER.log(Level.INFO, "Batch size\t:\t{0}", this.batchSize);
+    }
+}
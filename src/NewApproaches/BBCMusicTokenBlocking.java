@@ -5,6 +5,7 @@ import static BlockBuilding.IBlockBuilding.VALUE_LABEL;
 import BlockBuilding.StandardBlocking;
 import DataModel.Attribute;
 import DataModel.EntityProfile;
+import Utilities.Enumerations.IndexBackend;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
@@ -31,6 +32,7 @@ public class BBCMusicTokenBlocking extends StandardBlocking {
     protected Set<String> dbpediaredicates;
 
     public BBCMusicTokenBlocking() {
+        indexBackend = IndexBackend.LUCENE;
         bbcPredicates = new HashSet<>();
         bbcPredicates.add("<http://purl.org/dc/elements/1.1/title>");
         bbcPredicates.add("<http://open.vocab.org/terms/sortLabel>");
@@ -111,4 +113,18 @@ public class BBCMusicTokenBlocking extends StandardBlocking {
             LOGGER.log(Level.SEVERE, null, ex);
         }
     }
+
+    @Override
+    public void setIndexBackend(IndexBackend backend) {
+        if (backend != IndexBackend.LUCENE) {
+            LOGGER.log(Level.WARNING, "{0} relies on the Lucene index. Ignoring index backend\t:\t{1}", 
+                    new Object[]{getClass().getSimpleName(), backend});
+        }
+    }
+
+    // the blocking keys are derived only by the Lucene indexing of this class
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
 }
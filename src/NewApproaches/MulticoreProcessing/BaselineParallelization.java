@@ -3,7 +3,6 @@ package NewApproaches.MulticoreProcessing;
 import BlockBuilding.StandardBlocking;
 import BlockProcessing.ComparisonRefinement.CardinalityNodePruning;
 import DataModel.AbstractBlock;
-import DataModel.Attribute;
 import DataModel.Comparison;
 import DataModel.EntityProfile;
 import DataModel.IdDuplicates;
@@ -19,6 +18,8 @@ import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
 import Utilities.Enumerations.WeightingScheme;
 import Utilities.TextModels.AbstractModel;
+import Utilities.TextModels.ModelBuilder;
+import Utilities.TextModels.ModelCache;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -39,6 +40,7 @@ public class BaselineParallelization extends CardinalityNodePruning {
 
     protected AbstractModel[] entityModels;
     protected IEntityMatching matcher;
+    protected ModelCache modelCache;
     protected Integer[] sortedEntities;
     protected RandomThread[] threads;
     protected RepresentationModel representationModel;
@@ -104,32 +106,18 @@ public class BaselineParallelization extends CardinalityNodePruning {
     }
 
     protected void buildModels(List<EntityProfile> profilesD1, List<EntityProfile> profilesD2) {
-        int counter = 0;
+        List<EntityProfile> profiles = profilesD1;
         if (cleanCleanER) {
-            entityModels = new AbstractModel[profilesD1.size()+profilesD2.size()];
-            for (EntityProfile profile : profilesD1) {
-                entityModels[counter] = RepresentationModel.getModel(representationModel, simMetric, profile.getEntityUrl());
-                for (Attribute attribute : profile.getAttributes()) {
-                    entityModels[counter].updateModel(attribute.getValue());
-                }
-                counter++;
-            }
-            for (EntityProfile profile : profilesD2) {
-                entityModels[counter] = RepresentationModel.getModel(representationModel, simMetric, profile.getEntityUrl());
-                for (Attribute attribute : profile.getAttributes()) {
-                    entityModels[counter].updateModel(attribute.getValue());
-                }
-                counter++;
-            }
+            profiles = new ArrayList<>(profilesD1.size() + profilesD2.size());
+            profiles.addAll(profilesD1);
+            profiles.addAll(profilesD2);
+        }
+
+        final ModelBuilder modelBuilder = new ModelBuilder(representationModel, simMetric, noOfNodes);
+        if (modelCache != null) {
+            entityModels = modelCache.getModels(profiles, modelBuilder);
         } else {
-            entityModels = new AbstractModel[profilesD1.size()];
-            for (EntityProfile profile : profilesD1) {
-                entityModels[counter] = RepresentationModel.getModel(representationModel, simMetric, profile.getEntityUrl());
-                for (Attribute attribute : profile.getAttributes()) {
-                    entityModels[counter].updateModel(attribute.getValue());
-                }
-                counter++;
-            }
+            entityModels = modelBuilder.buildModels(profiles);
         }
     }
 
@@ -140,6 +128,10 @@ public class BaselineParallelization extends CardinalityNodePruning {
         return -1;
     }
 
+    public void setModelCache(ModelCache cache) {
+        modelCache = cache;
+    }
+
     protected void sortEntities() {
         final List<Integer> entityIds = new ArrayList<>();
         if (cleanCleanER) {
@@ -287,6 +279,7 @@ public class BaselineParallelization extends CardinalityNodePruning {
         for (int datasetIndex = 0; datasetIndex < d1Datasets.length; datasetIndex++) {
             Preprocessing preprocessing = new Preprocessing(datasetsPaths[datasetIndex] + d1Datasets[datasetIndex],
                     datasetsPaths[datasetIndex] + d2Datasets[datasetIndex]);
+            final ModelCache modelCache = new ModelCache(datasetsPaths[datasetIndex] + "models");
 
             List<AbstractBlock> valueBlocks = preprocessing.getBlocks(new StandardBlocking());
             
@@ -310,6 +303,7 @@ public class BaselineParallelization extends CardinalityNodePruning {
                     BaselineParallelization rp = new BaselineParallelization(8,
                             preprocessing.getProfiles1(), preprocessing.getProfiles2(),
                             repModel, simMetric);
+                    rp.setModelCache(modelCache);
                     final List<AbstractBlock> newBlocks = rp.refineBlocks(copyOfBlocks);
 
                     EntitySerializationReader esr = new EntitySerializationReader(mainDirectory);
@@ -5,6 +5,7 @@ import static BlockBuilding.IBlockBuilding.VALUE_LABEL;
 import BlockBuilding.StandardBlocking;
 import DataModel.Attribute;
 import DataModel.EntityProfile;
+import Utilities.Enumerations.IndexBackend;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
@@ -28,6 +29,7 @@ public class RexaDBLPTokenBlocking extends StandardBlocking {
     protected Set<String> labelPredicates;    
 
     public RexaDBLPTokenBlocking() {
+        indexBackend = IndexBackend.LUCENE;
         labelPredicates = new HashSet<>();                
         labelPredicates.add("http://xmlns.com/foaf/0.1/name");
         labelPredicates.add("http://www.w3.org/2000/01/rdf-schema#label");        
@@ -75,4 +77,18 @@ public class RexaDBLPTokenBlocking extends StandardBlocking {
             LOGGER.log(Level.SEVERE, null, ex);
         }
     }
+
+    @Override
+    public void setIndexBackend(IndexBackend backend) {
+        if (backend != IndexBackend.LUCENE) {
+            LOGGER.log(Level.WARNING, "{0} relies on the Lucene index. Ignoring index backend\t:\t{1}", 
+                    new Object[]{getClass().getSimpleName(), backend});
+        }
+    }
+
+    // the blocking keys are derived only by the Lucene indexing of this class
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
 }
@@ -5,6 +5,7 @@ import static BlockBuilding.IBlockBuilding.VALUE_LABEL;
 import BlockBuilding.StandardBlocking;
 import DataModel.Attribute;
 import DataModel.EntityProfile;
+import Utilities.Enumerations.IndexBackend;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
@@ -30,6 +31,7 @@ public class YagoIMDbTokenBlocking extends StandardBlocking {
     protected Set<String> labelPredicates;    
 
     public YagoIMDbTokenBlocking() {
+        indexBackend = IndexBackend.LUCENE;
         labelPredicates = new HashSet<>();                
         labelPredicates.add("rdfs:label");
         labelPredicates.add("label");
@@ -85,4 +87,18 @@ public class YagoIMDbTokenBlocking extends StandardBlocking {
             LOGGER.log(Level.SEVERE, null, ex);
         }
     }
+
+    @Override
+    public void setIndexBackend(IndexBackend backend) {
+        if (backend != IndexBackend.LUCENE) {
+            LOGGER.log(Level.WARNING, "{0} relies on the Lucene index. Ignoring index backend\t:\t{1}", 
+                    new Object[]{getClass().getSimpleName(), backend});
+        }
+    }
+
+    // the blocking keys are derived only by the Lucene indexing of this class
+    @Override
+    public boolean supportsIncrementalBuilding() {
+        return false;
+    }
 }
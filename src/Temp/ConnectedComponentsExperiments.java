@@ -12,7 +12,6 @@ import DataReader.GroundTruthReader.GtSerializationReader;
 import DataReader.GroundTruthReader.IGroundTruthReader;
 import EntityClustering.ConnectedComponentsClustering;
 import EntityClustering.IEntityClustering;
-import EntityMatching.IEntityMatching;
 import EntityMatching.ProfileMatcher;
 import Utilities.BlocksPerformance;
 import Utilities.ClustersPerformance;
@@ -21,6 +20,7 @@ import Utilities.DataStructures.UnilateralDuplicatePropagation;
 import Utilities.Enumerations.BlockBuildingMethod;
 import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
+import Utilities.TextModels.ModelCache;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -60,6 +60,7 @@ public class ConnectedComponentsExperiments {
 
             IEntityReader eReader = new EntitySerializationReader(datasetProfiles[datasetId]);
             List<EntityProfile> profiles = eReader.getEntityProfiles();
+            final ModelCache modelCache = new ModelCache(datasetProfiles[datasetId] + "Models");
             System.out.println("Input Entity Profiles\t:\t" + profiles.size());
 
             IGroundTruthReader gtReader = new GtSerializationReader(datasetGroundtruth[datasetId]);
@@ -97,7 +98,8 @@ public class ConnectedComponentsExperiments {
 
                     final List<AbstractBlock> copyOfBlocks = new ArrayList<>(blocks);
 
-                    IEntityMatching em = new ProfileMatcher(repModel, simMetric);
+                    ProfileMatcher em = new ProfileMatcher(repModel, simMetric);
+                    em.setModelCache(modelCache);
                     SimilarityPairs simPairs = em.executeComparisons(copyOfBlocks, profiles);
 
                     for (double th = 0.1; th < 1.0; th += 0.1) {
@@ -11,7 +11,6 @@ import DataReader.EntityReader.EntitySerializationReader;
 import DataReader.EntityReader.IEntityReader;
 import DataReader.GroundTruthReader.GtSerializationReader;
 import DataReader.GroundTruthReader.IGroundTruthReader;
-import EntityMatching.IEntityMatching;
 import EntityMatching.ProfileMatcher;
 import Utilities.BlocksPerformance;
 import Utilities.ClustersPerformance;
@@ -20,6 +19,7 @@ import Utilities.DataStructures.UnilateralDuplicatePropagation;
 import Utilities.Enumerations.BlockBuildingMethod;
 import Utilities.Enumerations.RepresentationModel;
 import Utilities.Enumerations.SimilarityMetric;
+import Utilities.TextModels.ModelCache;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -59,6 +59,7 @@ public class MarkovClusteringExperiments {
 
             IEntityReader eReader = new EntitySerializationReader(datasetProfiles[datasetId]);
             List<EntityProfile> profiles = eReader.getEntityProfiles();
+            final ModelCache modelCache = new ModelCache(datasetProfiles[datasetId] + "Models");
             System.out.println("Input Entity Profiles\t:\t" + profiles.size());
 
             IGroundTruthReader gtReader = new GtSerializationReader(datasetGroundtruth[datasetId]);
@@ -99,7 +100,8 @@ public class MarkovClusteringExperiments {
 
                     final List<AbstractBlock> copyOfBlocks = new ArrayList<>(blocks);
 
-                    IEntityMatching em = new ProfileMatcher(repModel, simMetric);
+                    ProfileMatcher em = new ProfileMatcher(repModel, simMetric);
+                    em.setModelCache(modelCache);
                     SimilarityPairs simPairs = em.executeComparisons(copyOfBlocks, profiles);
 
                     for (double th = 0.1; th < 1.0; th += 0.1) {
@@ -0,0 +1,126 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.DataStructures;
+
+import DataModel.BilateralBlock;
+import DataModel.UnilateralBlock;
+
+/**
+ * Stores the entities of all blocks in a single array, block after block, so
+ * that the neighbors of an entity can be enumerated without dereferencing the
+ * block objects. Entity ids are global, i.e., the ids of the second dataset in
+ * Clean-Clean ER are shifted by the dataset limit, as in EntityIndex. For every
+ * bilateral block, the entities of the first dataset precede those of the second.
+ *
+ * @author gap2
+ */
+
+public class BlockArena {
+
+    private final boolean cleanCleanER;
+    private final int datasetLimit;
+
+    private final int[] entities;
+    private final int[] offsets;
+
+    public BlockArena(BilateralBlock[] blocks, int dLimit) {
+        cleanCleanER = true;
+        datasetLimit = dLimit;
+
+        long totalEntities = 0;
+        for (BilateralBlock block : blocks) {
+            totalEntities += block.getIndex1Entities().length + block.getIndex2Entities().length;
+        }
+        entities = new int[getArenaSize(totalEntities)];
+
+        int position = 0;
+        offsets = new int[2 * blocks.length + 1];
+        for (int i = 0; i < blocks.length; i++) {
+            offsets[2 * i] = position;
+            for (int id1 : blocks[i].getIndex1Entities()) {
+                entities[position++] = id1;
+            }
+            offsets[2 * i + 1] = position;
+            for (int id2 : blocks[i].getIndex2Entities()) {
+                entities[position++] = id2 + datasetLimit;
+            }
+        }
+        offsets[2 * blocks.length] = position;
+    }
+
+    public BlockArena(UnilateralBlock[] blocks) {
+        cleanCleanER = false;
+        datasetLimit = 0;
+
+        long totalEntities = 0;
+        for (UnilateralBlock block : blocks) {
+            totalEntities += block.getEntities().length;
+        }
+        entities = new int[getArenaSize(totalEntities)];
+
+        int position = 0;
+        offsets = new int[blocks.length + 1];
+        for (int i = 0; i < blocks.length; i++) {
+            offsets[i] = position;
+            for (int id : blocks[i].getEntities()) {
+                entities[position++] = id;
+            }
+        }
+        offsets[blocks.length] = position;
+    }
+
+    private static int getArenaSize(long totalEntities) {
+        if (Integer.MAX_VALUE - 8 < totalEntities) {
+            throw new IllegalArgumentException("Too many block assignments for a single array\t:\t" + totalEntities);
+        }
+        return (int) totalEntities;
+    }
+
+    /**
+     * @return the entities of all blocks; positions should be obtained through
+     * getNeighborsStart() and getNeighborsEnd(). The array should not be modified.
+     */
+    public int[] getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return the position after the last neighbor of the given entity in the
+     * given block. In Dirty ER, the range includes the entity itself.
+     */
+    public int getNeighborsEnd(int blockIndex, int entityId) {
+        if (!cleanCleanER) {
+            return offsets[blockIndex + 1];
+        }
+        return entityId < datasetLimit ? offsets[2 * blockIndex + 2] : offsets[2 * blockIndex + 1];
+    }
+
+    /**
+     * @return the position of the first neighbor of the given entity in the 
+     * given block, i.e., of the first entity of the other dataset in Clean-Clean ER
+     */
+    public int getNeighborsStart(int blockIndex, int entityId) {
+        if (!cleanCleanER) {
+            return offsets[blockIndex];
+        }
+        return entityId < datasetLimit ? offsets[2 * blockIndex + 1] : offsets[2 * blockIndex];
+    }
+
+    public boolean isCleanCleanER() {
+        return cleanCleanER;
+    }
+}
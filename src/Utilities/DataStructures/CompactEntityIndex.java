@@ -0,0 +1,313 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.DataStructures;
+
+import DataModel.AbstractBlock;
+import Utilities.RangeTask;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Entity index in compressed sparse row layout: the block ids of all entities
+ * are stored in a single array, delimited by an array of per-entity offsets,
+ * instead of one array object per entity. Optionally, the ascending block ids
+ * of every entity are further compressed into variable-length gaps in a single
+ * byte array, preceded by their number. The index can be built by several
+ * threads, with the same result as a single thread.
+ * 
+ * Unlike EntityIndex, getEntityBlocks() returns a new array on every call;
+ * getEntityBlocksArray() and getEntityBlocksOffset() give access to the shared
+ * array without copying it, unless the index is compressed.
+ *
+ * @author gap2
+ */
+
+public class CompactEntityIndex extends EntityIndex {
+
+    private static final long serialVersionUID = 5236741834598342271L;
+
+    private final static int MIN_PARTITION_SIZE = 1000;
+
+    private final boolean compressed;
+    private final int noOfThreads;
+
+    private byte[] encodedBlocks;
+    private int[] blockIds;
+    private int[] offsets; // noOfEntities + 1 positions in blockIds or encodedBlocks
+
+    private transient ForkJoinPool pool;
+
+    public CompactEntityIndex(List<AbstractBlock> blocks, boolean compressed, int noOfThreads) {
+        this.compressed = compressed;
+        this.noOfThreads = Math.max(1, noOfThreads);
+        if (!isValidInput(blocks)) {
+            return;
+        }
+
+        firstPass(blocks);
+        if (1 < this.noOfThreads) {
+            pool = new ForkJoinPool(this.noOfThreads);
+        }
+        try {
+            indexEntities();
+            if (compressed) {
+                compressBlockIds();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    // stores the ascending block ids of every entity as varint-encoded gaps, preceded by their number
+    private void compressBlockIds() {
+        final int[] encodedLengths = new int[noOfEntities + 1];
+        forEach(noOfEntities, entityId -> {
+            int length = getVarIntLength(offsets[entityId + 1] - offsets[entityId]);
+            int previousId = 0;
+            for (int i = offsets[entityId]; i < offsets[entityId + 1]; i++) {
+                length += getVarIntLength(blockIds[i] - previousId);
+                previousId = blockIds[i];
+            }
+            encodedLengths[entityId + 1] = length;
+        });
+        for (int i = 0; i < noOfEntities; i++) {
+            encodedLengths[i + 1] += encodedLengths[i];
+        }
+
+        encodedBlocks = new byte[encodedLengths[noOfEntities]];
+        forEach(noOfEntities, entityId -> {
+            int position = writeVarInt(offsets[entityId + 1] - offsets[entityId], encodedLengths[entityId]);
+            int previousId = 0;
+            for (int i = offsets[entityId]; i < offsets[entityId + 1]; i++) {
+                position = writeVarInt(blockIds[i] - previousId, position);
+                previousId = blockIds[i];
+            }
+        });
+        
+        offsets = encodedLengths;
+        blockIds = null;
+    }
+
+    private void forEach(int size, IntConsumer action) {
+        if (pool == null || size < 2 * MIN_PARTITION_SIZE) {
+            for (int i = 0; i < size; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+
+        RangeTask.forEach(pool, size, RangeTask.getPartitionSize(size, noOfThreads, MIN_PARTITION_SIZE), action);
+    }
+
+    // passes the ids of all entities in the given block to the given consumer
+    private void forEachEntity(int blockIndex, IntConsumer action) {
+        if (cleanCleanER) {
+            for (int id1 : bBlocks[blockIndex].getIndex1Entities()) {
+                action.accept(id1);
+            }
+            for (int id2 : bBlocks[blockIndex].getIndex2Entities()) {
+                action.accept(datasetLimit + id2);
+            }
+        } else {
+            for (int id : uBlocks[blockIndex].getEntities()) {
+                action.accept(id);
+            }
+        }
+    }
+
+    @Override
+    public int[] getEntityBlocks(int entityId, int useDLimit) {
+        entityId += useDLimit * datasetLimit;
+        if (noOfEntities <= entityId) {
+            return null;
+        }
+
+        if (!compressed) {
+            return Arrays.copyOfRange(blockIds, offsets[entityId], offsets[entityId + 1]);
+        }
+
+        int position = offsets[entityId];
+        int value = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            currentByte = encodedBlocks[position++];
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while (currentByte < 0);
+        
+        int previousId = 0;
+        final int[] entityBlocks = new int[value];
+        for (int i = 0; i < entityBlocks.length; i++) {
+            value = 0;
+            shift = 0;
+            do {
+                currentByte = encodedBlocks[position++];
+                value |= (currentByte & 0x7F) << shift;
+                shift += 7;
+            } while (currentByte < 0);
+            previousId += value;
+            entityBlocks[i] = previousId;
+        }
+        return entityBlocks;
+    }
+
+    // the shared array of block ids, unless it is compressed, in which case the blocks of the entity are decoded
+    @Override
+    public int[] getEntityBlocksArray(int entityId, int useDLimit) {
+        if (compressed) {
+            return getEntityBlocks(entityId, useDLimit);
+        }
+        return blockIds;
+    }
+
+    @Override
+    public int getEntityBlocksOffset(int entityId, int useDLimit) {
+        if (compressed) {
+            return 0;
+        }
+        return offsets[entityId + useDLimit * datasetLimit];
+    }
+
+    @Override
+    public int getNoOfEntityBlocks(int entityId, int useDLimit) {
+        entityId += useDLimit * datasetLimit;
+        if (!compressed) {
+            return offsets[entityId + 1] - offsets[entityId];
+        }
+
+        int position = offsets[entityId];
+        int value = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            currentByte = encodedBlocks[position++];
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while (currentByte < 0);
+        return value;
+    }
+
+    private static int getVarIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Materializes the nested arrays of EntityIndex; meant for compatibility, 
+     * as it requires as much memory as the uncompacted index.
+     */
+    @Override
+    public int[][] getWholeIndex() {
+        final int[][] wholeIndex = new int[noOfEntities][];
+        for (int i = 0; i < noOfEntities; i++) {
+            wholeIndex[i] = getEntityBlocks(i, 0);
+        }
+        return wholeIndex;
+    }
+
+    private void indexEntities() {
+        if (pool == null) {
+            indexEntitiesSequentially();
+        } else {
+            indexEntitiesInParallel();
+        }
+
+        //restore the block order of every entity and count its comparisons
+        entityComparisons = new double[noOfEntities];
+        forEach(noOfEntities, entityId -> {
+            if (pool != null) {
+                Arrays.sort(blockIds, offsets[entityId], offsets[entityId + 1]);
+            }
+            for (int i = offsets[entityId]; i < offsets[entityId + 1]; i++) {
+                entityComparisons[entityId] += getNoOfNeighbors(blockIds[i], entityId);
+            }
+        });
+    }
+
+    // the counters are shared by all threads, thus they are atomic
+    private void indexEntitiesInParallel() {
+        //count blocks per entity
+        final AtomicIntegerArray counters = new AtomicIntegerArray(noOfEntities);
+        forEach(noOfBlocks, blockIndex -> forEachEntity(blockIndex, counters::incrementAndGet));
+
+        offsets = new int[noOfEntities + 1];
+        for (int i = 0; i < noOfEntities; i++) {
+            offsets[i + 1] = offsets[i] + counters.get(i);
+            counters.set(i, offsets[i]);
+        }
+
+        //build inverted index
+        blockIds = new int[offsets[noOfEntities]];
+        forEach(noOfBlocks, blockIndex -> forEachEntity(blockIndex, entityId -> blockIds[counters.getAndIncrement(entityId)] = blockIndex));
+    }
+
+    private void indexEntitiesSequentially() {
+        //count blocks per entity
+        final int[] counters = new int[noOfEntities];
+        for (int blockIndex = 0; blockIndex < noOfBlocks; blockIndex++) {
+            forEachEntity(blockIndex, entityId -> counters[entityId]++);
+        }
+
+        offsets = new int[noOfEntities + 1];
+        for (int i = 0; i < noOfEntities; i++) {
+            offsets[i + 1] = offsets[i] + counters[i];
+            counters[i] = offsets[i];
+        }
+
+        //build inverted index
+        blockIds = new int[offsets[noOfEntities]];
+        for (int blockIndex = 0; blockIndex < noOfBlocks; blockIndex++) {
+            final int currentBlock = blockIndex;
+            forEachEntity(blockIndex, entityId -> blockIds[counters[entityId]++] = currentBlock);
+        }
+    }
+
+    private double getNoOfNeighbors(int blockIndex, int entityId) {
+        if (!cleanCleanER) {
+            return uBlocks[blockIndex].getEntities().length - 1;
+        }
+        if (entityId < datasetLimit) {
+            return bBlocks[blockIndex].getIndex2Entities().length;
+        }
+        return bBlocks[blockIndex].getIndex1Entities().length;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // returns the position after the written value
+    private int writeVarInt(int value, int position) {
+        while ((value & ~0x7F) != 0) {
+            encodedBlocks[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        encodedBlocks[position++] = (byte) value;
+        return position;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.DataStructures;
+
+import DataModel.AbstractBlock;
+import DataModel.DecomposedBlock;
+import java.util.List;
+
+/**
+ * Emits the comparisons of decomposed blocks, e.g., the output of Meta-blocking,
+ * in descending order of their weight, i.e., of the similarities stored in the
+ * blocks, in batches of bounded size. The comparisons are copied once into 
+ * primitive arrays and arranged in a binary max-heap, which is built in linear
+ * time, so that every batch pops only its own comparisons and the entire stream
+ * takes O(N log N) time without sorting the collection up front. Comparisons 
+ * of equal weight are emitted in the order of the input blocks.
+ *
+ * @author gap2
+ */
+
+public class ComparisonPriorityStream {
+
+    private final boolean cleanCleanER;
+    private int size;
+
+    private final int[] heap; // positions of the comparisons in the following arrays
+    private final int[] entityIds1;
+    private final int[] entityIds2;
+    private final double[] weights;
+
+    /**
+     * @throws IllegalArgumentException if a block is not a decomposed one, as
+     * only decomposed blocks carry comparison weights, if the blocks mix 
+     * Clean-Clean and Dirty ER or if they entail more comparisons than an 
+     * array can hold
+     */
+    public ComparisonPriorityStream(List<AbstractBlock> blocks) {
+        boolean ccER = false;
+        long noOfComparisons = 0;
+        for (AbstractBlock block : blocks) {
+            if (!(block instanceof DecomposedBlock)) {
+                throw new IllegalArgumentException("Blocks of type " + block.getClass().getSimpleName()
+                        + " carry no comparison weights! Apply a Meta-blocking method first.");
+            }
+            if (noOfComparisons == 0) {
+                ccER = ((DecomposedBlock) block).isCleanCleanER();
+            } else if (ccER != ((DecomposedBlock) block).isCleanCleanER()) {
+                throw new IllegalArgumentException("The decomposed blocks mix Clean-Clean and Dirty ER comparisons!");
+            }
+            noOfComparisons += ((DecomposedBlock) block).getEntities1().length;
+        }
+        if (Integer.MAX_VALUE - 2 < noOfComparisons) {
+            throw new IllegalArgumentException("Very high number of comparisons! Maximum allowed number is : " 
+                    + (Integer.MAX_VALUE - 2) + ".");
+        }
+        cleanCleanER = ccER;
+
+        int index = 0;
+        entityIds1 = new int[(int) noOfComparisons];
+        entityIds2 = new int[(int) noOfComparisons];
+        weights = new double[(int) noOfComparisons];
+        for (AbstractBlock block : blocks) {
+            DecomposedBlock dBlock = (DecomposedBlock) block;
+            int blockComparisons = dBlock.getEntities1().length;
+            System.arraycopy(dBlock.getEntities1(), 0, entityIds1, index, blockComparisons);
+            System.arraycopy(dBlock.getEntities2(), 0, entityIds2, index, blockComparisons);
+            System.arraycopy(dBlock.getSimilarities(), 0, weights, index, blockComparisons);
+            index += blockComparisons;
+        }
+
+        size = index;
+        heap = new int[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+        }
+        for (int i = (size >>> 1) - 1; 0 <= i; i--) {
+            siftDown(i);
+        }
+    }
+
+    public int getNoOfComparisons() {
+        return weights.length;
+    }
+
+    public int getNoOfRemainingComparisons() {
+        return size;
+    }
+
+    /**
+     * Removes and returns the next comparisons of the stream, at most as many 
+     * as the given number, or null, if the stream is exhausted. The weights of
+     * the comparisons are stored as the similarities of the returned block.
+     */
+    public DecomposedBlock getNextBatch(int maxComparisons) {
+        int batchSize = Math.min(size, maxComparisons);
+        if (batchSize <= 0) {
+            return null;
+        }
+
+        final int[] batchIds1 = new int[batchSize];
+        final int[] batchIds2 = new int[batchSize];
+        final double[] batchWeights = new double[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            int position = heap[0];
+            batchIds1[i] = entityIds1[position];
+            batchIds2[i] = entityIds2[position];
+            batchWeights[i] = weights[position];
+
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return new DecomposedBlock(cleanCleanER, batchWeights, batchIds1, batchIds2);
+    }
+
+    // the next weight to be emitted, or NaN, if the stream is exhausted
+    public double getNextWeight() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        return weights[heap[0]];
+    }
+
+    public boolean hasNext() {
+        return 0 < size;
+    }
+
+    public boolean isCleanCleanER() {
+        return cleanCleanER;
+    }
+
+    // higher weights come first, ties are broken by the input order
+    private boolean precedes(int position1, int position2) {
+        int comparison = Double.compare(weights[position1], weights[position2]);
+        if (comparison != 0) {
+            return 0 < comparison;
+        }
+        return position1 < position2;
+    }
+
+    private void siftDown(int index) {
+        int position = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && precedes(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!precedes(heap[child], position)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = position;
+    }
+}
@@ -32,26 +32,19 @@ public class EntityIndex implements Serializable {
 
     private static final long serialVersionUID = 13483254243447L;
 
-    private boolean cleanCleanER;
-    private int datasetLimit;
-    private int noOfBlocks;
-    private int noOfEntities;
+    protected boolean cleanCleanER;
+    protected int datasetLimit;
+    protected int noOfBlocks;
+    protected int noOfEntities;
     
-    private double[] entityComparisons;
+    protected double[] entityComparisons;
     private int[][] entityBlocks;
     
-    private BilateralBlock[] bBlocks;
-    private UnilateralBlock[] uBlocks;
+    protected BilateralBlock[] bBlocks;
+    protected UnilateralBlock[] uBlocks;
 
     public EntityIndex(List<AbstractBlock> blocks) {
-        if (blocks.isEmpty()) {
-            System.err.println("Entity index received an empty block collection as input!");
-            return;
-        }
-
-        if (blocks.get(0) instanceof DecomposedBlock) {
-            System.err.println("The entity index is incompatible with a set of decomposed blocks!");
-            System.err.println("Its functionalities can be carried out with same efficiency through a linear search of all comparisons!");
+        if (!isValidInput(blocks)) {
             return;
         }
 
@@ -62,8 +55,12 @@ public class EntityIndex implements Serializable {
             indexUnilateralEntities();
         }
     }
+    
+    // for subclasses that store the blocks of every entity in a different layout
+    protected EntityIndex() {
+    }
 
-    private void firstPass(List<AbstractBlock> blocks) {
+    protected void firstPass(List<AbstractBlock> blocks) {
         int counter = 0;
         noOfBlocks = blocks.size();
         cleanCleanER = blocks.get(0) instanceof BilateralBlock;
@@ -121,11 +118,29 @@ public class EntityIndex implements Serializable {
         }
         return entityBlocks[entityId];
     }
+
+    /**
+     * Returns the array that holds the blocks of the given entity in the 
+     * getNoOfEntityBlocks() positions that start at getEntityBlocksOffset().
+     * Unlike getEntityBlocks(), it does not copy the blocks in the layouts that 
+     * store all entities in a single array, thus it suits per-entity loops.
+     */
+    public int[] getEntityBlocksArray(int entityId, int useDLimit) {
+        return entityBlocks[entityId + useDLimit * datasetLimit];
+    }
+
+    public int getEntityBlocksOffset(int entityId, int useDLimit) {
+        return 0;
+    }
     
     public double[] getEntityComparisons() {
         return entityComparisons;
     }
 
+    public int getNoOfBlocks() {
+        return noOfBlocks;
+    }
+
     public int getNoOfEntities() {
         return noOfEntities;
     }
@@ -222,4 +237,18 @@ public class EntityIndex implements Serializable {
     public boolean isCleanCleanER() {
         return cleanCleanER;
     }
+    
+    protected boolean isValidInput(List<AbstractBlock> blocks) {
+        if (blocks.isEmpty()) {
+            System.err.println("Entity index received an empty block collection as input!");
+            return false;
+        }
+
+        if (blocks.get(0) instanceof DecomposedBlock) {
+            System.err.println("The entity index is incompatible with a set of decomposed blocks!");
+            System.err.println("Its functionalities can be carried out with same efficiency through a linear search of all comparisons!");
+            return false;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,216 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+
+package Utilities.DataStructures;
+
+import java.util.Arrays;
+
+/**
+ * Undirected, weighted graph over the vertex ids 0, ..., noOfVertices-1 that
+ * supports maximum flow computations with Dinic's algorithm. Every edge is
+ * stored as a pair of opposite arcs with the same capacity in primitive 
+ * arrays, so that no vertex or edge object is created.
+ *
+ * @author gap2
+ */
+
+public class FlowNetwork {
+
+    public final static double EPSILON = 1.0E-9;
+
+    private final int noOfVertices;
+    
+    private final double[] capacities;
+    private final double[] flows;
+    private final int[] arcHeads;
+    private final int[] arcIds;
+    private final int[] arcStarts;
+    private final int[] currentArcs;
+    private final int[] levels;
+    private final int[] pathArcs;
+    private final int[] queue;
+    private int queueSize;
+
+    /**
+     * The i-th edge connects the vertices vertices1[i] and vertices2[i] with
+     * the given weight; only the first noOfEdges positions are considered.
+     */
+    public FlowNetwork(int noOfVertices, int[] vertices1, int[] vertices2, double[] weights, int noOfEdges) {
+        this.noOfVertices = noOfVertices;
+        
+        // arc 2i goes from vertices1[i] to vertices2[i] and arc 2i+1 backwards
+        arcHeads = new int[2 * noOfEdges];
+        capacities = new double[2 * noOfEdges];
+        arcStarts = new int[noOfVertices + 1];
+        for (int i = 0; i < noOfEdges; i++) {
+            arcHeads[2 * i] = vertices2[i];
+            arcHeads[2 * i + 1] = vertices1[i];
+            capacities[2 * i] = weights[i];
+            capacities[2 * i + 1] = weights[i];
+            arcStarts[vertices1[i] + 1]++;
+            arcStarts[vertices2[i] + 1]++;
+        }
+        
+        for (int i = 0; i < noOfVertices; i++) {
+            arcStarts[i + 1] += arcStarts[i];
+        }
+        
+        arcIds = new int[2 * noOfEdges];
+        final int[] arcIndices = Arrays.copyOf(arcStarts, noOfVertices);
+        for (int i = 0; i < noOfEdges; i++) {
+            arcIds[arcIndices[vertices1[i]]++] = 2 * i;
+            arcIds[arcIndices[vertices2[i]]++] = 2 * i + 1;
+        }
+
+        flows = new double[2 * noOfEdges];
+        currentArcs = new int[noOfVertices];
+        levels = new int[noOfVertices];
+        pathArcs = new int[noOfVertices];
+        queue = new int[noOfVertices];
+    }
+
+    // the BFS of Dinic's algorithm, which also leaves in the queue all vertices reachable from the source
+    private boolean assignLevels(int source, int sink) {
+        Arrays.fill(levels, -1);
+        levels[source] = 0;
+        queue[0] = source;
+        queueSize = 1;
+        for (int index = 0; index < queueSize; index++) {
+            int vertex = queue[index];
+            for (int i = arcStarts[vertex]; i < arcStarts[vertex + 1]; i++) {
+                int arc = arcIds[i];
+                int head = arcHeads[arc];
+                if (levels[head] < 0 && EPSILON < capacities[arc] - flows[arc]) {
+                    levels[head] = levels[vertex] + 1;
+                    queue[queueSize++] = head;
+                }
+            }
+        }
+        return 0 <= levels[sink];
+    }
+
+    // sends flow along shortest augmenting paths until the level graph is blocked
+    private double augmentPaths(int source, int sink) {
+        System.arraycopy(arcStarts, 0, currentArcs, 0, noOfVertices);
+        
+        double totalFlow = 0;
+        int depth = 0;
+        int vertex = source;
+        while (true) {
+            if (vertex == sink) {
+                double bottleneck = Double.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    bottleneck = Math.min(bottleneck, capacities[pathArcs[i]] - flows[pathArcs[i]]);
+                }
+                
+                for (int i = 0; i < depth; i++) {
+                    flows[pathArcs[i]] += bottleneck;
+                    flows[pathArcs[i] ^ 1] -= bottleneck;
+                }
+                totalFlow += bottleneck;
+                
+                depth = 0;
+                vertex = source;
+                continue;
+            }
+
+            boolean advanced = false;
+            for (; currentArcs[vertex] < arcStarts[vertex + 1]; currentArcs[vertex]++) {
+                int arc = arcIds[currentArcs[vertex]];
+                int head = arcHeads[arc];
+                if (levels[head] == levels[vertex] + 1 && EPSILON < capacities[arc] - flows[arc]) {
+                    pathArcs[depth++] = arc;
+                    vertex = head;
+                    advanced = true;
+                    break;
+                }
+            }
+            
+            if (!advanced) {
+                // dead end: exclude the vertex from the level graph and retreat
+                levels[vertex] = -1;
+                if (vertex == source) {
+                    return totalFlow;
+                }
+                
+                vertex = arcHeads[pathArcs[--depth] ^ 1];
+                currentArcs[vertex]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the parent of every vertex in an equivalent flow tree of the 
+     * network that is rooted at the given vertex, according to Gusfield's 
+     * method, i.e., with noOfVertices-1 maximum flow computations and no
+     * contraction. The remaining vertices are processed in ascending order of
+     * id. The root is its own parent.
+     * 
+     * The maximum flow between any two vertices equals the minimum flow along
+     * the tree path that connects them, but unlike a Gomory-Hu tree, the edges
+     * of the tree need not correspond to minimum cuts of the network, as the 
+     * swap step of Gusfield's cut tree algorithm is omitted. This is the tree
+     * of the original, JGraphT-based GomoryHuTree, on which Cut Clustering 
+     * relies, because the swap step changes its clusters.
+     */
+    public int[] getEquivalentFlowTree(int root) {
+        final int[] parents = new int[noOfVertices];
+        Arrays.fill(parents, root);
+        
+        for (int vertex = 0; vertex < noOfVertices; vertex++) {
+            if (vertex == root) {
+                continue;
+            }
+            
+            int parent = parents[vertex];
+            getMaxFlow(vertex, parent);
+            
+            // the source side of the minimum cut comprises the vertices of the last BFS;
+            // the parents of the vertices processed so far are final
+            for (int index = 0; index < queueSize; index++) {
+                int sourceVertex = queue[index];
+                if (vertex < sourceVertex && parents[sourceVertex] == parent) {
+                    parents[sourceVertex] = vertex;
+                }
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * Returns the value of the maximum flow between the given vertices. After
+     * it, isOnSourceSide() determines the source side of the minimum cut that
+     * comprises the vertices reachable from the source in the residual network.
+     */
+    public double getMaxFlow(int source, int sink) {
+        Arrays.fill(flows, 0);
+        
+        double maxFlow = 0;
+        while (assignLevels(source, sink)) {
+            maxFlow += augmentPaths(source, sink);
+        }
+        return maxFlow;
+    }
+
+    public int getNoOfVertices() {
+        return noOfVertices;
+    }
+
+    public boolean isOnSourceSide(int vertex) {
+        return 0 <= levels[vertex];
+    }
+}
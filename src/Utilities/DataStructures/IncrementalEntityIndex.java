@@ -0,0 +1,354 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.DataStructures;
+
+import DataModel.AbstractBlock;
+import DataModel.BilateralBlock;
+import DataModel.UnilateralBlock;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Entity index that is updated with the delta blocks returned by every batch
+ * of IncrementalBlockBuilding, instead of being rebuilt from the entire block
+ * collection. Every block is stored at its block index, which stays the same
+ * across batches: a delta block replaces the previous contents of its block,
+ * or removes it, if it entails no comparison. Thus, the cost of an update is
+ * proportional to the delta blocks and the blocks of their entities.
+ *
+ * In Clean-Clean ER, the ids of the first dataset occupy a range that doubles
+ * whenever a larger id arrives, shifting the ids of the second dataset. The
+ * dataset limit and getNoOfEntities() refer to these ranges, which include
+ * every entity that was ever indexed, whereas getNoOfIndexedEntities() returns
+ * the number of entities that EntityIndex counts for the current blocks. The
+ * block arrays contain null at the indices of removed blocks.
+ *
+ * @author gap2
+ */
+
+public class IncrementalEntityIndex extends EntityIndex {
+
+    private static final long serialVersionUID = 3390657241861753216L;
+
+    private static final int[] NO_BLOCKS = new int[0];
+
+    private double blockAssignments;
+
+    private int noOfEntitiesD1; // the largest id of the first or only dataset in a block plus one
+    private int noOfEntitiesD2;
+    private int[] noOfEntityBlocks;
+    private int[] resizedEntities; // the entities whose number of blocks changed in the last update
+    private int[][] entityBlocks; // the ascending block ids of every entity, in its first noOfEntityBlocks positions
+
+    public IncrementalEntityIndex() {
+        entityBlocks = new int[0][];
+        entityComparisons = new double[0];
+        noOfEntityBlocks = new int[0];
+        resizedEntities = new int[0];
+    }
+
+    private void addBlock(AbstractBlock block, Map<Integer, Integer> touchedEntities) {
+        final int blockIndex = block.getBlockIndex();
+        if (cleanCleanER) {
+            final BilateralBlock bBlock = (BilateralBlock) block;
+            bBlocks[blockIndex] = bBlock;
+            for (int id1 : bBlock.getIndex1Entities()) {
+                addEntityBlock(id1, blockIndex, bBlock.getIndex2Entities().length, touchedEntities);
+                noOfEntitiesD1 = Math.max(noOfEntitiesD1, id1 + 1);
+            }
+            for (int id2 : bBlock.getIndex2Entities()) {
+                addEntityBlock(datasetLimit + id2, blockIndex, bBlock.getIndex1Entities().length, touchedEntities);
+                noOfEntitiesD2 = Math.max(noOfEntitiesD2, id2 + 1);
+            }
+        } else {
+            final UnilateralBlock uBlock = (UnilateralBlock) block;
+            uBlocks[blockIndex] = uBlock;
+            for (int id : uBlock.getEntities()) {
+                addEntityBlock(id, blockIndex, uBlock.getEntities().length - 1, touchedEntities);
+                noOfEntitiesD1 = Math.max(noOfEntitiesD1, id + 1);
+            }
+        }
+
+        noOfBlocks++;
+        blockAssignments += block.getTotalBlockAssignments();
+    }
+
+    private void addEntityBlock(int entityId, int blockIndex, int comparisons, Map<Integer, Integer> touchedEntities) {
+        int[] blocks = entityBlocks[entityId];
+        if (blocks == null) {
+            blocks = new int[2];
+        } else if (blocks.length == noOfEntityBlocks[entityId]) {
+            blocks = Arrays.copyOf(blocks, 2 * blocks.length);
+        }
+
+        int position = -Arrays.binarySearch(blocks, 0, noOfEntityBlocks[entityId], blockIndex) - 1;
+        System.arraycopy(blocks, position, blocks, position + 1, noOfEntityBlocks[entityId] - position);
+        blocks[position] = blockIndex;
+        entityBlocks[entityId] = blocks;
+        touchedEntities.putIfAbsent(entityId, noOfEntityBlocks[entityId]);
+        noOfEntityBlocks[entityId]++;
+
+        entityComparisons[entityId] += comparisons;
+    }
+
+    // grows the block arrays and the range of the first dataset so that they include the given blocks
+    private void ensureCapacity(List<AbstractBlock> deltaBlocks) {
+        int maxBlockIndex = -1;
+        int maxId1 = -1;
+        int maxId2 = -1;
+        for (AbstractBlock block : deltaBlocks) {
+            maxBlockIndex = Math.max(maxBlockIndex, block.getBlockIndex());
+            if (cleanCleanER) {
+                for (int id1 : ((BilateralBlock) block).getIndex1Entities()) {
+                    maxId1 = Math.max(maxId1, id1);
+                }
+                for (int id2 : ((BilateralBlock) block).getIndex2Entities()) {
+                    maxId2 = Math.max(maxId2, id2);
+                }
+            } else {
+                for (int id : ((UnilateralBlock) block).getEntities()) {
+                    maxId2 = Math.max(maxId2, id);
+                }
+            }
+        }
+
+        int capacity = cleanCleanER ? bBlocks.length : uBlocks.length;
+        if (capacity <= maxBlockIndex) {
+            capacity = Math.max(maxBlockIndex + 1, 2 * capacity);
+            if (cleanCleanER) {
+                bBlocks = Arrays.copyOf(bBlocks, capacity);
+            } else {
+                uBlocks = Arrays.copyOf(uBlocks, capacity);
+            }
+        }
+
+        // in Dirty ER, all entities lie in the range that follows the dataset limit, which remains 0
+        int limit = datasetLimit;
+        if (limit <= maxId1) {
+            limit = Math.max(maxId1 + 1, 2 * limit);
+        }
+        int capacity2 = entityBlocks.length - datasetLimit;
+        if (capacity2 <= maxId2) {
+            capacity2 = Math.max(maxId2 + 1, 2 * capacity2);
+        }
+        final int range2 = noOfEntities - datasetLimit; // it never decreases, so that it covers all previous ids
+        if (limit == datasetLimit && limit + capacity2 == entityBlocks.length) {
+            noOfEntities = limit + Math.max(range2, maxId2 + 1);
+            return;
+        }
+
+        final int[][] newEntityBlocks = new int[limit + capacity2][];
+        final int[] newNoOfEntityBlocks = new int[limit + capacity2];
+        final double[] newEntityComparisons = new double[limit + capacity2];
+        System.arraycopy(entityBlocks, 0, newEntityBlocks, 0, datasetLimit);
+        System.arraycopy(noOfEntityBlocks, 0, newNoOfEntityBlocks, 0, datasetLimit);
+        System.arraycopy(entityComparisons, 0, newEntityComparisons, 0, datasetLimit);
+        System.arraycopy(entityBlocks, datasetLimit, newEntityBlocks, limit, range2);
+        System.arraycopy(noOfEntityBlocks, datasetLimit, newNoOfEntityBlocks, limit, range2);
+        System.arraycopy(entityComparisons, datasetLimit, newEntityComparisons, limit, range2);
+
+        datasetLimit = limit;
+        noOfEntities = limit + Math.max(range2, maxId2 + 1);
+        entityBlocks = newEntityBlocks;
+        entityComparisons = newEntityComparisons;
+        noOfEntityBlocks = newNoOfEntityBlocks;
+    }
+
+    // passes the current ids of all entities in the given block to the given consumer
+    private void forEachEntity(AbstractBlock block, IntConsumer action) {
+        if (cleanCleanER) {
+            for (int id1 : ((BilateralBlock) block).getIndex1Entities()) {
+                action.accept(id1);
+            }
+            for (int id2 : ((BilateralBlock) block).getIndex2Entities()) {
+                action.accept(datasetLimit + id2);
+            }
+        } else {
+            for (int id : ((UnilateralBlock) block).getEntities()) {
+                action.accept(id);
+            }
+        }
+    }
+
+    public double getBlockAssignments() {
+        return blockAssignments;
+    }
+
+    @Override
+    public int[] getEntityBlocks(int entityId, int useDLimit) {
+        entityId += useDLimit * datasetLimit;
+        if (noOfEntities <= entityId) {
+            return null;
+        }
+        return Arrays.copyOf(getEntityBlocksArray(entityId, 0), noOfEntityBlocks[entityId]);
+    }
+
+    // the array of the given entity, which has spare positions after its blocks
+    @Override
+    public int[] getEntityBlocksArray(int entityId, int useDLimit) {
+        final int[] blocks = entityBlocks[entityId + useDLimit * datasetLimit];
+        return blocks == null ? NO_BLOCKS : blocks;
+    }
+
+    /**
+     * Returns the number of entities that EntityIndex counts for the current
+     * blocks, i.e., the largest id in a block plus one, summed over the two
+     * datasets in Clean-Clean ER.
+     */
+    public int getNoOfIndexedEntities() {
+        return noOfEntitiesD1 + noOfEntitiesD2;
+    }
+
+    @Override
+    public int getNoOfEntityBlocks(int entityId, int useDLimit) {
+        return noOfEntityBlocks[entityId + useDLimit * datasetLimit];
+    }
+
+    /**
+     * Returns the ascending ids of the entities whose number of blocks changed
+     * in the last update, i.e., the entities whose Jaccard weights changed with
+     * all their neighbors.
+     */
+    public int[] getResizedEntities() {
+        return resizedEntities;
+    }
+
+    /**
+     * Materializes the nested arrays of EntityIndex, trimmed to the blocks of
+     * every entity.
+     */
+    @Override
+    public int[][] getWholeIndex() {
+        final int[][] wholeIndex = new int[noOfEntities][];
+        for (int i = 0; i < noOfEntities; i++) {
+            wholeIndex[i] = getEntityBlocks(i, 0);
+        }
+        return wholeIndex;
+    }
+
+    private void removeBlock(int blockIndex, Map<Integer, Integer> touchedEntities) {
+        final AbstractBlock block;
+        if (cleanCleanER) {
+            final BilateralBlock bBlock = bBlocks[blockIndex];
+            for (int id1 : bBlock.getIndex1Entities()) {
+                removeEntityBlock(id1, blockIndex, bBlock.getIndex2Entities().length, touchedEntities);
+            }
+            for (int id2 : bBlock.getIndex2Entities()) {
+                removeEntityBlock(datasetLimit + id2, blockIndex, bBlock.getIndex1Entities().length, touchedEntities);
+            }
+            block = bBlock;
+            bBlocks[blockIndex] = null;
+        } else {
+            final UnilateralBlock uBlock = uBlocks[blockIndex];
+            for (int id : uBlock.getEntities()) {
+                removeEntityBlock(id, blockIndex, uBlock.getEntities().length - 1, touchedEntities);
+            }
+            block = uBlock;
+            uBlocks[blockIndex] = null;
+        }
+
+        noOfBlocks--;
+        blockAssignments -= block.getTotalBlockAssignments();
+    }
+
+    private void removeEntityBlock(int entityId, int blockIndex, int comparisons, Map<Integer, Integer> touchedEntities) {
+        final int[] blocks = entityBlocks[entityId];
+        final int position = Arrays.binarySearch(blocks, 0, noOfEntityBlocks[entityId], blockIndex);
+        System.arraycopy(blocks, position + 1, blocks, position, noOfEntityBlocks[entityId] - position - 1);
+        touchedEntities.putIfAbsent(entityId, noOfEntityBlocks[entityId]);
+        noOfEntityBlocks[entityId]--;
+
+        entityComparisons[entityId] -= comparisons;
+    }
+
+    /**
+     * Replaces the indexed blocks with the given delta blocks and returns the
+     * ascending ids of their previous and current entities, i.e., the entities
+     * whose neighborhood in the blocking graph may have changed. The ids of the
+     * second dataset may shift; the returned ids are the current ones.
+     *
+     * @throws IllegalArgumentException if a block has no block index or is of
+     * a different type than the indexed blocks
+     */
+    public int[] updateBlocks(List<AbstractBlock> deltaBlocks) {
+        if (deltaBlocks.isEmpty()) {
+            resizedEntities = new int[0];
+            return new int[0];
+        }
+
+        if (bBlocks == null && uBlocks == null) {
+            cleanCleanER = deltaBlocks.get(0) instanceof BilateralBlock;
+            if (cleanCleanER) {
+                bBlocks = new BilateralBlock[0];
+            } else {
+                uBlocks = new UnilateralBlock[0];
+            }
+        }
+
+        for (AbstractBlock block : deltaBlocks) {
+            if (block.getBlockIndex() < 0) {
+                throw new IllegalArgumentException("Delta blocks require the block indices assigned by incremental block building!");
+            }
+            if (cleanCleanER ? !(block instanceof BilateralBlock) : !(block instanceof UnilateralBlock)) {
+                throw new IllegalArgumentException("Delta blocks of type " + block.getClass().getSimpleName()
+                        + " do not match the indexed blocks!");
+            }
+        }
+
+        ensureCapacity(deltaBlocks);
+
+        // the touched entities are mapped to their number of blocks before the update
+        final Map<Integer, Integer> touchedEntities = new HashMap<>();
+        for (AbstractBlock block : deltaBlocks) {
+            final int blockIndex = block.getBlockIndex();
+            if ((cleanCleanER ? bBlocks[blockIndex] : uBlocks[blockIndex]) != null) {
+                removeBlock(blockIndex, touchedEntities);
+            }
+            if (0 < block.getNoOfComparisons()) {
+                addBlock(block, touchedEntities);
+            } else {
+                forEachEntity(block, entityId -> touchedEntities.putIfAbsent(entityId, noOfEntityBlocks[entityId]));
+            }
+        }
+
+        // the largest ids decrease when their entities lose all blocks
+        while (0 < noOfEntitiesD1 && noOfEntityBlocks[noOfEntitiesD1 - 1] == 0) {
+            noOfEntitiesD1--;
+        }
+        while (0 < noOfEntitiesD2 && noOfEntityBlocks[datasetLimit + noOfEntitiesD2 - 1] == 0) {
+            noOfEntitiesD2--;
+        }
+
+        int counter = 0;
+        int resized = 0;
+        final int[] touchedIds = new int[touchedEntities.size()];
+        final int[] resizedIds = new int[touchedEntities.size()];
+        for (Map.Entry<Integer, Integer> entry : touchedEntities.entrySet()) {
+            touchedIds[counter++] = entry.getKey();
+            if (entry.getValue() != noOfEntityBlocks[entry.getKey()]) {
+                resizedIds[resized++] = entry.getKey();
+            }
+        }
+        Arrays.sort(touchedIds);
+        resizedEntities = Arrays.copyOf(resizedIds, resized);
+        Arrays.sort(resizedEntities);
+        return touchedIds;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.DataStructures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory inverted index that maps every blocking key to the ascending ids
+ * of the entities that contain it. Postings are stored in primitive arrays,
+ * so that no Lucene documents or boxed integers are involved in block building.
+ *
+ * @author gap2
+ */
+
+public class InvertedIndex {
+
+    private final static int INITIAL_POSTINGS_SIZE = 2;
+
+    private int noOfDocuments;
+    private int noOfKeys;
+
+    private int[] postingsSizes;
+    private int[][] postings;
+    private final Map<String, Integer> keyIds;
+
+    public InvertedIndex() {
+        noOfDocuments = 0;
+        noOfKeys = 0;
+        keyIds = new HashMap<>();
+        postings = new int[1024][];
+        postingsSizes = new int[1024];
+    }
+
+    /**
+     * Adds the given entity to the postings of the given key. Entity ids should
+     * be added in ascending order; repeated additions of the same entity to the
+     * same key are ignored.
+     */
+    public void addPosting(String key, int entityId) {
+        int keyId = getKeyId(key, INITIAL_POSTINGS_SIZE);
+        int size = postingsSizes[keyId];
+        int[] keyPostings = postings[keyId];
+        if (0 < size && keyPostings[size - 1] == entityId) {
+            return;
+        }
+
+        if (size == keyPostings.length) {
+            keyPostings = Arrays.copyOf(keyPostings, Math.max(INITIAL_POSTINGS_SIZE, 2 * keyPostings.length));
+            postings[keyId] = keyPostings;
+        }
+        keyPostings[size] = entityId;
+        postingsSizes[keyId]++;
+
+        if (noOfDocuments < entityId + 1) {
+            noOfDocuments = entityId + 1;
+        }
+    }
+
+    public void addPostings(Set<String> keys, int entityId) {
+        for (String key : keys) {
+            addPosting(key, entityId);
+        }
+    }
+
+    /**
+     * Adds the given entity to the postings of the given key at the position
+     * that keeps them in ascending order, i.e., entity ids may arrive in any
+     * order. Returns false if the entity is already associated with the key.
+     */
+    public boolean insertPosting(String key, int entityId) {
+        int keyId = getKeyId(key, INITIAL_POSTINGS_SIZE);
+        int size = postingsSizes[keyId];
+        int[] keyPostings = postings[keyId];
+        int position = Arrays.binarySearch(keyPostings, 0, size, entityId);
+        if (0 <= position) {
+            return false;
+        }
+
+        position = -position - 1;
+        if (size == keyPostings.length) {
+            keyPostings = Arrays.copyOf(keyPostings, Math.max(INITIAL_POSTINGS_SIZE, 2 * keyPostings.length));
+            postings[keyId] = keyPostings;
+        }
+        System.arraycopy(keyPostings, position, keyPostings, position + 1, size - position);
+        keyPostings[position] = entityId;
+        postingsSizes[keyId]++;
+
+        if (noOfDocuments < entityId + 1) {
+            noOfDocuments = entityId + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given entity from the postings of the given key. The key 
+     * remains indexed even if its postings become empty. Returns false if the
+     * entity is not associated with the key.
+     */
+    public boolean removePosting(String key, int entityId) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+            return false;
+        }
+
+        int size = postingsSizes[keyId];
+        int[] keyPostings = postings[keyId];
+        int position = Arrays.binarySearch(keyPostings, 0, size, entityId);
+        if (position < 0) {
+            return false;
+        }
+
+        System.arraycopy(keyPostings, position + 1, keyPostings, position, size - position - 1);
+        postingsSizes[keyId]--;
+        return true;
+    }
+
+    private int getKeyId(String key, int initialSize) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+            keyId = noOfKeys++;
+            keyIds.put(key, keyId);
+            if (postings.length < noOfKeys) {
+                postings = Arrays.copyOf(postings, 2 * postings.length);
+                postingsSizes = Arrays.copyOf(postingsSizes, 2 * postingsSizes.length);
+            }
+            postings[keyId] = new int[initialSize];
+        }
+        return keyId;
+    }
+
+    public boolean containsKey(String key) {
+        return keyIds.containsKey(key);
+    }
+
+    public int getDocFrequency(String key) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+            return 0;
+        }
+        return postingsSizes[keyId];
+    }
+
+    public int getNoOfDocuments() {
+        return noOfDocuments;
+    }
+
+    public int getNoOfKeys() {
+        return noOfKeys;
+    }
+
+    /**
+     * Returns the ascending entity ids associated with the given key, or null,
+     * if the key is not indexed. The returned array is trimmed to its actual
+     * size and is shared with the index; it should not be modified.
+     */
+    public int[] getPostings(String key) {
+        Integer keyId = keyIds.get(key);
+        if (keyId == null) {
+            return null;
+        }
+
+        if (postings[keyId].length != postingsSizes[keyId]) {
+            postings[keyId] = Arrays.copyOf(postings[keyId], postingsSizes[keyId]);
+        }
+        return postings[keyId];
+    }
+
+    /**
+     * Returns the indexed keys in the order Lucene enumerates its terms, so that
+     * the resulting blocks are in the same order for both indexing backends.
+     */
+    public String[] getSortedKeys() {
+        return getSortedKeys(false);
+    }
+
+    public String[] getSortedKeys(boolean parallel) {
+        String[] sortedKeys = keyIds.keySet().toArray(new String[noOfKeys]);
+        if (parallel) {
+            Arrays.parallelSort(sortedKeys, InvertedIndex::compareCodePoints);
+        } else {
+            Arrays.sort(sortedKeys, InvertedIndex::compareCodePoints);
+        }
+        return sortedKeys;
+    }
+
+    /**
+     * Appends the postings of the given index to the postings of this one.
+     * All entity ids of the given index should be larger than those of this
+     * index, e.g., when it indexes the next partition of the same dataset.
+     */
+    public void merge(InvertedIndex other) {
+        for (Map.Entry<String, Integer> entry : other.keyIds.entrySet()) {
+            int otherKeyId = entry.getValue();
+            int otherSize = other.postingsSizes[otherKeyId];
+            int keyId = getKeyId(entry.getKey(), otherSize);
+
+            int size = postingsSizes[keyId];
+            if (postings[keyId].length < size + otherSize) {
+                postings[keyId] = Arrays.copyOf(postings[keyId], size + otherSize);
+            }
+            System.arraycopy(other.postings[otherKeyId], 0, postings[keyId], size, otherSize);
+            postingsSizes[keyId] += otherSize;
+        }
+
+        if (noOfDocuments < other.noOfDocuments) {
+            noOfDocuments = other.noOfDocuments;
+        }
+    }
+
+    // Lucene sorts terms by their UTF-8 bytes, which is equivalent to code point order
+    public static int compareCodePoints(String key1, String key2) {
+        int length1 = key1.length();
+        int length2 = key2.length();
+        int i = 0;
+        int j = 0;
+        while (i < length1 && j < length2) {
+            int codePoint1 = key1.codePointAt(i);
+            int codePoint2 = key2.codePointAt(j);
+            if (codePoint1 != codePoint2) {
+                return Integer.compare(codePoint1, codePoint2);
+            }
+            i += Character.charCount(codePoint1);
+            j += Character.charCount(codePoint2);
+        }
+        return Integer.compare(length1 - i, length2 - j);
+    }
+}
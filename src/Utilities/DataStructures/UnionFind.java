@@ -0,0 +1,145 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+
+package Utilities.DataStructures;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint-set forest over the entity ids 0, ..., noOfElements-1 with union by
+ * rank and path compression. It keeps only two primitive arrays, so that the
+ * connected components of a similarity graph are computed without storing its
+ * vertices or edges.
+ *
+ * @author gap2
+ */
+
+public class UnionFind {
+
+    private int noOfSets;
+    
+    private final byte[] ranks;
+    private final int[] parents;
+
+    public UnionFind(int noOfElements) {
+        noOfSets = noOfElements;
+        ranks = new byte[noOfElements];
+        parents = new int[noOfElements];
+        for (int i = 0; i < noOfElements; i++) {
+            parents[i] = i;
+        }
+    }
+
+    public int find(int element) {
+        int root = element;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+
+        // path compression: point all elements on the path directly to the root
+        while (parents[element] != root) {
+            int parent = parents[element];
+            parents[element] = root;
+            element = parent;
+        }
+        return root;
+    }
+
+    /**
+     * Returns the connected components with at least minSize elements. Every 
+     * component comprises its elements in ascending order, while components 
+     * are sorted in ascending order of their smallest element.
+     */
+    public int[][] getComponents(int minSize) {
+        final int noOfElements = parents.length;
+        final int[] componentSizes = new int[noOfElements];
+        for (int i = 0; i < noOfElements; i++) {
+            componentSizes[find(i)]++;
+        }
+
+        // the root of every component is mapped to its position in the output
+        int noOfComponents = 0;
+        final int[] componentIds = new int[noOfElements];
+        Arrays.fill(componentIds, -1);
+        for (int i = 0; i < noOfElements; i++) {
+            int root = parents[i];
+            if (componentIds[root] < 0 && minSize <= componentSizes[root]) {
+                componentIds[root] = noOfComponents++;
+            }
+        }
+
+        final int[] noOfMembers = new int[noOfComponents];
+        final int[][] components = new int[noOfComponents][];
+        for (int i = 0; i < noOfElements; i++) {
+            int root = parents[i];
+            int componentId = componentIds[root];
+            if (componentId < 0) {
+                continue;
+            }
+
+            if (components[componentId] == null) {
+                components[componentId] = new int[componentSizes[root]];
+            }
+            components[componentId][noOfMembers[componentId]++] = i;
+        }
+        return components;
+    }
+
+    public int getNoOfElements() {
+        return parents.length;
+    }
+
+    public int getNoOfSets() {
+        return noOfSets;
+    }
+
+    /**
+     * Adds to this forest all unions of the given one, which should be defined
+     * over the same elements, e.g., when it has processed another partition of
+     * the same edges.
+     */
+    public void merge(UnionFind other) {
+        for (int i = 0; i < other.parents.length; i++) {
+            if (other.parents[i] != i) {
+                union(i, other.find(i));
+            }
+        }
+    }
+
+    /**
+     * Merges the sets of the given elements. Returns false if they already
+     * belong to the same set.
+     */
+    public boolean union(int element1, int element2) {
+        int root1 = find(element1);
+        int root2 = find(element2);
+        if (root1 == root2) {
+            return false;
+        }
+
+        if (ranks[root1] < ranks[root2]) {
+            parents[root1] = root2;
+        } else if (ranks[root2] < ranks[root1]) {
+            parents[root2] = root1;
+        } else {
+            parents[root2] = root1;
+            ranks[root1]++;
+        }
+        noOfSets--;
+        return true;
+    }
+}
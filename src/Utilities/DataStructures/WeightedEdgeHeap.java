@@ -0,0 +1,148 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.DataStructures;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of weighted edges, stored in parallel primitive arrays. It is
+ * used for retaining the top-k edges of the blocking graph without creating a 
+ * Comparison object for every candidate edge. Insertions and removals follow 
+ * the sift operations of java.util.PriorityQueue with a ComparisonWeightComparator,
+ * so that edges of equal weight are retained in the same way.
+ *
+ * @author gap2
+ */
+
+public class WeightedEdgeHeap {
+
+    private final static int MAX_INITIAL_CAPACITY = 1024;
+
+    private int size;
+
+    private int[] entityIds1;
+    private int[] entityIds2;
+    private double[] weights;
+
+    public WeightedEdgeHeap(int expectedSize) {
+        int capacity = Math.max(2, Math.min(MAX_INITIAL_CAPACITY, expectedSize + 1));
+        entityIds1 = new int[capacity];
+        entityIds2 = new int[capacity];
+        weights = new double[capacity];
+        size = 0;
+    }
+
+    public void add(int entityId1, int entityId2, double weight) {
+        if (size == weights.length) {
+            int newCapacity = 2 * weights.length;
+            entityIds1 = Arrays.copyOf(entityIds1, newCapacity);
+            entityIds2 = Arrays.copyOf(entityIds2, newCapacity);
+            weights = Arrays.copyOf(weights, newCapacity);
+        }
+
+        int index = size++;
+        while (0 < index) {
+            int parent = (index - 1) >>> 1;
+            if (0 <= compare(weight, weights[parent])) {
+                break;
+            }
+            set(index, parent);
+            index = parent;
+        }
+        entityIds1[index] = entityId1;
+        entityIds2[index] = entityId2;
+        weights[index] = weight;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // same outcome as ComparisonWeightComparator, which subtracts the weights
+    private static int compare(double weight1, double weight2) {
+        if (weight1 < weight2) {
+            return -1;
+        }
+        if (weight2 < weight1) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * The following getters return the edge at the given position of the heap 
+     * array, in the range [0, size()). The order of the positions is arbitrary.
+     */
+    public int getEntityId1(int index) {
+        return entityIds1[index];
+    }
+
+    public int getEntityId2(int index) {
+        return entityIds2[index];
+    }
+
+    public double getWeight(int index) {
+        return weights[index];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes the edge with the lowest weight.
+     * @return the weight of the removed edge
+     */
+    public double removeMin() {
+        double minimumWeight = weights[0];
+        int last = --size;
+        if (0 < last) {
+            int entityId1 = entityIds1[last];
+            int entityId2 = entityIds2[last];
+            double weight = weights[last];
+
+            int index = 0;
+            int half = last >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < last && 0 < compare(weights[child], weights[right])) {
+                    child = right;
+                }
+                if (compare(weight, weights[child]) <= 0) {
+                    break;
+                }
+                set(index, child);
+                index = child;
+            }
+            entityIds1[index] = entityId1;
+            entityIds2[index] = entityId2;
+            weights[index] = weight;
+        }
+        return minimumWeight;
+    }
+
+    private void set(int targetIndex, int sourceIndex) {
+        entityIds1[targetIndex] = entityIds1[sourceIndex];
+        entityIds2[targetIndex] = entityIds2[sourceIndex];
+        weights[targetIndex] = weights[sourceIndex];
+    }
+
+    public int size() {
+        return size;
+    }
+}
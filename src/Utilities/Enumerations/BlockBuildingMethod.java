@@ -21,6 +21,7 @@ import BlockBuilding.ExtendedQGramsBlocking;
 import BlockBuilding.ExtendedSortedNeighborhoodBlocking;
 import BlockBuilding.ExtendedSuffixArraysBlocking;
 import BlockBuilding.IBlockBuilding;
+import BlockBuilding.MinHashBlocking;
 import BlockBuilding.NeighborBlocking;
 import BlockBuilding.QGramsBlocking;
 import BlockBuilding.SortedNeighborhoodBlocking;
@@ -41,6 +42,7 @@ public enum BlockBuildingMethod {
     EXTENDED_Q_GRAMS_BLOCKING,
     EXTENDED_SORTED_NEIGHBORHOOD,
     EXTENDED_SUFFIX_ARRAYS,
+    MINHASH_LSH,
     Q_GRAMS_BLOCKING,
     SORTED_NEIGHBORHOOD,
     SUFFIX_ARRAYS,
@@ -57,6 +59,8 @@ public enum BlockBuildingMethod {
                 return new ExtendedSortedNeighborhoodBlocking();
             case EXTENDED_SUFFIX_ARRAYS:
                 return new ExtendedSuffixArraysBlocking();
+            case MINHASH_LSH:
+                return new MinHashBlocking();
             case Q_GRAMS_BLOCKING:
                 return new QGramsBlocking();
             case SORTED_NEIGHBORHOOD:
@@ -81,6 +85,8 @@ public enum BlockBuildingMethod {
                 return new BlockFiltering(0.45);
             case EXTENDED_SUFFIX_ARRAYS:
                 return null;
+            case MINHASH_LSH:
+                return null; // oversized blocks are purged by MinHash Blocking, Block Filtering would break the recall guarantee of the bands
             case Q_GRAMS_BLOCKING:
                 return new BlockFiltering(0.50);
             case SORTED_NEIGHBORHOOD:
@@ -103,6 +109,8 @@ public enum BlockBuildingMethod {
                 return new WeightedEdgePruning(WeightingScheme.JS);
             case EXTENDED_SUFFIX_ARRAYS:
                 return new ComparisonPropagation();
+            case MINHASH_LSH:
+                return new WeightedEdgePruning(WeightingScheme.CBS);
             case Q_GRAMS_BLOCKING:
                 return new WeightedEdgePruning(WeightingScheme.ECBS);
             case SORTED_NEIGHBORHOOD:
@@ -29,6 +29,25 @@ public class LevenshteinSimilarity {
         return 1 - levenshteinDistance(s1, s2) / (double)Math.max(s1.length(), s2.length());
     }
     
+    /**
+     * Returns an upper bound of the normalized Levenshtein similarity of the 
+     * given strings in constant time: their distance is at least the difference
+     * of their lengths, hence their similarity is at most min(len1,len2)/max(len1,len2).
+     * @param s1
+     * @param s2
+     * @return 
+     */
+    public static double getSimilarityUpperBound(String s1, String s2) {
+        if (s1 == null || s2 == null) {
+            return 0;
+        }
+        int maxLength = Math.max(s1.length(), s2.length());
+        if (maxLength == 0) {
+            return 1;
+        }
+        return Math.min(s1.length(), s2.length()) / (double) maxLength;
+    }
+    
     /**
      * Copied from https://en.wikibooks.org/wiki/Algorithm_Implementation/Strings/Levenshtein_distance#Java
      * @param lhs
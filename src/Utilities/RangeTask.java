@@ -0,0 +1,140 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+
+package Utilities;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+
+/**
+ * Fork/join task that splits a range of positions in halves until every 
+ * partition is small enough, processes the partitions in parallel and combines
+ * their results in the order of the partitions, so that the outcome is 
+ * identical to that of a single pass over the whole range. The partitions are
+ * balanced either by their number of positions or, if cumulative weights are 
+ * given, by their total weight, e.g., the comparisons of a range of blocks.
+ *
+ * @author gap2
+ */
+
+public class RangeTask<T> extends RecursiveTask<T> {
+
+    private static final long serialVersionUID = 3829105712384651209L;
+
+    private final int fromIndex;
+    private final int toIndex;
+    private final double partitionSize;
+    private final double[] weightsUpTo;
+    private final BinaryOperator<T> combiner;
+    private final RangeFunction<T> function;
+
+    private RangeTask(int fromIndex, int toIndex, double partitionSize, double[] weightsUpTo,
+            RangeFunction<T> function, BinaryOperator<T> combiner) {
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.partitionSize = partitionSize;
+        this.weightsUpTo = weightsUpTo;
+        this.function = function;
+        this.combiner = combiner;
+    }
+
+    @Override
+    protected T compute() {
+        if (toIndex - fromIndex < 2 || getWeight(fromIndex, toIndex) <= partitionSize) {
+            return function.apply(fromIndex, toIndex);
+        }
+
+        int middleIndex = getMiddleIndex();
+        RangeTask<T> upperPartition = new RangeTask<>(middleIndex, toIndex, partitionSize, weightsUpTo, function, combiner);
+        upperPartition.fork();
+        T lowerResult = new RangeTask<>(fromIndex, middleIndex, partitionSize, weightsUpTo, function, combiner).compute();
+        return combiner.apply(lowerResult, upperPartition.join());
+    }
+
+    /**
+     * Applies the given action to every position in [0, size) in parallel.
+     */
+    public static void forEach(ForkJoinPool pool, int size, int partitionSize, IntConsumer action) {
+        invoke(pool, size, partitionSize, (fromIndex, toIndex) -> {
+            for (int i = fromIndex; i < toIndex; i++) {
+                action.accept(i);
+            }
+            return null;
+        }, (lowerResult, upperResult) -> null);
+    }
+
+    // the middle position of an unweighted range or the first position at which half of its weight is reached
+    private int getMiddleIndex() {
+        if (weightsUpTo == null) {
+            return (fromIndex + toIndex) >>> 1;
+        }
+
+        double halfWeight = weightsUpTo[fromIndex] + getWeight(fromIndex, toIndex) / 2;
+        int low = fromIndex + 1;
+        int high = toIndex - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (weightsUpTo[middle] < halfWeight) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns a partition size that yields about four partitions per thread, so
+     * that the threads remain busy even if the partitions are uneven.
+     */
+    public static int getPartitionSize(int size, int noOfThreads, int minPartitionSize) {
+        return Math.max(minPartitionSize, size / (4 * noOfThreads) + 1);
+    }
+
+    private double getWeight(int from, int to) {
+        if (weightsUpTo == null) {
+            return to - from;
+        }
+        return weightsUpTo[to] - weightsUpTo[from];
+    }
+
+    /**
+     * Processes the positions in [0, size) in partitions of at most the given 
+     * size and returns the combination of their results.
+     */
+    public static <T> T invoke(ForkJoinPool pool, int size, int partitionSize,
+            RangeFunction<T> function, BinaryOperator<T> combiner) {
+        return pool.invoke(new RangeTask<>(0, size, partitionSize, null, function, combiner));
+    }
+
+    /**
+     * Processes the positions in [0, weightsUpTo.length - 1) in partitions of
+     * at most the given total weight, unless they comprise a single position.
+     * weightsUpTo[i] is the total weight of the positions before i.
+     */
+    public static <T> T invoke(ForkJoinPool pool, double[] weightsUpTo, double partitionWeight,
+            RangeFunction<T> function, BinaryOperator<T> combiner) {
+        return pool.invoke(new RangeTask<>(0, weightsUpTo.length - 1, partitionWeight, weightsUpTo, function, combiner));
+    }
+
+    public interface RangeFunction<T> {
+
+        T apply(int fromIndex, int toIndex);
+    }
+}
@@ -33,7 +33,7 @@ public abstract class AbstractModel implements Serializable {
     protected double noOfDocuments;
     
     protected final RepresentationModel modelType;
-    protected final SimilarityMetric simMetric;
+    protected SimilarityMetric simMetric;
     protected final String instanceName;
     
     public AbstractModel(int n, RepresentationModel md, SimilarityMetric sMetric, String iName) {
@@ -64,6 +64,42 @@ public abstract class AbstractModel implements Serializable {
         return simMetric;
     }
     
+    /**
+     * Marks the end of the building phase, after which the model is only compared
+     * with others. Models that support it precompute their statistics that do not
+     * depend on the other model and reject any further updates.
+     */
+    public void freeze() {
+    }
+
+    /**
+     * Freezes the model, mapping its terms to the ids of the given dictionary,
+     * which is shared by all models of the same build, so that they can be 
+     * compared through their term ids. Models without terms ignore it.
+     */
+    public void freeze(TermDictionary dictionary) {
+        freeze();
+    }
+    
+    /**
+     * Changes the metric that compares this model with others, e.g., for a model
+     * that was loaded from a ModelCache. The metric should be compatible with the
+     * type of the model.
+     */
+    public void setSimilarityMetric(SimilarityMetric sMetric) {
+        simMetric = sMetric;
+    }
+    
+    /**
+     * Returns an upper bound on the similarity with the given model that is
+     * estimated in constant time, e.g., from the sizes of the two models, so
+     * that comparisons that cannot exceed a threshold are skipped. Models
+     * without such a bound return positive infinity.
+     */
+    public double getSimilarityUpperBound(AbstractModel oModel) {
+        return Double.POSITIVE_INFINITY;
+    }
+    
     public abstract double getSimilarity(AbstractModel oModel);
     public abstract void updateModel(String text);
 }
\ No newline at end of file
@@ -36,46 +36,73 @@ public abstract class BagModel extends AbstractModel {
 
     protected double noOfTotalTerms;
     protected final Map<String, Integer> itemsFrequency;
+    // the term ids are specific to the dictionary of a model build, thus the vector is rebuilt after deserialization
+    protected transient TermDictionary termDictionary;
+    protected transient TermVector termVector;
+    protected boolean frozen;
 
     public BagModel(int n, RepresentationModel md, SimilarityMetric sMetric, String iName) {
         super(n, md, sMetric, iName);
 
         itemsFrequency = new HashMap<String, Integer>();
     }
+
+    protected void addTerm(String term) {
+        if (frozen) {
+            throw new IllegalStateException("Frozen model cannot be updated : " + instanceName);
+        }
+
+        itemsFrequency.merge(term, 1, Integer::sum);
+        termVector = null;
+    }
     
+    /**
+     * Only the common terms are processed, as the norms of both models are
+     * stored in their term vectors.
+     */
     public double getCosineSimilarity(BagModel oModel) {
-        Map<String, Integer> itemVector1 = itemsFrequency;
-        Map<String, Integer> itemVector2 = oModel.getItemsFrequency();
-        if (itemVector2.size() < itemVector1.size()) {
-            itemVector1 = oModel.getItemsFrequency();
-            itemVector2 = itemsFrequency;
-        }
+        final TermVector[] vectors = getTermVectors(oModel);
+        return getCosineSimilarity(vectors[0], vectors[1]);
+    }
+
+    private double getCosineSimilarity(TermVector vector1, TermVector vector2) {
+        final int[] termIds1 = vector1.termIds;
+        final int[] termIds2 = vector2.termIds;
 
         double numerator = 0.0;
-        for (Entry<String, Integer> entry : itemVector1.entrySet()) {
-            Integer frequency2 = itemVector2.get(entry.getKey());
-            if (frequency2 != null) {
-                numerator += entry.getValue() * frequency2 / noOfTotalTerms / oModel.getNoOfTotalTerms();
+        int i = 0;
+        int j = 0;
+        while (i < termIds1.length && j < termIds2.length) {
+            if (termIds1[i] < termIds2[j]) {
+                i++;
+            } else if (termIds2[j] < termIds1[i]) {
+                j++;
+            } else {
+                numerator += (double) vector1.frequencies[i] * vector2.frequencies[j];
+                i++;
+                j++;
             }
         }
-        
-        double denominator = getVectorMagnitude(this)*getVectorMagnitude(oModel); 
-        return numerator / denominator;
+
+        return numerator / (vector1.norm * vector2.norm);
     }
 
-    private double getEnhancedJaccardSimilarity(BagModel oModel) {
-        Map<String, Integer> itemVector1 = itemsFrequency;
-        Map<String, Integer> itemVector2 = oModel.getItemsFrequency();
-        if (itemVector2.size() < itemVector1.size()) {
-            itemVector1 = oModel.getItemsFrequency();
-            itemVector2 = itemsFrequency;
-        }
+    private double getEnhancedJaccardSimilarity(BagModel oModel, TermVector vector1, TermVector vector2) {
+        final int[] termIds1 = vector1.termIds;
+        final int[] termIds2 = vector2.termIds;
 
         double numerator = 0.0;
-        for (Entry<String, Integer> entry : itemVector1.entrySet()) {
-            Integer frequency2 = itemVector2.get(entry.getKey());
-            if (frequency2 != null) {
-                numerator += Math.min(entry.getValue(), frequency2);
+        int i = 0;
+        int j = 0;
+        while (i < termIds1.length && j < termIds2.length) {
+            if (termIds1[i] < termIds2[j]) {
+                i++;
+            } else if (termIds2[j] < termIds1[i]) {
+                j++;
+            } else {
+                numerator += Math.min(vector1.frequencies[i], vector2.frequencies[j]);
+                i++;
+                j++;
             }
         }
 
@@ -83,42 +110,37 @@ public abstract class BagModel extends AbstractModel {
         return numerator / denominator;
     }
     
-    private double getGeneralizedJaccardSimilarity(BagModel oModel) {
-        double totalTerms1 = noOfTotalTerms;
-        double totalTerms2 = oModel.getNoOfTotalTerms();
-        Map<String, Integer> itemVector1 = itemsFrequency;
-        Map<String, Integer> itemVector2 = oModel.getItemsFrequency();
-        if (itemVector2.size() < itemVector1.size()) {
-            itemVector1 = oModel.getItemsFrequency();
-            itemVector2 = itemsFrequency;
-
-            totalTerms1 = oModel.getNoOfTotalTerms();
-            totalTerms2 = noOfTotalTerms;
-        }
+    /**
+     * Both sums are scaled by the product of the total terms of the two models,
+     * so that they consist of integer products. The sum of the maximum over all
+     * terms equals the sum of both vectors minus the sum of the minimum over the
+     * common terms, so only the latter are processed.
+     */
+    private double getGeneralizedJaccardSimilarity(BagModel oModel, TermVector vector1, TermVector vector2) {
+        final double totalTerms1 = noOfTotalTerms;
+        final double totalTerms2 = oModel.getNoOfTotalTerms();
+        final int[] termIds1 = vector1.termIds;
+        final int[] termIds2 = vector2.termIds;
 
         double numerator = 0.0;
-        for (Entry<String, Integer> entry : itemVector1.entrySet()) {
-            Integer frequency2 = itemVector2.get(entry.getKey());
-            if (frequency2 != null) {
-                numerator += Math.min(entry.getValue() / totalTerms1, frequency2 / totalTerms2);
+        int i = 0;
+        int j = 0;
+        while (i < termIds1.length && j < termIds2.length) {
+            if (termIds1[i] < termIds2[j]) {
+                i++;
+            } else if (termIds2[j] < termIds1[i]) {
+                j++;
+            } else {
+                numerator += Math.min(vector1.frequencies[i] * totalTerms2, vector2.frequencies[j] * totalTerms1);
+                i++;
+                j++;
             }
         }
 
-        final Set<String> allKeys = new HashSet<String>(itemVector1.keySet());
-        allKeys.addAll(itemVector2.keySet());
-        double denominator = 0.0;
-        for (String key : allKeys) {
-            Integer frequency1 = itemVector1.get(key);
-            Integer frequency2 = itemVector2.get(key);
-            double freq1 = frequency1 == null ? 0 : frequency1 / totalTerms1;
-            double freq2 = frequency2 == null ? 0 : frequency2 / totalTerms2;
-            denominator += Math.max(freq1, freq2);
-        }
-
+        double denominator = vector1.sumOfFrequencies * totalTerms2 + vector2.sumOfFrequencies * totalTerms1 - numerator;
         return numerator / denominator;
     }
     
-    
     /**
      * vefthym
      * Returns the weighted Jaccard similarity of two entities:
@@ -259,30 +281,89 @@ public abstract class BagModel extends AbstractModel {
         return itemsFrequency;
     }
     
-    private double getJaccardSimilarity(BagModel oModel) {
-        final Set<String> commonKeys = new HashSet<String>(itemsFrequency.keySet());
-        commonKeys.retainAll(oModel.getItemsFrequency().keySet());
+    private double getJaccardSimilarity(TermVector vector1, TermVector vector2) {
+        final int[] termIds1 = vector1.termIds;
+        final int[] termIds2 = vector2.termIds;
 
-        double numerator = commonKeys.size();
-        double denominator = itemsFrequency.size() + oModel.getItemsFrequency().size() - numerator;
+        int commonTerms = 0;
+        int i = 0;
+        int j = 0;
+        while (i < termIds1.length && j < termIds2.length) {
+            if (termIds1[i] < termIds2[j]) {
+                i++;
+            } else if (termIds2[j] < termIds1[i]) {
+                j++;
+            } else {
+                commonTerms++;
+                i++;
+                j++;
+            }
+        }
+
+        double numerator = commonTerms;
+        double denominator = termIds1.length + termIds2.length - numerator;
         return numerator / denominator;
     }
 
     public double getNoOfTotalTerms() {
         return noOfTotalTerms;
     }
+
+    @Override
+    public void freeze() {
+        frozen = true;
+        getTermVector();
+    }
+
+    @Override
+    public void freeze(TermDictionary dictionary) {
+        termDictionary = dictionary;
+        final TermVector vector = termVector;
+        if (vector != null && vector.dictionary != dictionary) {
+            termVector = null;
+        }
+        freeze();
+    }
+
+    /**
+     * Returns the terms of the model as ids of its term dictionary in ascending
+     * order, along with their frequencies and the statistics that do not depend
+     * on other models. The vector is built once, after the last update of the 
+     * model; a model that was not frozen with a dictionary gets one of its own.
+     */
+    public TermVector getTermVector() {
+        TermVector vector = termVector;
+        if (vector == null) {
+            vector = new TermVector(itemsFrequency, termDictionary == null ? new TermDictionary() : termDictionary);
+            termVector = vector;
+        }
+        return vector;
+    }
+
+    // the vectors of both models with ids of the same dictionary; models of different builds are mapped to a temporary one
+    private TermVector[] getTermVectors(BagModel oModel) {
+        final TermVector vector1 = getTermVector();
+        final TermVector vector2 = oModel.getTermVector();
+        if (vector1.dictionary == vector2.dictionary) {
+            return new TermVector[]{vector1, vector2};
+        }
+
+        final TermDictionary dictionary = new TermDictionary();
+        return new TermVector[]{new TermVector(itemsFrequency, dictionary), new TermVector(oModel.getItemsFrequency(), dictionary)};
+    }
     
     @Override
     public double getSimilarity(AbstractModel oModel) {
+        final TermVector[] vectors = getTermVectors((BagModel) oModel);
         switch (simMetric) {
             case COSINE_SIMILARITY:
-                return getCosineSimilarity((BagModel) oModel);
+                return getCosineSimilarity(vectors[0], vectors[1]);
             case ENHANCED_JACCARD_SIMILARITY:
-                return getEnhancedJaccardSimilarity((BagModel) oModel);
+                return getEnhancedJaccardSimilarity((BagModel) oModel, vectors[0], vectors[1]);
             case GENERALIZED_JACCARD_SIMILARITY:
-                return getGeneralizedJaccardSimilarity((BagModel) oModel);
+                return getGeneralizedJaccardSimilarity((BagModel) oModel, vectors[0], vectors[1]);
             case JACCARD_SIMILARITY:
-                return getJaccardSimilarity((BagModel) oModel);
+                return getJaccardSimilarity(vectors[0], vectors[1]);
             default:
                 LOGGER.log(Level.SEVERE, "The given similarity metric is incompatible with the bag representation model!");
                 System.exit(-1);
@@ -290,12 +371,98 @@ public abstract class BagModel extends AbstractModel {
         }
     }
     
-    private double getVectorMagnitude(BagModel model) {
-        double magnitude = 0.0;
-        for (Entry<String, Integer> entry : model.getItemsFrequency().entrySet()) {
-            magnitude += Math.pow(entry.getValue()/model.getNoOfTotalTerms(), 2.0);
+    /**
+     * The common terms of two models are bounded by the smaller model, while
+     * the cosine numerator is bounded by the product of the largest frequency
+     * of one vector with the sum of the frequencies of the other. The bounds
+     * consist of integer sums, so they are never lower than the similarity.
+     * The generalized Jaccard similarity compares normalized frequencies, so 
+     * the sizes of the models do not bound it.
+     */
+    @Override
+    public double getSimilarityUpperBound(AbstractModel oModel) {
+        final TermVector vector1 = getTermVector();
+        final TermVector vector2 = ((BagModel) oModel).getTermVector();
+        if (vector1.size() == 0 || vector2.size() == 0) {
+            return 0;
         }
 
-        return Math.sqrt(magnitude);
+        switch (simMetric) {
+            case COSINE_SIMILARITY:
+                double maxNumerator = Math.min(vector1.maxFrequency * vector2.sumOfFrequencies, vector2.maxFrequency * vector1.sumOfFrequencies);
+                return maxNumerator / (vector1.norm * vector2.norm);
+            case ENHANCED_JACCARD_SIMILARITY:
+                double maxCommonTerms = Math.min(vector1.sumOfFrequencies, vector2.sumOfFrequencies);
+                double minDenominator = noOfTotalTerms + ((BagModel) oModel).getNoOfTotalTerms() - maxCommonTerms;
+                if (minDenominator <= 0) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                return maxCommonTerms / minDenominator;
+            case JACCARD_SIMILARITY:
+                return (double) Math.min(vector1.size(), vector2.size()) / Math.max(vector1.size(), vector2.size());
+            default:
+                return Double.POSITIVE_INFINITY;
+        }
+    }
+    
+    public static class TermVector {
+
+        // immutable, so that it can be safely shared by the threads that compare models
+        private final TermDictionary dictionary;
+        private final double maxFrequency;
+        private final double norm;
+        private final double sumOfFrequencies;
+        private final int[] frequencies;
+        private final int[] termIds;
+
+        TermVector(Map<String, Integer> itemsFrequency, TermDictionary termDictionary) {
+            dictionary = termDictionary;
+            final long[] terms = new long[itemsFrequency.size()];
+            int index = 0;
+            for (Entry<String, Integer> entry : itemsFrequency.entrySet()) {
+                terms[index++] = ((long) dictionary.getTermId(entry.getKey()) << 32) | entry.getValue();
+            }
+            Arrays.sort(terms);
+
+            int max = 0;
+            double sumOfSquares = 0;
+            double sum = 0;
+            frequencies = new int[terms.length];
+            termIds = new int[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                termIds[i] = (int) (terms[i] >>> 32);
+                frequencies[i] = (int) terms[i];
+                max = Math.max(max, frequencies[i]);
+                sum += frequencies[i];
+                sumOfSquares += (double) frequencies[i] * frequencies[i];
+            }
+            maxFrequency = max;
+            norm = Math.sqrt(sumOfSquares);
+            sumOfFrequencies = sum;
+        }
+
+        public int[] getFrequencies() {
+            return frequencies;
+        }
+
+        public double getMaxFrequency() {
+            return maxFrequency;
+        }
+
+        public double getNorm() {
+            return norm;
+        }
+
+        public double getSumOfFrequencies() {
+            return sumOfFrequencies;
+        }
+
+        public int[] getTermIds() {
+            return termIds;
+        }
+
+        public int size() {
+            return termIds.length;
+        }
     }
 }
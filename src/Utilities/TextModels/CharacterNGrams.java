@@ -37,13 +37,7 @@ public class CharacterNGrams extends BagModel {
         final int length = text.length() - (nSize-1);
         while (currentPosition < length) {
             noOfTotalTerms++;
-            final String term = text.substring(currentPosition, currentPosition + nSize);
-            Integer frequency = itemsFrequency.get(term);
-            if (frequency == null) {
-                frequency = new Integer(0);
-            } 
-            frequency++;
-            itemsFrequency.put(term, frequency);
+            addTerm(text.substring(currentPosition, currentPosition + nSize));
             currentPosition++;
         }
     }
@@ -32,7 +32,8 @@ public abstract class GraphModel extends AbstractModel {
     private static final Logger LOGGER = Logger.getLogger(GraphModel.class.getName());
 
     protected DocumentNGramGraph graphModel;
-    protected final static NGramCachedGraphComparator COMPARATOR = new NGramCachedGraphComparator();
+    // the cached comparator keeps per-comparison state, thus every thread uses its own
+    protected final static ThreadLocal<NGramCachedGraphComparator> COMPARATOR = ThreadLocal.withInitial(NGramCachedGraphComparator::new);
 
     public GraphModel(int n, RepresentationModel model, SimilarityMetric simMetric, String iName) {
         super(n, model, simMetric, iName);
@@ -49,7 +50,7 @@ public abstract class GraphModel extends AbstractModel {
 
     @Override
     public double getSimilarity(AbstractModel oModel) {
-        final GraphSimilarity graphSimilarity = COMPARATOR.getSimilarityBetween(this.getGraphModel(), ((GraphModel) oModel).getGraphModel());
+        final GraphSimilarity graphSimilarity = COMPARATOR.get().getSimilarityBetween(this.getGraphModel(), ((GraphModel) oModel).getGraphModel());
         switch (simMetric) {
             case GRAPH_CONTAINMENT_SIMILARITY:
                 return graphSimilarity.ContainmentSimilarity;
@@ -0,0 +1,154 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.TextModels;
+
+import DataModel.EntityProfile;
+import Utilities.Enumerations.RepresentationModel;
+import Utilities.Enumerations.SimilarityMetric;
+import Utilities.RangeTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the text models of entity profiles, attributes or any other sources
+ * of text, using a fork-join pool when more than one thread is available. 
+ * The model of every source is built independently, so the resulting array is
+ * identical to the one built by a single thread and can be reused by any 
+ * number of comparisons.
+ *
+ * @author gap2
+ */
+
+public class ModelBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(ModelBuilder.class.getName());
+
+    private final int noOfThreads;
+    private final RepresentationModel representationModel;
+    private final SimilarityMetric simMetric;
+    private final TermDictionary termDictionary;
+
+    public ModelBuilder(RepresentationModel model, SimilarityMetric sMetric, int threads) {
+        representationModel = model;
+        simMetric = sMetric;
+        noOfThreads = Math.max(1, threads);
+        termDictionary = new TermDictionary();
+    }
+
+    /**
+     * Returns an empty model with the given instance name.
+     */
+    public AbstractModel getModel(String instanceName) {
+        return RepresentationModel.getModel(representationModel, simMetric, instanceName);
+    }
+
+    /**
+     * Returns the model of the given values.
+     */
+    public AbstractModel getModel(String instanceName, Iterable<String> values) {
+        final AbstractModel model = getModel(instanceName);
+        for (String value : values) {
+            model.updateModel(value);
+        }
+        return model;
+    }
+
+    /**
+     * Returns the model that aggregates all attribute values of the given profile.
+     */
+    public AbstractModel getModel(EntityProfile profile) {
+        final AbstractModel model = getModel(profile.getEntityUrl());
+        profile.forEachAttribute((name, value) -> model.updateModel(value));
+        return model;
+    }
+
+    /**
+     * Returns an array with the model that the given function produces for every
+     * position from 0 to noOfModels-1. The function is invoked concurrently for
+     * different positions, so it should only create and update new models. The
+     * models are frozen with the term dictionary of this builder after they are 
+     * built, thus all models of the same builder can be compared with each other.
+     */
+    public AbstractModel[] buildModels(int noOfModels, IntFunction<AbstractModel> modelBuilder) {
+        return buildModels(new AbstractModel[noOfModels], i -> freeze(modelBuilder.apply(i)));
+    }
+
+    public AbstractModel freeze(AbstractModel model) {
+        model.freeze(termDictionary);
+        return model;
+    }
+
+    /**
+     * Fills the given array with the output of the given function for every 
+     * position, e.g., with the attribute models of every entity profile.
+     */
+    public <T> T[] buildModels(T[] models, IntFunction<T> modelBuilder) {
+        if (noOfThreads < 2 || models.length < 2) {
+            for (int i = 0; i < models.length; i++) {
+                models[i] = modelBuilder.apply(i);
+            }
+            return models;
+        }
+
+        // models are expensive, thus even small partitions are worth distributing
+        int partitionSize = RangeTask.getPartitionSize(models.length, noOfThreads, 1);
+        LOGGER.log(Level.INFO, "Building {0} models with {1} threads", new Object[]{models.length, noOfThreads});
+        ForkJoinPool pool = new ForkJoinPool(noOfThreads);
+        try {
+            RangeTask.forEach(pool, models.length, partitionSize, i -> models[i] = modelBuilder.apply(i));
+        } finally {
+            pool.shutdown();
+        }
+        return models;
+    }
+
+    /**
+     * Returns the frozen models of the given profiles, in the order of the input list.
+     */
+    public AbstractModel[] buildModels(List<EntityProfile> profiles) {
+        final List<EntityProfile> profilesList = toRandomAccess(profiles);
+        return buildModels(profilesList.size(), i -> getModel(profilesList.get(i)));
+    }
+
+    public int getNoOfThreads() {
+        return noOfThreads;
+    }
+
+    public TermDictionary getTermDictionary() {
+        return termDictionary;
+    }
+
+    public RepresentationModel getRepresentationModel() {
+        return representationModel;
+    }
+
+    public SimilarityMetric getSimilarityMetric() {
+        return simMetric;
+    }
+
+    public static <T> List<T> toRandomAccess(List<T> list) {
+        if (list instanceof RandomAccess) {
+            return list;
+        }
+        return new ArrayList<>(list);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.TextModels;
+
+import DataModel.EntityProfile;
+import Utilities.Enumerations.RepresentationModel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache of the entity models that are built for a dataset. Every file
+ * contains the models of one dataset, as identified by a fingerprint of its
+ * profiles, for one representation model. The models are loaded only when 
+ * they are requested and are built and stored if no file exists yet. 
+ * 
+ * The similarity metric is not part of the key, since it does not affect the
+ * content of the models; the loaded models are set to the metric of the given
+ * model builder, so that all compatible metrics share the same file, and are
+ * frozen with its term dictionary, so that they are comparable with its models.
+ *
+ * @author gap2
+ */
+
+public class ModelCache {
+
+    private static final String FILE_EXTENSION = ".models";
+    private static final Logger LOGGER = Logger.getLogger(ModelCache.class.getName());
+
+    private final File cacheDirectory;
+
+    public ModelCache(String directoryPath) {
+        cacheDirectory = new File(directoryPath);
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            LOGGER.log(Level.SEVERE, "Model cache directory cannot be created\t:\t{0}", directoryPath);
+        }
+    }
+
+    public File getCacheFile(String fingerprint, RepresentationModel model) {
+        return new File(cacheDirectory, fingerprint + "_" + model + FILE_EXTENSION);
+    }
+
+    /**
+     * Returns a digest of the entity urls, attribute names and attribute values
+     * of the given profiles, in their order.
+     */
+    public static String getFingerprint(List<EntityProfile> profiles) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            return null;
+        }
+
+        final byte[] separator = {0};
+        digest.update(Integer.toString(profiles.size()).getBytes(StandardCharsets.UTF_8));
+        for (EntityProfile profile : profiles) {
+            update(digest, profile.getEntityUrl(), separator);
+            profile.forEachAttribute((name, value) -> {
+                update(digest, name, separator);
+                update(digest, value, separator);
+            });
+            digest.update((byte) 1);
+        }
+
+        final StringBuilder fingerprint = new StringBuilder();
+        for (byte b : digest.digest()) {
+            fingerprint.append(String.format("%02x", b));
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Returns the models of the given profiles, loading them from the cache if
+     * they have been stored before, or building and storing them otherwise.
+     */
+    public AbstractModel[] getModels(List<EntityProfile> profiles, ModelBuilder modelBuilder) {
+        final String fingerprint = getFingerprint(profiles);
+        if (fingerprint == null) {
+            return modelBuilder.buildModels(profiles);
+        }
+
+        final File cacheFile = getCacheFile(fingerprint, modelBuilder.getRepresentationModel());
+        if (cacheFile.isFile()) {
+            AbstractModel[] models = loadModels(cacheFile, profiles.size());
+            if (models != null) {
+                LOGGER.log(Level.INFO, "Loaded models from\t:\t{0}", cacheFile);
+                for (AbstractModel model : models) {
+                    model.setSimilarityMetric(modelBuilder.getSimilarityMetric());
+                    modelBuilder.freeze(model);
+                }
+                return models;
+            }
+        }
+
+        final AbstractModel[] models = modelBuilder.buildModels(profiles);
+        storeModels(models, cacheFile);
+        return models;
+    }
+
+    private AbstractModel[] loadModels(File cacheFile, int noOfProfiles) {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            AbstractModel[] models = (AbstractModel[]) input.readObject();
+            if (models.length != noOfProfiles) {
+                LOGGER.log(Level.WARNING, "Invalid number of cached models in\t:\t{0}", cacheFile);
+                return null;
+            }
+            return models;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            LOGGER.log(Level.WARNING, "Cached models cannot be loaded from " + cacheFile, ex);
+            return null;
+        }
+    }
+
+    private void storeModels(AbstractModel[] models, File cacheFile) {
+        // a temporary file ensures that concurrent runs never read partially written models
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+            try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                output.writeObject(models);
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.INFO, "Stored models in\t:\t{0}", cacheFile);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String text, byte[] separator) {
+        if (text != null) {
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(separator);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Utilities.TextModels;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps every distinct term, i.e., n-gram or token, to a unique integer id, so
+ * that bag models can be compared as sorted arrays of term ids. The dictionary
+ * is thread-safe, as models are built concurrently; the ids depend on the order
+ * in which the terms are first encountered, thus they should not be stored.
+ * Every ModelBuilder owns a dictionary, which is released along with its
+ * models, instead of one that grows for the lifetime of the process.
+ *
+ * @author gap2
+ */
+
+public class TermDictionary {
+
+    private final AtomicInteger noOfTerms;
+    private final ConcurrentHashMap<String, Integer> termIds;
+
+    public TermDictionary() {
+        noOfTerms = new AtomicInteger();
+        termIds = new ConcurrentHashMap<>();
+    }
+
+    public int getNoOfTerms() {
+        return noOfTerms.get();
+    }
+
+    /**
+     * Returns the id of the given term, assigning a new one if the term has not
+     * been encountered before.
+     */
+    public int getTermId(String term) {
+        Integer termId = termIds.get(term);
+        if (termId == null) {
+            termId = termIds.computeIfAbsent(term, key -> noOfTerms.getAndIncrement());
+        }
+        return termId;
+    }
+}
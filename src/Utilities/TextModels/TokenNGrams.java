@@ -45,14 +45,7 @@ public class TokenNGrams extends BagModel {
             for (int k = 0; k < nSize; k++) {
                 sb.append(tokens[j+k]).append(" ");
             }
-            String feature = sb.toString().trim();
-            
-            Integer frequency = itemsFrequency.get(feature);
-            if (frequency == null) {
-                frequency = new Integer(0);
-            }
-            frequency++;
-            itemsFrequency.put(feature, frequency);
+            addTerm(sb.toString().trim());
         }
     }
 }
\ No newline at end of file
@@ -20,12 +20,14 @@ import DataReader.GroundTruthReader.GtSerializationReader;
 import DataReader.GroundTruthReader.IGroundTruthReader;
 import EntityClustering.IEntityClustering;
 import EntityMatching.IEntityMatching;
+import EntityMatching.ProfileMatcher;
 import EntityMatching.ProfileWithNeighborMatcher;
 import Utilities.BlocksPerformance;
 import Utilities.ClustersPerformance;
 import Utilities.DataStructures.AbstractDuplicatePropagation;
 import Utilities.DataStructures.BilateralDuplicatePropagation;
 import Utilities.Enumerations.BlockBuildingMethod;
+import Utilities.TextModels.ModelCache;
 import java.util.List;
 
 /**
@@ -40,7 +42,9 @@ public abstract class AbstractWorkflowBuilder {
     IEntityClustering clusteringMethod;
     IEntityMatching similarityMethod;
     double similarity_threshold;
+    double matchingThreshold; // the clustering threshold that was pushed down into the last similarity computations
     IBlockProcessing metaBlockingMethod;
+    ModelCache modelCache;
 
     //variables needed and created afterwards
     List<EntityProfile> profiles1;
@@ -122,6 +126,10 @@ public abstract class AbstractWorkflowBuilder {
         this.clusteringMethod.setSimilarityThreshold(similarity_threshold);
     }
 
+    public void setModelCache(ModelCache modelCache) {
+        this.modelCache = modelCache;
+    }
+
     public void setMetaBlockingMethod(IBlockProcessing metaBlockingMethod) {
         this.metaBlockingMethod = metaBlockingMethod;
     }
@@ -147,6 +155,15 @@ public abstract class AbstractWorkflowBuilder {
         if (similarityMethod instanceof ProfileWithNeighborMatcher) {
             ((ProfileWithNeighborMatcher) similarityMethod).setGroundTruth(groundTruth);
         }
+        if (modelCache != null && similarityMethod instanceof ProfileMatcher) {
+            ((ProfileMatcher) similarityMethod).setModelCache(modelCache);
+        }
+        // the pairs that the clustering method discards are neither stored nor, if possible, computed
+        matchingThreshold = 0;
+        if (clusteringMethod != null && similarityMethod instanceof ProfileMatcher) {
+            matchingThreshold = clusteringMethod.getSimilarityThreshold();
+            ((ProfileMatcher) similarityMethod).setSimilarityThreshold(matchingThreshold);
+        }
         return similarityMethod.executeComparisons(blocks, profiles1, profiles2);
     }
 
@@ -154,6 +171,10 @@ public abstract class AbstractWorkflowBuilder {
         if (simPairs == null || clusteringMethod == null) {
             throw new IllegalStateException("Cannot run clustering at this state, since either simPairs or clustering method are null.");
         }
+        if (clusteringMethod.getSimilarityThreshold() < matchingThreshold) {
+            throw new IllegalStateException("The similarity pairs lack the pairs up to the threshold " + matchingThreshold 
+                    + ". Set the lowest clustering threshold before running the similarity computations.");
+        }
         List<EquivalenceCluster> entityClusters = clusteringMethod.getDuplicates(simPairs);
         
         ClustersPerformance clp = new ClustersPerformance(entityClusters, groundTruth);
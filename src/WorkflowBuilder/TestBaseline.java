@@ -84,6 +84,7 @@ public class TestBaseline {
                 }
                 
                 baseline.setSimilarityMethod(similarity);                
+                baseline.setSimilarity_threshold(0.2); // the lowest threshold below is pushed down into the similarity computations
                 SimilarityPairs simPairs = baseline.runSimilarityComputations();
                 
                 for (double sim_threshold = 0.2; sim_threshold <  0.9; sim_threshold += 0.2) {  
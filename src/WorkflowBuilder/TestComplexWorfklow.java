@@ -96,6 +96,7 @@ public class TestComplexWorfklow {
                 
                 complex.setSimilarityMethod(similarity);
                 
+                complex.setSimilarity_threshold(0.2); // the lowest threshold below is pushed down into the similarity computations
                 SimilarityPairs simPairs = complex.runSimilarityComputations();
                 
                 for (double sim_threshold = 0.2; sim_threshold < 0.9; sim_threshold += 0.2) {  
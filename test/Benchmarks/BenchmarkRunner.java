@@ -0,0 +1,132 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Benchmarks;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures every benchmark over a number of warmup and measured iterations and
+ * keeps the median running time in milliseconds. The setup of every iteration,
+ * e.g., copying its input, is not measured. The medians can be stored as a 
+ * baseline and later runs can be compared against it.
+ *
+ * @author G.A.P. II
+ */
+
+public class BenchmarkRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(BenchmarkRunner.class.getName());
+
+    private final int measuredIterations;
+    private final int warmupIterations;
+    
+    private final Map<String, Double> medianTimes;
+    private volatile Object lastResult; // keeps the results of the benchmarks reachable
+
+    public BenchmarkRunner(int warmup, int iterations) {
+        warmupIterations = warmup;
+        measuredIterations = Math.max(1, iterations);
+        medianTimes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Compares the current median times with those of the given baseline file.
+     * @param baselinePath the file produced by storeResults() in an earlier run
+     * @param tolerance the allowed relative slowdown, e.g., 0.2 for 20%
+     * @return the names of the benchmarks that are slower than allowed
+     */
+    public List<String> getRegressions(String baselinePath, double tolerance) {
+        final Properties baseline = new Properties();
+        try (InputStream input = new FileInputStream(baselinePath)) {
+            baseline.load(input);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            return null;
+        }
+
+        final List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : medianTimes.entrySet()) {
+            String baselineTime = baseline.getProperty(entry.getKey());
+            if (baselineTime == null) {
+                continue;
+            }
+
+            double ratio = entry.getValue() / Double.parseDouble(baselineTime);
+            System.out.println(entry.getKey() + "\t:\t" + String.format("%.3f", ratio) + " x baseline");
+            if (1 + tolerance < ratio) {
+                regressions.add(entry.getKey());
+            }
+        }
+        return regressions;
+    }
+
+    public Map<String, Double> getMedianTimes() {
+        return medianTimes;
+    }
+
+    public <T> Object run(String name, Supplier<T> setup, Function<T, ?> benchmark) {
+        for (int i = 0; i < warmupIterations; i++) {
+            lastResult = benchmark.apply(setup.get());
+        }
+
+        final double[] times = new double[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            T input = setup.get();
+            long startTime = System.nanoTime();
+            lastResult = benchmark.apply(input);
+            times[i] = (System.nanoTime() - startTime) / 1000000.0;
+        }
+
+        Arrays.sort(times);
+        double median = times[measuredIterations / 2];
+        if (measuredIterations % 2 == 0) {
+            median = (median + times[measuredIterations / 2 - 1]) / 2;
+        }
+        medianTimes.put(name, median);
+        System.out.println(name + "\t:\tmedian " + String.format("%.2f", median) + " ms, min "
+                + String.format("%.2f", times[0]) + " ms, max " + String.format("%.2f", times[measuredIterations - 1]) + " ms");
+        return lastResult;
+    }
+
+    public <T> Object run(String name, Supplier<T> benchmark) {
+        return run(name, () -> null, input -> benchmark.get());
+    }
+
+    public void storeResults(String outputPath) {
+        final Properties results = new Properties();
+        medianTimes.entrySet().stream().forEach(entry -> results.setProperty(entry.getKey(), entry.getValue().toString()));
+        try (OutputStream output = new FileOutputStream(outputPath)) {
+            results.store(output, "Median running times in milliseconds");
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Benchmarks;
+
+import BlockBuilding.StandardBlocking;
+import BlockProcessing.BlockRefinement.BlockFiltering;
+import BlockProcessing.ComparisonRefinement.CardinalityNodePruning;
+import BlockProcessing.ComparisonRefinement.WeightedEdgePruning;
+import DataModel.AbstractBlock;
+import DataModel.EntityProfile;
+import DataModel.SimilarityPairs;
+import DataReader.EntityReader.EntitySerializationReader;
+import EntityClustering.CenterClustering;
+import EntityClustering.ConnectedComponentsClustering;
+import EntityClustering.CutClustering;
+import EntityClustering.IEntityClustering;
+import EntityClustering.MarkovClustering;
+import EntityClustering.MergeCenterClustering;
+import EntityClustering.RicochetSRClustering;
+import EntityClustering.SparseMarkovClustering;
+import EntityClustering.UniqueMappingClustering;
+import EntityMatching.ProfileMatcher;
+import Utilities.Enumerations.IndexBackend;
+import Utilities.Enumerations.RepresentationModel;
+import Utilities.Enumerations.WeightingScheme;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the performance benchmarks of block building, block filtering, 
+ * meta-blocking, entity matching and entity clustering over a synthetic or a 
+ * serialized dataset. All arguments are optional and have the form key=value:
+ * 
+ * size=2000 cleanClean=false seed=42 profiles1=path profiles2=path warmup=3 
+ * iterations=5 models=TOKEN_UNIGRAMS,... filter=substring output=path 
+ * baseline=path tolerance=0.25
+ * 
+ * If a baseline file is given, the process exits with a non-zero status when
+ * any benchmark is slower than the baseline by more than the tolerance.
+ *
+ * @author G.A.P. II
+ */
+
+public class RunBenchmarks {
+
+    private static final RepresentationModel CLUSTERING_MODEL = RepresentationModel.TOKEN_UNIGRAMS;
+    
+    private static String filter;
+    
+    public static void main(String[] args) {
+        final Map<String, String> parameters = new HashMap<>();
+        for (String argument : args) {
+            String[] keyValue = argument.split("=", 2);
+            if (keyValue.length == 2) {
+                parameters.put(keyValue[0], keyValue[1]);
+            }
+        }
+
+        int size = Integer.parseInt(parameters.getOrDefault("size", "2000"));
+        boolean cleanCleanER = Boolean.parseBoolean(parameters.getOrDefault("cleanClean", "false"));
+        long seed = Long.parseLong(parameters.getOrDefault("seed", "42"));
+        filter = parameters.get("filter");
+
+        final List<EntityProfile> profilesD1;
+        final List<EntityProfile> profilesD2;
+        if (parameters.containsKey("profiles1")) {
+            profilesD1 = readProfiles(parameters.get("profiles1"), size);
+            profilesD2 = parameters.containsKey("profiles2") ? readProfiles(parameters.get("profiles2"), size) : null;
+        } else {
+            SyntheticDataset dataset = new SyntheticDataset(size, cleanCleanER, seed);
+            profilesD1 = dataset.getProfilesD1();
+            profilesD2 = dataset.getProfilesD2();
+        }
+        cleanCleanER = profilesD2 != null;
+        System.out.println("Entities D1\t:\t" + profilesD1.size());
+        System.out.println("Entities D2\t:\t" + (cleanCleanER ? profilesD2.size() : 0));
+
+        final List<RepresentationModel> models = new ArrayList<>();
+        if (parameters.containsKey("models")) {
+            for (String model : parameters.get("models").split(",")) {
+                models.add(RepresentationModel.valueOf(model.trim()));
+            }
+        } else {
+            for (RepresentationModel model : RepresentationModel.values()) {
+                models.add(model);
+            }
+        }
+
+        final BenchmarkRunner runner = new BenchmarkRunner(Integer.parseInt(parameters.getOrDefault("warmup", "3")),
+                Integer.parseInt(parameters.getOrDefault("iterations", "5")));
+
+        // block building with every indexing backend
+        for (IndexBackend backend : IndexBackend.values()) {
+            if (isSelected("StandardBlocking." + backend)) {
+                runner.run("StandardBlocking." + backend, () -> {
+                    StandardBlocking blocking = new StandardBlocking();
+                    blocking.setIndexBackend(backend);
+                    return blocking;
+                }, blocking -> blocking.getBlocks(profilesD1, profilesD2));
+            }
+        }
+        final List<AbstractBlock> blocks = new StandardBlocking().getBlocks(profilesD1, profilesD2);
+        System.out.println("Blocks\t:\t" + blocks.size());
+
+        if (isSelected("BlockFiltering")) {
+            runner.run("BlockFiltering", () -> new ArrayList<>(blocks), 
+                    input -> new BlockFiltering().refineBlocks(input));
+        }
+        final List<AbstractBlock> filteredBlocks = new BlockFiltering().refineBlocks(new ArrayList<>(blocks));
+
+        // meta-blocking; WJS applies only to Clean-Clean ER
+        for (WeightingScheme scheme : WeightingScheme.values()) {
+            if (scheme == WeightingScheme.WJS && !cleanCleanER) {
+                continue;
+            }
+
+            if (isSelected("CardinalityNodePruning." + scheme)) {
+                runner.run("CardinalityNodePruning." + scheme, () -> new ArrayList<>(filteredBlocks),
+                        input -> new CardinalityNodePruning(scheme).refineBlocks(input));
+            }
+            if (isSelected("WeightedEdgePruning." + scheme)) {
+                runner.run("WeightedEdgePruning." + scheme, () -> new ArrayList<>(filteredBlocks),
+                        input -> new WeightedEdgePruning(scheme).refineBlocks(input));
+            }
+        }
+        final List<AbstractBlock> prunedBlocks = new CardinalityNodePruning(WeightingScheme.JS).refineBlocks(new ArrayList<>(filteredBlocks));
+        System.out.println("Pruned blocks\t:\t" + prunedBlocks.size());
+
+        for (RepresentationModel model : models) {
+            if (isSelected("ProfileMatcher." + model)) {
+                runner.run("ProfileMatcher." + model, () -> new ProfileMatcher(model),
+                        matcher -> matcher.executeComparisons(prunedBlocks, profilesD1, profilesD2));
+            }
+        }
+
+        final SimilarityPairs simPairs = new ProfileMatcher(CLUSTERING_MODEL).executeComparisons(prunedBlocks, profilesD1, profilesD2);
+        System.out.println("Similarity pairs\t:\t" + simPairs.getNoOfComparisons());
+
+        final IEntityClustering[] clusteringMethods = {new CenterClustering(), new ConnectedComponentsClustering(),
+            new CutClustering(), new MarkovClustering(), new MergeCenterClustering(), new RicochetSRClustering(),
+            new SparseMarkovClustering(), new UniqueMappingClustering()};
+        for (IEntityClustering method : clusteringMethods) {
+            String name = method.getClass().getSimpleName();
+            if (isSelected(name)) {
+                runner.run(name, () -> method.getDuplicates(simPairs));
+            }
+        }
+
+        if (parameters.containsKey("output")) {
+            runner.storeResults(parameters.get("output"));
+        }
+
+        if (parameters.containsKey("baseline")) {
+            double tolerance = Double.parseDouble(parameters.getOrDefault("tolerance", "0.25"));
+            List<String> regressions = runner.getRegressions(parameters.get("baseline"), tolerance);
+            if (regressions == null) {
+                System.exit(2);
+            }
+            
+            if (!regressions.isEmpty()) {
+                System.out.println("Regressions\t:\t" + regressions);
+                System.exit(1);
+            }
+        }
+    }
+
+    private static boolean isSelected(String benchmark) {
+        return filter == null || benchmark.contains(filter);
+    }
+
+    private static List<EntityProfile> readProfiles(String path, int size) {
+        List<EntityProfile> profiles = new EntitySerializationReader(path).getEntityProfiles();
+        if (size < profiles.size()) {
+            profiles = new ArrayList<>(profiles.subList(0, size));
+        }
+        return profiles;
+    }
+}
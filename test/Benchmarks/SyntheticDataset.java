@@ -0,0 +1,131 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package Benchmarks;
+
+import DataModel.EntityProfile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates entity profiles with a skewed vocabulary and noisy duplicates, so 
+ * that blocks, comparisons and clusters resemble those of real datasets. The
+ * same size and seed always yield the same profiles.
+ *
+ * @author G.A.P. II
+ */
+
+public class SyntheticDataset {
+
+    private final static double DUPLICATES_RATIO = 0.5;
+    private final static String[] ATTRIBUTE_NAMES = {"name", "title", "description", "category", "location", "year"};
+
+    private final Random random;
+    private final String[] vocabulary;
+    private final List<EntityProfile> profilesD1;
+    private final List<EntityProfile> profilesD2;
+
+    public SyntheticDataset(int noOfEntities, boolean cleanCleanER, long seed) {
+        random = new Random(seed);
+        vocabulary = new String[Math.max(1000, noOfEntities / 2)];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = getRandomWord();
+        }
+
+        profilesD1 = new ArrayList<>();
+        for (int i = 0; i < noOfEntities; i++) {
+            profilesD1.add(getRandomProfile("d1:" + i));
+        }
+
+        if (cleanCleanER) {
+            profilesD2 = new ArrayList<>();
+            for (int i = 0; i < noOfEntities; i++) {
+                if (random.nextDouble() < DUPLICATES_RATIO) {
+                    profilesD2.add(getNoisyCopy(profilesD1.get(random.nextInt(noOfEntities)), "d2:" + i));
+                } else {
+                    profilesD2.add(getRandomProfile("d2:" + i));
+                }
+            }
+        } else {
+            profilesD2 = null;
+            int noOfDuplicates = (int) (DUPLICATES_RATIO * noOfEntities / 2);
+            for (int i = 0; i < noOfDuplicates; i++) {
+                int originalIndex = random.nextInt(noOfEntities);
+                profilesD1.set(random.nextInt(noOfEntities), getNoisyCopy(profilesD1.get(originalIndex), "d1:dup" + i));
+            }
+        }
+    }
+
+    // removes, inserts and alters a few words of the original values
+    private EntityProfile getNoisyCopy(EntityProfile original, String url) {
+        final EntityProfile copy = new EntityProfile(url);
+        original.getAttributes().stream().forEach(attribute -> {
+            final StringBuilder value = new StringBuilder();
+            for (String word : attribute.getValue().split(" ")) {
+                double noise = random.nextDouble();
+                if (noise < 0.1) {
+                    continue;
+                } else if (noise < 0.2) {
+                    value.append(getWord()).append(" ");
+                } else if (noise < 0.3 && 1 < word.length()) {
+                    int position = random.nextInt(word.length());
+                    word = word.substring(0, position) + (char) ('a' + random.nextInt(26)) + word.substring(position + 1);
+                }
+                value.append(word).append(" ");
+            }
+            copy.addAttribute(attribute.getName(), value.toString().trim());
+        });
+        return copy;
+    }
+
+    public List<EntityProfile> getProfilesD1() {
+        return profilesD1;
+    }
+
+    public List<EntityProfile> getProfilesD2() {
+        return profilesD2;
+    }
+
+    private EntityProfile getRandomProfile(String url) {
+        final EntityProfile profile = new EntityProfile(url);
+        int noOfAttributes = 2 + random.nextInt(ATTRIBUTE_NAMES.length - 1);
+        for (int i = 0; i < noOfAttributes; i++) {
+            final StringBuilder value = new StringBuilder();
+            int noOfWords = 1 + random.nextInt(6);
+            for (int j = 0; j < noOfWords; j++) {
+                value.append(getWord()).append(" ");
+            }
+            profile.addAttribute(ATTRIBUTE_NAMES[i], value.toString().trim());
+        }
+        return profile;
+    }
+
+    private String getRandomWord() {
+        int length = 3 + random.nextInt(8);
+        final StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    // skewed towards the first words of the vocabulary, like the term frequencies of natural text
+    private String getWord() {
+        double uniform = random.nextDouble();
+        return vocabulary[(int) (vocabulary.length * uniform * uniform * uniform)];
+    }
+}
@@ -76,8 +76,8 @@ public class TestFullWorfklowComplexSimWithClustering {
         full.loadData();
         full.runBlocking();
 //        full.runMetaBlocking(); //meta-blocking may be executed within ProfileWithNeighborMatcher
-        SimilarityPairs simPairs = full.runSimilarityComputations();
         full.setSimilarity_threshold(0.4);
+        SimilarityPairs simPairs = full.runSimilarityComputations();
         full.runClustering(simPairs);
                 
         if (1>0) {
@@ -110,6 +110,7 @@ public class TestFullWorfklowComplexSimWithClustering {
 
                             full.setSimilarityMethod(similarity);
 
+                            full.setSimilarity_threshold(0.2); // the lowest threshold below is pushed down into the similarity computations
                             simPairs = full.runSimilarityComputations();
 
                             for (double sim_threshold = 0.2; sim_threshold < 0.9; sim_threshold += 0.2) {  
@@ -93,6 +93,7 @@ public class TestFullWorfklowWithClustering {
                 
                 full.setSimilarityMethod(similarity);
                 
+                full.setSimilarity_threshold(0.2); // the lowest threshold below is pushed down into the similarity computations
                 SimilarityPairs simPairs = full.runSimilarityComputations();
                 
                 for (double sim_threshold = 0.2; sim_threshold < 0.9; sim_threshold += 0.2) {  
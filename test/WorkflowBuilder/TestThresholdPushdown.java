@@ -0,0 +1,116 @@
+/*
+* Copyright [2016] [George Papadakis (gpapadis@yahoo.gr)]
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package WorkflowBuilder;
+
+import Benchmarks.SyntheticDataset;
+import BlockBuilding.StandardBlocking;
+import BlockProcessing.BlockRefinement.BlockFiltering;
+import BlockProcessing.ComparisonRefinement.CardinalityNodePruning;
+import DataModel.EquivalenceCluster;
+import DataModel.SimilarityPairs;
+import EntityClustering.CenterClustering;
+import EntityClustering.ConnectedComponentsClustering;
+import EntityClustering.CutClustering;
+import EntityClustering.IEntityClustering;
+import EntityClustering.MergeCenterClustering;
+import EntityClustering.RicochetSRClustering;
+import EntityClustering.UniqueMappingClustering;
+import EntityMatching.ProfileMatcher;
+import Utilities.Enumerations.BlockBuildingMethod;
+import Utilities.Enumerations.RepresentationModel;
+import Utilities.Enumerations.SimilarityMetric;
+import Utilities.Enumerations.WeightingScheme;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that pushing the clustering threshold down into the similarity
+ * computations of the workflow leaves the equivalence clusters intact, i.e.,
+ * that the clusters are the same as those of all similarity pairs.
+ *
+ * @author gap2
+ */
+
+public class TestThresholdPushdown {
+
+    // the sorted entity ids of every non-empty cluster, in ascending order
+    private static List<String> getClusters(List<EquivalenceCluster> clusters) {
+        final List<String> signatures = new ArrayList<>();
+        for (EquivalenceCluster cluster : clusters) {
+            if (cluster.getEntityIdsD1().isEmpty() && cluster.getEntityIdsD2().isEmpty()) {
+                continue;
+            }
+
+            List<Integer> entityIds1 = new ArrayList<>(cluster.getEntityIdsD1());
+            List<Integer> entityIds2 = new ArrayList<>(cluster.getEntityIdsD2());
+            Collections.sort(entityIds1);
+            Collections.sort(entityIds2);
+            signatures.add(entityIds1 + "|" + entityIds2);
+        }
+        Collections.sort(signatures);
+        return signatures;
+    }
+
+    public static void main(String[] args) {
+        int noOfEntities = 2000;
+        if (args.length == 1) {
+            noOfEntities = Integer.parseInt(args[0]);
+        }
+
+        int mismatches = 0;
+        for (boolean cleanCleanER : new boolean[]{false, true}) {
+            SyntheticDataset dataset = new SyntheticDataset(noOfEntities, cleanCleanER, 7);
+            AbstractWorkflowBuilder full = new FullWithClustering(null, null, null,
+                    BlockBuildingMethod.STANDARD_BLOCKING, null, null, null);
+            full.profiles1 = dataset.getProfilesD1();
+            full.profiles2 = dataset.getProfilesD2();
+            full.blocks = new StandardBlocking().getBlocks(full.profiles1, full.profiles2);
+            full.blocks = new BlockFiltering().refineBlocks(full.blocks);
+            full.blocks = new CardinalityNodePruning(WeightingScheme.JS).refineBlocks(full.blocks);
+
+            for (RepresentationModel repModel : new RepresentationModel[]{RepresentationModel.TOKEN_UNIGRAMS, RepresentationModel.CHARACTER_TRIGRAMS}) {
+                for (SimilarityMetric simMetric : SimilarityMetric.getModelCompatibleSimMetrics(repModel)) {
+                    // all pairs with a positive similarity
+                    full.setClusteringMethod(null);
+                    full.setSimilarityMethod(new ProfileMatcher(repModel, simMetric));
+                    SimilarityPairs allPairs = full.runSimilarityComputations();
+
+                    for (double threshold = 0.2; threshold < 0.9; threshold += 0.2) {
+                        IEntityClustering[] clusteringMethods = {new CenterClustering(), new ConnectedComponentsClustering(),
+                            new CutClustering(), new MergeCenterClustering(), new RicochetSRClustering(), new UniqueMappingClustering()};
+                        for (IEntityClustering clustering : clusteringMethods) {
+                            clustering.setSimilarityThreshold(threshold);
+                            List<String> expectedClusters = getClusters(clustering.getDuplicates(allPairs));
+
+                            full.setClusteringMethod(clustering);
+                            full.setSimilarityMethod(new ProfileMatcher(repModel, simMetric));
+                            SimilarityPairs retainedPairs = full.runSimilarityComputations();
+                            List<String> clusters = getClusters(clustering.getDuplicates(retainedPairs));
+                            if (!clusters.equals(expectedClusters)) {
+                                mismatches++;
+                                System.out.println("Different clusters\t:\t" + cleanCleanER + "\t" + repModel + "\t" + simMetric
+                                        + "\t" + threshold + "\t" + clustering.getClass().getSimpleName());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println("Configurations with different clusters\t:\t" + mismatches);
+    }
+}